@@ -0,0 +1,346 @@
+import java.util.Arrays;
+
+/**
+ * A kernel that does the discrete cosine transform of a block with the fast
+ * factorization of Arai, Agui and Nakajima (the same one as the floating point
+ * DCT in the Independent JPEG Group's library). A one dimensional pass costs 5
+ * multiplies instead of 64, but its outputs come out scaled by a different
+ * factor for each frequency. Those factors are in SCALE so that a quantizer
+ * can fold them into its divisors; forward() and inverse() apply them
+ * themselves and give the same orthonormal coefficients as the other kernels.
+ */
+public class AanDctKernel implements DctKernel {
+	/**
+	 * the factor of each coefficient of a block, SCALE[8 * u + v] is
+	 * 8 * s(u) * s(v) with s(0) = 1 and s(k) = sqrt(2) * cos(k * pi / 16)
+	 */
+	public static final double[] SCALE = new double[64];
+
+	/** cos(4 * pi / 16) */
+	private static final double C4 = Math.cos(4 * Math.PI / 16);
+
+	/** cos(6 * pi / 16) */
+	private static final double C6 = Math.cos(6 * Math.PI / 16);
+
+	/** cos(2 * pi / 16) - cos(6 * pi / 16) */
+	private static final double C2_MINUS_C6 = Math.cos(2 * Math.PI / 16) - C6;
+
+	/** cos(2 * pi / 16) + cos(6 * pi / 16) */
+	private static final double C2_PLUS_C6 = Math.cos(2 * Math.PI / 16) + C6;
+
+	/** 2 * cos(4 * pi / 16) */
+	private static final double TWO_C4 = 2 * C4;
+
+	/** 2 * cos(2 * pi / 16) */
+	private static final double TWO_C2 = 2 * Math.cos(2 * Math.PI / 16);
+
+	/** 2 * (cos(2 * pi / 16) - cos(6 * pi / 16)) */
+	private static final double TWO_C2_MINUS_C6 = 2 * C2_MINUS_C6;
+
+	/** 2 * (cos(2 * pi / 16) + cos(6 * pi / 16)) */
+	private static final double TWO_C2_PLUS_C6 = 2 * C2_PLUS_C6;
+
+	/** the forward scale of each coefficient, 1 / SCALE */
+	private static final double[] FORWARD_SCALE = new double[64];
+
+	/** the inverse scale of each coefficient, SCALE / 64 */
+	private static final double[] INVERSE_SCALE = new double[64];
+
+	static {
+		double[] s = new double[8];
+		s[0] = 1;
+		for (int k = 1; k < 8; k++)
+			s[k] = Math.sqrt(2) * Math.cos(k * Math.PI / 16);
+		for (int u = 0; u < 8; u++) {
+			for (int v = 0; v < 8; v++) {
+				SCALE[8 * u + v] = 8 * s[u] * s[v];
+				FORWARD_SCALE[8 * u + v] = 1 / SCALE[8 * u + v];
+				INVERSE_SCALE[8 * u + v] = SCALE[8 * u + v] / 64;
+			}
+		}
+	}
+
+	/**
+	 * Method to do the forward transform of one block in place
+	 *
+	 * @param block the 64 samples of the block in row-major order
+	 */
+	public void forward(double[] block) {
+		forwardScaled(block);
+		for (int k = 0; k < 64; k++)
+			block[k] *= FORWARD_SCALE[k];
+	}
+
+	/**
+	 * Method to do the inverse transform of one block in place
+	 *
+	 * @param block the 64 coefficients of the block in row-major order
+	 */
+	public void inverse(double[] block) {
+		for (int k = 0; k < 64; k++)
+			block[k] *= INVERSE_SCALE[k];
+		inverseScaled(block);
+	}
+
+	/**
+	 * Method to do the inverse transform of one block in place when every
+	 * coefficient at a row or column of extent or more is zero. A block with only
+	 * a DC coefficient is filled with its average, and only the extent x extent
+	 * corner is scaled and run through the column butterflies, with the zero
+	 * inputs of the butterflies left out when the extent is 2 or 4.
+	 *
+	 * @param block  the 64 coefficients of the block in row-major order
+	 * @param extent the number of rows and columns that can be non-zero (1 to 8)
+	 */
+	public void inverse(double[] block, int extent) {
+		if (extent >= 8) {
+			inverse(block);
+			return;
+		}
+		if (extent <= 1) {
+			Arrays.fill(block, block[0] * INVERSE_SCALE[0]);
+			return;
+		}
+		for (int u = 0; u < extent; u++) {
+			for (int v = 0; v < extent; v++)
+				block[8 * u + v] *= INVERSE_SCALE[8 * u + v];
+		}
+		// the columns past the extent are all zero and stay zero
+		for (int col = 0; col < extent; col++)
+			inverse1D(block, col, 8, extent);
+		for (int row = 0; row < 64; row += 8)
+			inverse1D(block, row, 1, extent);
+	}
+
+	/**
+	 * Method to do the forward transform of one block in place without removing
+	 * the scale factors, so each coefficient k comes out multiplied by SCALE[k]
+	 *
+	 * @param block the 64 samples of the block in row-major order
+	 */
+	public static void forwardScaled(double[] block) {
+		for (int row = 0; row < 64; row += 8)
+			forward1D(block, row, 1);
+		for (int col = 0; col < 8; col++)
+			forward1D(block, col, 8);
+	}
+
+	/**
+	 * Method to do the inverse transform of one block in place from coefficients
+	 * that have already been multiplied by SCALE[k] / 64
+	 *
+	 * @param block the 64 scaled coefficients of the block in row-major order
+	 */
+	public static void inverseScaled(double[] block) {
+		for (int row = 0; row < 64; row += 8)
+			inverse1D(block, row, 1);
+		for (int col = 0; col < 8; col++)
+			inverse1D(block, col, 8);
+	}
+
+	/**
+	 * Method to do the one dimensional forward butterfly of 8 values
+	 *
+	 * @param data   the array that holds the values
+	 * @param start  the index of the first value
+	 * @param stride the distance between the values
+	 */
+	private static void forward1D(double[] data, int start, int stride) {
+		int i0 = start, i1 = start + stride, i2 = start + 2 * stride, i3 = start + 3 * stride;
+		int i4 = start + 4 * stride, i5 = start + 5 * stride, i6 = start + 6 * stride, i7 = start + 7 * stride;
+
+		double tmp0 = data[i0] + data[i7];
+		double tmp7 = data[i0] - data[i7];
+		double tmp1 = data[i1] + data[i6];
+		double tmp6 = data[i1] - data[i6];
+		double tmp2 = data[i2] + data[i5];
+		double tmp5 = data[i2] - data[i5];
+		double tmp3 = data[i3] + data[i4];
+		double tmp4 = data[i3] - data[i4];
+
+		// the even part
+		double tmp10 = tmp0 + tmp3;
+		double tmp13 = tmp0 - tmp3;
+		double tmp11 = tmp1 + tmp2;
+		double tmp12 = tmp1 - tmp2;
+
+		data[i0] = tmp10 + tmp11;
+		data[i4] = tmp10 - tmp11;
+
+		double z1 = (tmp12 + tmp13) * C4;
+		data[i2] = tmp13 + z1;
+		data[i6] = tmp13 - z1;
+
+		// the odd part
+		tmp10 = tmp4 + tmp5;
+		tmp11 = tmp5 + tmp6;
+		tmp12 = tmp6 + tmp7;
+
+		double z5 = (tmp10 - tmp12) * C6;
+		double z2 = C2_MINUS_C6 * tmp10 + z5;
+		double z4 = C2_PLUS_C6 * tmp12 + z5;
+		double z3 = tmp11 * C4;
+
+		double z11 = tmp7 + z3;
+		double z13 = tmp7 - z3;
+
+		data[i5] = z13 + z2;
+		data[i3] = z13 - z2;
+		data[i1] = z11 + z4;
+		data[i7] = z11 - z4;
+	}
+
+	/**
+	 * Method to do the one dimensional inverse butterfly of 8 values when the
+	 * values from extent on are zero
+	 *
+	 * @param data   the array that holds the values
+	 * @param start  the index of the first value
+	 * @param stride the distance between the values
+	 * @param extent the number of values that can be non-zero
+	 */
+	private static void inverse1D(double[] data, int start, int stride, int extent) {
+		if (extent > 4)
+			inverse1D(data, start, stride);
+		else if (extent > 2)
+			inverse1D4(data, start, stride);
+		else
+			inverse1D2(data, start, stride);
+	}
+
+	/**
+	 * Method to do the one dimensional inverse butterfly of 8 values when only
+	 * the first 4 can be non-zero
+	 *
+	 * @param data   the array that holds the values
+	 * @param start  the index of the first value
+	 * @param stride the distance between the values
+	 */
+	private static void inverse1D4(double[] data, int start, int stride) {
+		int i0 = start, i1 = start + stride, i2 = start + 2 * stride, i3 = start + 3 * stride;
+		int i4 = start + 4 * stride, i5 = start + 5 * stride, i6 = start + 6 * stride, i7 = start + 7 * stride;
+
+		// the even part with inputs 4 and 6 zero
+		double tmp0 = data[i0];
+		double tmp1 = data[i2];
+		double tmp12 = tmp1 * TWO_C4 - tmp1;
+
+		double even0 = tmp0 + tmp1;
+		double even3 = tmp0 - tmp1;
+		double even1 = tmp0 + tmp12;
+		double even2 = tmp0 - tmp12;
+
+		// the odd part with inputs 5 and 7 zero
+		double tmp4 = data[i1];
+		double tmp5 = data[i3];
+
+		double tmp7 = tmp4 + tmp5;
+		double tmp11 = (tmp4 - tmp5) * TWO_C4;
+
+		double z5 = (tmp4 - tmp5) * TWO_C2;
+		double tmp10 = TWO_C2_MINUS_C6 * tmp4 - z5;
+		tmp12 = z5 + TWO_C2_PLUS_C6 * tmp5;
+
+		double tmp6 = tmp12 - tmp7;
+		tmp5 = tmp11 - tmp6;
+		tmp4 = tmp10 + tmp5;
+
+		data[i0] = even0 + tmp7;
+		data[i7] = even0 - tmp7;
+		data[i1] = even1 + tmp6;
+		data[i6] = even1 - tmp6;
+		data[i2] = even2 + tmp5;
+		data[i5] = even2 - tmp5;
+		data[i4] = even3 + tmp4;
+		data[i3] = even3 - tmp4;
+	}
+
+	/**
+	 * Method to do the one dimensional inverse butterfly of 8 values when only
+	 * the first 2 can be non-zero
+	 *
+	 * @param data   the array that holds the values
+	 * @param start  the index of the first value
+	 * @param stride the distance between the values
+	 */
+	private static void inverse1D2(double[] data, int start, int stride) {
+		int i0 = start, i1 = start + stride, i2 = start + 2 * stride, i3 = start + 3 * stride;
+		int i4 = start + 4 * stride, i5 = start + 5 * stride, i6 = start + 6 * stride, i7 = start + 7 * stride;
+
+		double tmp0 = data[i0];
+
+		// the odd part with only input 1 non-zero
+		double tmp7 = data[i1];
+		double tmp6 = (TWO_C2 - 1) * tmp7;
+		double tmp5 = (TWO_C4 - TWO_C2 + 1) * tmp7;
+		double tmp4 = (TWO_C2_MINUS_C6 - TWO_C2 + TWO_C4 - TWO_C2 + 1) * tmp7;
+
+		data[i0] = tmp0 + tmp7;
+		data[i7] = tmp0 - tmp7;
+		data[i1] = tmp0 + tmp6;
+		data[i6] = tmp0 - tmp6;
+		data[i2] = tmp0 + tmp5;
+		data[i5] = tmp0 - tmp5;
+		data[i4] = tmp0 + tmp4;
+		data[i3] = tmp0 - tmp4;
+	}
+
+	/**
+	 * Method to do the one dimensional inverse butterfly of 8 values
+	 *
+	 * @param data   the array that holds the values
+	 * @param start  the index of the first value
+	 * @param stride the distance between the values
+	 */
+	private static void inverse1D(double[] data, int start, int stride) {
+		int i0 = start, i1 = start + stride, i2 = start + 2 * stride, i3 = start + 3 * stride;
+		int i4 = start + 4 * stride, i5 = start + 5 * stride, i6 = start + 6 * stride, i7 = start + 7 * stride;
+
+		// the even part
+		double tmp0 = data[i0];
+		double tmp1 = data[i2];
+		double tmp2 = data[i4];
+		double tmp3 = data[i6];
+
+		double tmp10 = tmp0 + tmp2;
+		double tmp11 = tmp0 - tmp2;
+		double tmp13 = tmp1 + tmp3;
+		double tmp12 = (tmp1 - tmp3) * TWO_C4 - tmp13;
+
+		tmp0 = tmp10 + tmp13;
+		tmp3 = tmp10 - tmp13;
+		tmp1 = tmp11 + tmp12;
+		tmp2 = tmp11 - tmp12;
+
+		// the odd part
+		double tmp4 = data[i1];
+		double tmp5 = data[i3];
+		double tmp6 = data[i5];
+		double tmp7 = data[i7];
+
+		double z13 = tmp6 + tmp5;
+		double z10 = tmp6 - tmp5;
+		double z11 = tmp4 + tmp7;
+		double z12 = tmp4 - tmp7;
+
+		tmp7 = z11 + z13;
+		tmp11 = (z11 - z13) * TWO_C4;
+
+		double z5 = (z10 + z12) * TWO_C2;
+		tmp10 = TWO_C2_MINUS_C6 * z12 - z5;
+		tmp12 = z5 - TWO_C2_PLUS_C6 * z10;
+
+		tmp6 = tmp12 - tmp7;
+		tmp5 = tmp11 - tmp6;
+		tmp4 = tmp10 + tmp5;
+
+		data[i0] = tmp0 + tmp7;
+		data[i7] = tmp0 - tmp7;
+		data[i1] = tmp1 + tmp6;
+		data[i6] = tmp1 - tmp6;
+		data[i2] = tmp2 + tmp5;
+		data[i5] = tmp2 - tmp5;
+		data[i4] = tmp3 + tmp4;
+		data[i3] = tmp3 - tmp4;
+	}
+}
@@ -0,0 +1,578 @@
+import java.awt.Point;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.MultiPixelPackedSampleModel;
+import java.awt.image.Raster;
+import java.awt.image.SampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.event.IIOReadProgressListener;
+import javax.imageio.event.IIOReadUpdateListener;
+import javax.imageio.stream.ImageInputStream;
+
+/**
+ * A class that compresses a picture file to a JPEG file a band of rows at a
+ * time, so the picture is never whole in memory: the reader decodes rows into
+ * a buffer one band (one MCU, 8 or 16 rows) high, each full band is copied out
+ * and handed to a second thread that transforms it, changes it with a
+ * CoefficientFilter if there is one, quantizes it and writes it to the
+ * JpegWriter's band stream. Decoding the next bands goes on while a band is
+ * transformed and written, and at most a few bands wait between the two, so
+ * the memory used grows with the width of the picture but not its height. The
+ * markers are written before any rows are decoded.
+ *
+ * The reader is told where to put the rows with a destination image whose
+ * buffer only holds one band, and is listened to for each row it finishes.
+ * The destination holds packed RGB ints when the reader can decode to them
+ * and otherwise has the reader's own layout (the palette of a palette PNG, or
+ * the alpha of an RGBA one), in which case each band is turned into RGB as it
+ * is copied out; the alpha is dropped, as JPEG has none. Only the JPEG and PNG
+ * readers write rows into such an image, so other formats are turned down with
+ * an IOException before the output is opened. The image still has the size of
+ * the whole picture, so pictures of 2^31 pixels or samples or more are turned
+ * down too. The reader also has to decode the rows once, in order: a
+ * progressive JPEG or an interlaced PNG decodes the picture more than once and
+ * makes run() fail with an IOException partway through. When run() fails
+ * writing a file the part written is deleted.
+ */
+public class BandPipeline {
+	/** the default number of bands that can wait to be transformed */
+	public static final int DEFAULT_QUEUED_BANDS = 4;
+
+	/** how long to wait on a queue before checking whether to give up */
+	private static final long WAIT_MILLIS = 10;
+
+	/** the quality the bands are quantized at */
+	private int quality = 75;
+
+	/** how the chroma is subsampled */
+	private ChromaSubsampling subsampling = ChromaSubsampling.S420;
+
+	/** the changes made to each band before it is quantized, or null */
+	private CoefficientFilter filter;
+
+	/** the engine that transforms the bands */
+	private DctEngine engine = new DctEngine();
+
+	/** the number of bands that can wait to be transformed */
+	private int queuedBands = DEFAULT_QUEUED_BANDS;
+
+	/** the listeners told how the decoding is going */
+	private final List<IIOReadProgressListener> progressListeners = new ArrayList<IIOReadProgressListener>();
+
+	/**
+	 * Method to set the quality the bands are quantized at
+	 *
+	 * @param quality the quality from 1 to 100
+	 */
+	public void setQuality(int quality) {
+		if (quality < 1 || quality > 100)
+			throw new IllegalArgumentException("quality must be 1 to 100 but was " + quality);
+		this.quality = quality;
+	}
+
+	/**
+	 * Method to set how the chroma is subsampled
+	 *
+	 * @param subsampling the subsampling
+	 */
+	public void setSubsampling(ChromaSubsampling subsampling) {
+		this.subsampling = subsampling;
+	}
+
+	/**
+	 * Method to set the changes made to the coefficients of each band before it
+	 * is quantized. The filter only sees one band, but it only works inside
+	 * each block anyway.
+	 *
+	 * @param filter the changes, or null for none
+	 */
+	public void setFilter(CoefficientFilter filter) {
+		this.filter = filter;
+	}
+
+	/**
+	 * Method to set the engine that transforms the bands
+	 *
+	 * @param engine the engine to use
+	 */
+	public void setEngine(DctEngine engine) {
+		this.engine = engine;
+	}
+
+	/**
+	 * Method to set how many bands can wait between the decoding and the
+	 * transform. More lets the decoding run further ahead, which only helps
+	 * when one of them is uneven.
+	 *
+	 * @param queuedBands the number of bands (1 or more)
+	 */
+	public void setQueuedBands(int queuedBands) {
+		if (queuedBands < 1)
+			throw new IllegalArgumentException("at least 1 band must be able to wait but was " + queuedBands);
+		this.queuedBands = queuedBands;
+	}
+
+	/**
+	 * Method to add a listener that is told how the decoding is going
+	 *
+	 * @param listener the listener, added to the reader of each run
+	 */
+	public void addProgressListener(IIOReadProgressListener listener) {
+		progressListeners.add(listener);
+	}
+
+	/**
+	 * Method to compress a picture file to a JPEG file. The file isn't opened
+	 * until the picture is known to be streamable, and is deleted if the
+	 * compression fails after that.
+	 *
+	 * @param input  the JPEG or PNG picture to read
+	 * @param output the JPEG file to write
+	 * @return the size and speed
+	 * @throws IOException if the picture can't be read or streamed or the file
+	 *                     can't be written
+	 */
+	public CompressionStats run(File input, File output) throws IOException {
+		try (ImageInputStream stream = ImageIO.createImageInputStream(input)) {
+			if (stream == null)
+				throw new IOException(input + " could not be opened");
+			Iterator<ImageReader> readers = ImageIO.getImageReaders(stream);
+			if (!readers.hasNext())
+				throw new IOException("there is no reader for " + input);
+			ImageReader reader = readers.next();
+			try {
+				reader.setInput(stream, true, true);
+				// check before the output file is made or emptied
+				ImageTypeSpecifier type = streamType(reader);
+				FileChannel channel = FileChannel.open(output.toPath(), StandardOpenOption.WRITE,
+						StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+				try {
+					try {
+						return run(reader, channel, type);
+					} finally {
+						channel.close();
+					}
+				} catch (IOException | RuntimeException | Error ex) {
+					// don't leave part of a JPEG behind
+					output.delete();
+					throw ex;
+				}
+			} finally {
+				reader.dispose();
+			}
+		}
+	}
+
+	/**
+	 * Method to compress the first picture of a reader to a channel
+	 *
+	 * @param reader  the reader, with its input set
+	 * @param channel the channel to write the JPEG file to
+	 * @return the size and speed
+	 * @throws IOException if the picture can't be read or streamed or the
+	 *                     channel can't be written
+	 */
+	public CompressionStats run(ImageReader reader, WritableByteChannel channel) throws IOException {
+		return run(reader, channel, streamType(reader));
+	}
+
+	/**
+	 * Method to compress the first picture of a reader to a channel, decoding
+	 * it into a destination of the passed type
+	 *
+	 * @param reader  the reader, with its input set
+	 * @param channel the channel to write the JPEG file to
+	 * @param type    the type from streamType()
+	 * @return the size and speed
+	 * @throws IOException if the picture can't be read or the channel can't be
+	 *                     written
+	 */
+	private CompressionStats run(ImageReader reader, WritableByteChannel channel, ImageTypeSpecifier type)
+			throws IOException {
+		long start = System.nanoTime();
+		int width = reader.getWidth(0);
+		int height = reader.getHeight(0);
+		JpegWriter writer = new JpegWriter();
+		writer.setQuality(quality);
+		writer.setSubsampling(subsampling);
+		JpegWriter.BandStream stream = writer.open(channel, width, height);
+
+		BandCollector collector = new BandCollector(width, height, stream.getBandHeight(), type);
+		Thread transformer = new Thread(() -> collector.transform(stream), "band transform");
+		transformer.setDaemon(true);
+		transformer.start();
+		collector.transformer = transformer;
+
+		ImageReadParam param = reader.getDefaultReadParam();
+		param.setDestination(collector.destination);
+		reader.addIIOReadUpdateListener(collector);
+		for (IIOReadProgressListener listener : progressListeners)
+			reader.addIIOReadProgressListener(listener);
+		try {
+			reader.read(0, param);
+		} catch (RuntimeException ex) {
+			collector.fail(new IOException(reader.getFormatName() + " reader failed at row " + collector.nextRow, ex));
+		} finally {
+			reader.removeIIOReadUpdateListener(collector);
+			for (IIOReadProgressListener listener : progressListeners)
+				reader.removeIIOReadProgressListener(listener);
+			collector.finish();
+			try {
+				transformer.join();
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		if (collector.error != null)
+			throw collector.error;
+		long bytes = stream.finish();
+		return new CompressionStats((long) width * height, bytes, System.nanoTime() - start);
+	}
+
+	/**
+	 * Method to make sure a reader's first picture can be streamed and get the
+	 * type of image to decode it into: packed RGB ints if the reader can decode
+	 * to them, or else the reader's own layout. The destination image only works
+	 * with the JPEG and PNG readers, its layout has to keep the samples of a row
+	 * together in one bank, and it can't have 2^31 pixels or samples or more.
+	 *
+	 * @param reader the reader, with its input set
+	 * @return the type of the destination
+	 * @throws IOException if the picture can't be streamed
+	 */
+	private static ImageTypeSpecifier streamType(ImageReader reader) throws IOException {
+		String format = reader.getFormatName();
+		if (!"jpeg".equalsIgnoreCase(format) && !"png".equalsIgnoreCase(format))
+			throw new IOException("only JPEG and PNG pictures can be streamed, not " + format);
+		int width = reader.getWidth(0);
+		int height = reader.getHeight(0);
+		if ((long) width * height > Integer.MAX_VALUE)
+			throw new IOException("a " + width + "x" + height + " picture has too many pixels to stream");
+		ImageTypeSpecifier type = reader.getRawImageType(0);
+		for (Iterator<ImageTypeSpecifier> types = reader.getImageTypes(0); types.hasNext();) {
+			ImageTypeSpecifier next = types.next();
+			if (next.getBufferedImageType() == BufferedImage.TYPE_INT_RGB)
+				type = next;
+		}
+		if (type == null)
+			throw new IOException("the " + format + " reader has no type to decode this picture into");
+		int rowElements = rowElements(type.getSampleModel(width, 1));
+		if (rowElements < 0)
+			throw new IOException("the " + format + " reader's layout for this picture can't be streamed");
+		if ((long) rowElements * height > Integer.MAX_VALUE)
+			throw new IOException("a " + width + "x" + height + " picture has too many samples to stream");
+		return type;
+	}
+
+	/**
+	 * Method to get the number of data elements from the start of one row to
+	 * the start of the next, for the layouts that keep a row together in one
+	 * bank
+	 *
+	 * @param sampleModel the layout
+	 * @return the number of elements, or -1 for any other layout
+	 */
+	private static int rowElements(SampleModel sampleModel) {
+		if (sampleModel instanceof SinglePixelPackedSampleModel)
+			return ((SinglePixelPackedSampleModel) sampleModel).getScanlineStride();
+		if (sampleModel instanceof MultiPixelPackedSampleModel)
+			return ((MultiPixelPackedSampleModel) sampleModel).getScanlineStride();
+		if (sampleModel instanceof ComponentSampleModel) {
+			for (int bank : ((ComponentSampleModel) sampleModel).getBankIndices())
+				if (bank != 0)
+					return -1;
+			return ((ComponentSampleModel) sampleModel).getScanlineStride();
+		}
+		return -1;
+	}
+
+	/**
+	 * Rows of a picture copied out of the reader's buffer
+	 */
+	private static class Band {
+		/** the pixels, or null after the last band */
+		final PictureRaster pixels;
+
+		Band(PictureRaster pixels) {
+			this.pixels = pixels;
+		}
+	}
+
+	/**
+	 * A buffer for a whole picture that only holds one band of rows: row y is
+	 * kept where row y % rows would be, so each band writes over the one before
+	 * it. The elements are kept as ints whatever their type.
+	 */
+	private static class BandBuffer extends DataBuffer {
+		/** the rows of the band, one after another */
+		final int[] data;
+
+		BandBuffer(int dataType, int rowElements, int rows) {
+			super(dataType, rowElements * rows);
+			this.data = new int[rowElements * rows];
+		}
+
+		public int getElem(int bank, int i) {
+			return data[i % data.length];
+		}
+
+		public void setElem(int bank, int i, int value) {
+			data[i % data.length] = value;
+		}
+	}
+
+	/**
+	 * A listener that copies each band out of the reader's buffer as soon as
+	 * its last row is decoded, and the loop that transforms and writes the
+	 * bands on another thread
+	 */
+	private class BandCollector implements IIOReadUpdateListener {
+		/** the width of the picture */
+		final int width;
+
+		/** the height of the picture */
+		final int height;
+
+		/** the height of a band */
+		final int bandHeight;
+
+		/** the buffer the reader decodes into */
+		final BandBuffer buffer;
+
+		/** the image the reader decodes into */
+		final BufferedImage destination;
+
+		/** the first rows of the destination, one band high, to copy bands out of */
+		final BufferedImage band;
+
+		/** true if the buffer holds packed RGB ints that can be copied as they are */
+		final boolean packed;
+
+		/** the rasters for full bands that aren't in use */
+		final BlockingQueue<PictureRaster> free;
+
+		/** the bands waiting to be transformed */
+		final BlockingQueue<Band> waiting;
+
+		/** the thread that transforms the bands */
+		volatile Thread transformer;
+
+		/** what went wrong, or null */
+		volatile IOException error;
+
+		/** the next row the reader should finish */
+		int nextRow;
+
+		BandCollector(int width, int height, int bandHeight, ImageTypeSpecifier type) {
+			this.width = width;
+			this.height = height;
+			this.bandHeight = bandHeight;
+			SampleModel sampleModel = type.getSampleModel(width, height);
+			this.buffer = new BandBuffer(sampleModel.getDataType(), rowElements(sampleModel), bandHeight);
+			ColorModel colorModel = type.getColorModel();
+			this.destination = new BufferedImage(colorModel,
+					Raster.createWritableRaster(sampleModel, buffer, new Point(0, 0)),
+					colorModel.isAlphaPremultiplied(), null);
+			this.band = new BufferedImage(colorModel,
+					Raster.createWritableRaster(sampleModel.createCompatibleSampleModel(width, bandHeight), buffer,
+							new Point(0, 0)),
+					colorModel.isAlphaPremultiplied(), null);
+			this.packed = type.getBufferedImageType() == BufferedImage.TYPE_INT_RGB;
+			this.free = new ArrayBlockingQueue<PictureRaster>(queuedBands + 1);
+			this.waiting = new ArrayBlockingQueue<Band>(queuedBands + 1);
+			for (int i = 0; i <= queuedBands; i++)
+				free.add(new PictureRaster(new BufferedImage(width, bandHeight, BufferedImage.TYPE_INT_RGB)));
+		}
+
+		/**
+		 * Method to record what went wrong. Only the first problem is kept. The
+		 * reader is only stopped from its own thread, in imageUpdate(), since
+		 * readers can't be used from other threads.
+		 *
+		 * @param problem what went wrong
+		 */
+		synchronized void fail(IOException problem) {
+			if (error == null)
+				error = problem;
+		}
+
+		public void imageUpdate(ImageReader source, BufferedImage image, int minX, int minY, int updateWidth,
+				int updateHeight, int periodX, int periodY, int[] bands) {
+			if (error == null
+					&& (minX != 0 || updateWidth != width || periodX != 1 || periodY != 1 || minY != nextRow))
+				fail(new IOException("the reader didn't decode the rows once in order (the picture may be"
+						+ " progressive or interlaced), so it can't be streamed"));
+			if (error != null) {
+				source.abort();
+				return;
+			}
+			nextRow = minY + updateHeight;
+			// a band is full when its last row is done, before the next row writes over it
+			if ((nextRow % bandHeight == 0 || nextRow == height) && !sendBand((nextRow - 1) / bandHeight * bandHeight,
+					nextRow))
+				source.abort();
+		}
+
+		/**
+		 * Method to copy a band out of the buffer and queue it, waiting for a
+		 * free raster and for room in the queue until something goes wrong
+		 *
+		 * @param firstRow the first row of the band
+		 * @param endRow   the row after the band
+		 * @return true if the band was queued, false if something went wrong
+		 */
+		boolean sendBand(int firstRow, int endRow) {
+			try {
+				int rows = endRow - firstRow;
+				PictureRaster pixels = null;
+				if (rows != bandHeight)
+					pixels = new PictureRaster(new BufferedImage(width, rows, BufferedImage.TYPE_INT_RGB));
+				while (pixels == null) {
+					if (error != null)
+						return false;
+					pixels = free.poll(WAIT_MILLIS, TimeUnit.MILLISECONDS);
+				}
+				for (int i = 0; i < rows; i++) {
+					if (packed)
+						System.arraycopy(buffer.data, i * width, pixels.getData(), pixels.index(0, i), width);
+					else
+						band.getRGB(0, i, width, 1, pixels.getData(), pixels.index(0, i), width);
+				}
+				Band band = new Band(pixels);
+				while (!waiting.offer(band, WAIT_MILLIS, TimeUnit.MILLISECONDS))
+					if (error != null)
+						return false;
+				return true;
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				fail(new IOException("the decoding was interrupted"));
+				return false;
+			}
+		}
+
+		/**
+		 * Method to tell the transform loop there are no more bands, giving up
+		 * if the loop has already stopped
+		 */
+		void finish() {
+			boolean interrupted = false;
+			Band end = new Band(null);
+			while (transformer.isAlive()) {
+				try {
+					if (waiting.offer(end, WAIT_MILLIS, TimeUnit.MILLISECONDS))
+						break;
+				} catch (InterruptedException ex) {
+					interrupted = true;
+				}
+			}
+			if (interrupted)
+				Thread.currentThread().interrupt();
+			if (error == null && nextRow != height)
+				fail(new IOException("only " + nextRow + " of " + height + " rows were decoded"));
+		}
+
+		/**
+		 * Method to transform, filter, quantize and write each band until there
+		 * are no more, run on its own thread
+		 *
+		 * @param stream the band stream to write to
+		 */
+		void transform(JpegWriter.BandStream stream) {
+			YCbCrImage quantized = stream.createBand(bandHeight);
+			YCbCrImage coefficients = YCbCrImage.create(CoefficientImage.Storage.DOUBLE, width, bandHeight,
+					subsampling);
+			int firstRow = 0;
+			while (true) {
+				Band band;
+				try {
+					band = waiting.take();
+				} catch (InterruptedException ex) {
+					fail(new IOException("the transform was interrupted"));
+					return;
+				}
+				PictureRaster pixels = band.pixels;
+				if (pixels == null)
+					return;
+				try {
+					if (error != null)
+						continue;
+					int rows = pixels.getHeight();
+					if (rows != bandHeight) {
+						quantized = stream.createBand(rows);
+						coefficients = YCbCrImage.create(CoefficientImage.Storage.DOUBLE, width, rows, subsampling);
+					}
+					if (filter == null) {
+						engine.forward(pixels, quantized);
+					} else {
+						engine.forward(pixels, coefficients);
+						filter.apply(coefficients);
+						copyBlocks(coefficients.getLuma(), quantized.getLuma());
+						copyBlocks(coefficients.getChroma(), quantized.getChroma());
+					}
+					stream.write(quantized);
+				} catch (IOException ex) {
+					fail(ex);
+				} catch (RuntimeException | Error ex) {
+					fail(new IOException("the band at row " + firstRow + " couldn't be written", ex));
+				} finally {
+					firstRow += pixels.getHeight();
+					if (pixels.getHeight() == bandHeight)
+						free.add(pixels);
+				}
+			}
+		}
+
+		public void passStarted(ImageReader source, BufferedImage image, int pass, int minPass, int maxPass,
+				int minX, int minY, int periodX, int periodY, int[] bands) {
+		}
+
+		public void passComplete(ImageReader source, BufferedImage image) {
+		}
+
+		public void thumbnailPassStarted(ImageReader source, BufferedImage thumbnail, int pass, int minPass,
+				int maxPass, int minX, int minY, int periodX, int periodY, int[] bands) {
+		}
+
+		public void thumbnailUpdate(ImageReader source, BufferedImage thumbnail, int minX, int minY, int width,
+				int height, int periodX, int periodY, int[] bands) {
+		}
+
+		public void thumbnailPassComplete(ImageReader source, BufferedImage thumbnail) {
+		}
+	}
+
+	/**
+	 * Method to copy every block of one image into another, quantizing them if
+	 * the other is quantized
+	 *
+	 * @param from the image to copy
+	 * @param to   the image to set, the same size
+	 */
+	private static void copyBlocks(CoefficientImage from, CoefficientImage to) {
+		double[] values = new double[CoefficientImage.BLOCK_AREA];
+		for (int block = 0; block < from.getBlockCount(); block++) {
+			for (int channel = 0; channel < from.getChannels(); channel++) {
+				from.getBlock(block, channel, values);
+				to.setBlock(block, channel, values);
+			}
+		}
+	}
+}
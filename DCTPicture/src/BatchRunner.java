@@ -0,0 +1,788 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.imageio.ImageIO;
+
+/**
+ * A class that blurs or compresses a whole directory of pictures in three
+ * stages: reading threads load and decode the pictures, transform threads do
+ * the DCT work on them, and writing threads encode and write the results.
+ * Bounded queues sit between the stages, so a slow stage holds back the ones
+ * before it instead of letting decoded pictures pile up: at most
+ * 2 * ioThreads + cpuThreads + 2 * queueSize pictures are in memory at once.
+ * The transform threads are as many as the processors by default, and each
+ * transforms on its own thread (parallelism 1) so the transforms don't compete
+ * with each other for the cores.
+ *
+ * While it runs it prints the pictures per second and the megabytes of files
+ * read per second, and at the end a summary with the time each stage took per
+ * picture.
+ *
+ * Run it as java BatchRunner [options] input output, where input is a
+ * directory (every picture in it and its subdirectories) or a glob such as
+ * images/*.jpg or media/**&#47;*.png, and output is the directory to write
+ * the results to under the same names. The options are -io n (reading and
+ * writing threads), -cpu n (transform threads), -queue n (pictures waiting
+ * between stages), -quality q (quantize at quality q instead of blurring; .jpg
+ * and .jpeg outputs are just encoded at quality q) and -report s (seconds
+ * between progress lines, 0 for none).
+ */
+public class BatchRunner {
+	/** the default number of reading and of writing threads */
+	public static final int DEFAULT_IO_THREADS = 4;
+
+	/** the default number of seconds between progress lines */
+	public static final int DEFAULT_REPORT_SECONDS = 5;
+
+	/** the number of reading and of writing threads */
+	private int ioThreads = DEFAULT_IO_THREADS;
+
+	/** the number of transform threads */
+	private int cpuThreads = Runtime.getRuntime().availableProcessors();
+
+	/** the number of pictures that can wait between stages */
+	private int queueSize = cpuThreads;
+
+	/** the quality to quantize at, or 0 to blur */
+	private int quality;
+
+	/** the seconds between progress lines, or 0 for none */
+	private int reportSeconds = DEFAULT_REPORT_SECONDS;
+
+	/**
+	 * Method to set the number of reading threads and of writing threads
+	 *
+	 * @param ioThreads the number of threads for each (1 or more)
+	 */
+	public void setIoThreads(int ioThreads) {
+		this.ioThreads = checkPositive("io threads", ioThreads);
+	}
+
+	/**
+	 * Method to set the number of transform threads
+	 *
+	 * @param cpuThreads the number of threads (1 or more)
+	 */
+	public void setCpuThreads(int cpuThreads) {
+		this.cpuThreads = checkPositive("cpu threads", cpuThreads);
+	}
+
+	/**
+	 * Method to set how many pictures can wait between two stages
+	 *
+	 * @param queueSize the number of pictures (1 or more)
+	 */
+	public void setQueueSize(int queueSize) {
+		this.queueSize = checkPositive("queue size", queueSize);
+	}
+
+	/**
+	 * Method to quantize the pictures at a quality instead of blurring them
+	 *
+	 * @param quality the quality from 1 to 100, or 0 to blur
+	 */
+	public void setQuality(int quality) {
+		if (quality < 0 || quality > 100)
+			throw new IllegalArgumentException("quality must be 1 to 100, or 0 to blur, but was " + quality);
+		this.quality = quality;
+	}
+
+	/**
+	 * Method to set how often a progress line is printed
+	 *
+	 * @param reportSeconds the seconds between lines, or 0 for none
+	 */
+	public void setReportSeconds(int reportSeconds) {
+		if (reportSeconds < 0)
+			throw new IllegalArgumentException("report seconds can't be negative but was " + reportSeconds);
+		this.reportSeconds = reportSeconds;
+	}
+
+	/**
+	 * Method to make sure a setting is at least 1
+	 *
+	 * @param name  the name of the setting
+	 * @param value the value
+	 * @return the value
+	 */
+	private static int checkPositive(String name, int value) {
+		if (value < 1)
+			throw new IllegalArgumentException(name + " must be at least 1 but was " + value);
+		return value;
+	}
+
+	/**
+	 * Method to find the pictures for a directory or a glob. A directory gives
+	 * every file in it or its subdirectories with an extension ImageIO can read
+	 * (or dctp). A glob is matched against the paths under the directory before
+	 * its first wildcard, so images/*.jpg is the jpg files in images and
+	 * images/**&#47;*.jpg also those in its subdirectories.
+	 *
+	 * @param pattern the directory or glob
+	 * @return the pictures found and the directory their names are relative
+	 *         to, in name order
+	 * @throws IOException if the directory can't be read
+	 */
+	public static Inputs findInputs(String pattern) throws IOException {
+		Path base;
+		PathMatcher matcher;
+		File directory = new File(pattern);
+		if (directory.isDirectory()) {
+			base = directory.toPath();
+			Set<String> suffixes = new HashSet<String>();
+			for (String suffix : ImageIO.getReaderFileSuffixes())
+				suffixes.add(suffix.toLowerCase(Locale.ROOT));
+			suffixes.add("dctp");
+			matcher = path -> {
+				String name = path.getFileName().toString();
+				int dot = name.lastIndexOf('.');
+				return dot >= 0 && suffixes.contains(name.substring(dot + 1).toLowerCase(Locale.ROOT));
+			};
+		} else {
+			// the directory is the part of the glob before the first wildcard
+			String separators = pattern.replace(File.separatorChar, '/');
+			int wildcard = firstWildcard(separators);
+			int slash = separators.lastIndexOf('/', wildcard);
+			base = Paths.get(slash < 0 ? "." : slash == 0 ? "/" : separators.substring(0, slash));
+			matcher = FileSystems.getDefault().getPathMatcher("glob:" + separators.substring(slash + 1));
+		}
+		if (!Files.isDirectory(base))
+			throw new IOException(base + " isn't a directory");
+		Path root = base;
+		List<File> files;
+		try (Stream<Path> paths = Files.walk(root)) {
+			files = paths.filter(Files::isRegularFile).filter(path -> matcher.matches(root.relativize(path)))
+					.sorted().map(Path::toFile).collect(Collectors.toList());
+		}
+		return new Inputs(root.toFile(), files);
+	}
+
+	/**
+	 * Method to find the first glob wildcard in a pattern
+	 *
+	 * @param pattern the pattern
+	 * @return the index of the first *, ?, [ or {, or the length if there is
+	 *         none
+	 */
+	private static int firstWildcard(String pattern) {
+		for (int i = 0; i < pattern.length(); i++)
+			if ("*?[{".indexOf(pattern.charAt(i)) >= 0)
+				return i;
+		return pattern.length();
+	}
+
+	/**
+	 * Method to run the stages over the pictures
+	 *
+	 * @param inputs          the pictures to read
+	 * @param outputDirectory the directory to write them to, under the same
+	 *                        names relative to the input directory
+	 * @return the totals and the time taken by each stage
+	 * @throws InterruptedException if the thread is interrupted while waiting
+	 */
+	public BatchStats run(Inputs inputs, File outputDirectory) throws InterruptedException {
+		BatchStats stats = new BatchStats(inputs.files.size());
+		BlockingQueue<Job> decoded = new ArrayBlockingQueue<Job>(queueSize);
+		BlockingQueue<Job> transformed = new ArrayBlockingQueue<Job>(queueSize);
+		AtomicInteger next = new AtomicInteger();
+		AtomicInteger readersLeft = new AtomicInteger(ioThreads);
+		AtomicInteger transformersLeft = new AtomicInteger(cpuThreads);
+		Path base = inputs.directory.toPath();
+
+		List<Thread> threads = new ArrayList<Thread>();
+		for (int i = 0; i < ioThreads; i++) {
+			threads.add(new Thread(() -> {
+				try {
+					for (int index = next.getAndIncrement(); index < inputs.files.size(); index = next
+							.getAndIncrement()) {
+						File input = inputs.files.get(index);
+						Job job = new Job(input,
+								new File(outputDirectory, base.relativize(input.toPath()).toString()));
+						if (read(job, stats))
+							putUninterruptibly(decoded, job);
+					}
+				} finally {
+					// the last reader out ends the next stage, however the readers stopped
+					if (readersLeft.decrementAndGet() == 0)
+						for (int j = 0; j < cpuThreads; j++)
+							putUninterruptibly(decoded, Job.END);
+				}
+			}, "batch read " + (i + 1)));
+		}
+		for (int i = 0; i < cpuThreads; i++) {
+			threads.add(new Thread(() -> {
+				try {
+					DctEngine engine = new DctEngine();
+					engine.setParallelism(1);
+					for (Job job = takeUninterruptibly(decoded); job != Job.END; job = takeUninterruptibly(decoded))
+						if (transform(job, engine, stats))
+							putUninterruptibly(transformed, job);
+				} finally {
+					if (transformersLeft.decrementAndGet() == 0)
+						for (int j = 0; j < ioThreads; j++)
+							putUninterruptibly(transformed, Job.END);
+				}
+			}, "batch transform " + (i + 1)));
+		}
+		for (int i = 0; i < ioThreads; i++) {
+			threads.add(new Thread(() -> {
+				DctEngine engine = new DctEngine();
+				engine.setParallelism(1);
+				for (Job job = takeUninterruptibly(transformed); job != Job.END; job = takeUninterruptibly(
+						transformed))
+					write(job, engine, stats);
+			}, "batch write " + (i + 1)));
+		}
+
+		Thread reporter = null;
+		if (reportSeconds > 0) {
+			reporter = new Thread(() -> {
+				try {
+					while (true) {
+						Thread.sleep(reportSeconds * 1000L);
+						System.out.println(stats.getProgress());
+					}
+				} catch (InterruptedException ex) {
+					// the batch is done
+				}
+			}, "batch report");
+			reporter.setDaemon(true);
+			reporter.start();
+		}
+		for (Thread thread : threads)
+			thread.start();
+		for (Thread thread : threads)
+			thread.join();
+		if (reporter != null)
+			reporter.interrupt();
+		stats.finish();
+		return stats;
+	}
+
+	/**
+	 * Method to load and decode a picture, converted to int pixels so the
+	 * transform stage only transforms
+	 *
+	 * @param job   the picture to read
+	 * @param stats the stats to add the time to
+	 * @return true if it was read
+	 */
+	private static boolean read(Job job, BatchStats stats) {
+		long start = System.nanoTime();
+		job.started = start;
+		try {
+			Picture picture = new Picture();
+			picture.loadOrFail(job.input.getPath());
+			if (picture.getBufferedImage() == null)
+				throw new IOException("there is no reader for " + job.input);
+			job.picture = picture;
+			picture.getRaster();
+			job.bytesRead = job.input.length();
+			stats.read.add(System.nanoTime() - start);
+			return true;
+		} catch (Throwable ex) {
+			// even an OutOfMemoryError only loses this picture
+			stats.failed(job, ex);
+			return false;
+		}
+	}
+
+	/**
+	 * Method to blur or quantize a picture. A picture written as a JPEG at a
+	 * quality is left as it is, since the encoder quantizes it.
+	 *
+	 * @param job    the picture to transform
+	 * @param engine the engine of this thread
+	 * @param stats  the stats to add the time to
+	 * @return true if it was transformed
+	 */
+	private boolean transform(Job job, DctEngine engine, BatchStats stats) {
+		long start = System.nanoTime();
+		try {
+			Picture picture = job.picture;
+			picture.setDctEngine(engine);
+			if (quality == 0)
+				picture.idctBlur(picture.dct(CoefficientImage.Storage.FLOAT));
+			else if (!isJpeg(job.output))
+				picture.quantize(quality);
+			stats.transform.add(System.nanoTime() - start);
+			return true;
+		} catch (Throwable ex) {
+			stats.failed(job, ex);
+			return false;
+		}
+	}
+
+	/**
+	 * Method to encode and write a picture
+	 *
+	 * @param job    the picture to write
+	 * @param engine the engine of this thread, for JPEG outputs
+	 * @param stats  the stats to add the time and sizes to
+	 */
+	private void write(Job job, DctEngine engine, BatchStats stats) {
+		long start = System.nanoTime();
+		try {
+			File directory = job.output.getParentFile();
+			if (directory != null && !directory.isDirectory() && !directory.mkdirs() && !directory.isDirectory())
+				throw new IOException(directory + " could not be made");
+			if (quality != 0 && isJpeg(job.output)) {
+				job.picture.setDctEngine(engine);
+				job.picture.writeJpegOrFail(job.output.getPath(), quality);
+			} else
+				job.picture.writeOrFail(job.output.getPath());
+			if (job.output.length() == 0)
+				throw new IOException("nothing was written to " + job.output);
+			long end = System.nanoTime();
+			stats.write.add(end - start);
+			stats.total.add(end - job.started);
+			stats.done(job.bytesRead, job.output.length());
+		} catch (Throwable ex) {
+			stats.failed(job, ex);
+		}
+		// let the pixels go while the next picture is read
+		job.picture = null;
+	}
+
+	/**
+	 * Method to tell if a picture is written as a JPEG
+	 *
+	 * @param output the file to write
+	 * @return true if it ends in .jpg or .jpeg
+	 */
+	private static boolean isJpeg(File output) {
+		String name = output.getName().toLowerCase(Locale.ROOT);
+		return name.endsWith(".jpg") || name.endsWith(".jpeg");
+	}
+
+	/**
+	 * Method to put on a queue, waiting for room however long it takes
+	 *
+	 * @param queue the queue
+	 * @param job   the job to put
+	 */
+	private static void putUninterruptibly(BlockingQueue<Job> queue, Job job) {
+		boolean interrupted = false;
+		while (true) {
+			try {
+				queue.put(job);
+				break;
+			} catch (InterruptedException ex) {
+				interrupted = true;
+			}
+		}
+		if (interrupted)
+			Thread.currentThread().interrupt();
+	}
+
+	/**
+	 * Method to take from a queue, waiting for a job however long it takes
+	 *
+	 * @param queue the queue
+	 * @return the job
+	 */
+	private static Job takeUninterruptibly(BlockingQueue<Job> queue) {
+		boolean interrupted = false;
+		try {
+			while (true) {
+				try {
+					return queue.take();
+				} catch (InterruptedException ex) {
+					interrupted = true;
+				}
+			}
+		} finally {
+			if (interrupted)
+				Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * The pictures to process and the directory their names are relative to
+	 */
+	public static class Inputs {
+		/** the directory the names are relative to */
+		private final File directory;
+
+		/** the pictures */
+		private final List<File> files;
+
+		/**
+		 * Constructor that takes the directory and the pictures
+		 *
+		 * @param directory the directory the names are relative to
+		 * @param files     the pictures, in or under the directory
+		 */
+		public Inputs(File directory, List<File> files) {
+			this.directory = directory;
+			this.files = Collections.unmodifiableList(new ArrayList<File>(files));
+		}
+
+		/**
+		 * Method to get the directory the names are relative to
+		 *
+		 * @return the directory
+		 */
+		public File getDirectory() {
+			return directory;
+		}
+
+		/**
+		 * Method to get the pictures
+		 *
+		 * @return the pictures
+		 */
+		public List<File> getFiles() {
+			return files;
+		}
+	}
+
+	/**
+	 * A picture going through the stages
+	 */
+	private static class Job {
+		/** the job after the last picture */
+		static final Job END = new Job(null, null);
+
+		/** the file to read */
+		final File input;
+
+		/** the file to write */
+		final File output;
+
+		/** the picture, from reading until it is written */
+		Picture picture;
+
+		/** the size of the input file */
+		long bytesRead;
+
+		/** when reading started */
+		long started;
+
+		Job(File input, File output) {
+			this.input = input;
+			this.output = output;
+		}
+	}
+
+	/**
+	 * The times one stage took, one for each picture
+	 */
+	public static class StageTimes {
+		/** the name of the stage */
+		private final String name;
+
+		/** the times in nanoseconds */
+		private long[] nanos = new long[64];
+
+		/** the number of times */
+		private int count;
+
+		/**
+		 * Constructor that takes the name of the stage
+		 *
+		 * @param name the name
+		 */
+		StageTimes(String name) {
+			this.name = name;
+		}
+
+		/**
+		 * Method to add the time for a picture
+		 *
+		 * @param elapsed the time in nanoseconds
+		 */
+		synchronized void add(long elapsed) {
+			if (count == nanos.length)
+				nanos = Arrays.copyOf(nanos, 2 * count);
+			nanos[count++] = elapsed;
+		}
+
+		/**
+		 * Method to get the number of pictures timed
+		 *
+		 * @return the number of pictures
+		 */
+		public synchronized int getCount() {
+			return count;
+		}
+
+		/**
+		 * Method to get the mean time
+		 *
+		 * @return the mean in milliseconds, or 0 if nothing was timed
+		 */
+		public synchronized double getMeanMillis() {
+			long sum = 0;
+			for (int i = 0; i < count; i++)
+				sum += nanos[i];
+			return count == 0 ? 0 : sum / 1e6 / count;
+		}
+
+		/**
+		 * Method to get a percentile of the times
+		 *
+		 * @param percent the percentile from 0 to 100
+		 * @return the time in milliseconds, or 0 if nothing was timed
+		 */
+		public synchronized double getPercentileMillis(double percent) {
+			if (count == 0)
+				return 0;
+			long[] sorted = Arrays.copyOf(nanos, count);
+			Arrays.sort(sorted);
+			int index = (int) Math.ceil(percent / 100 * count) - 1;
+			return sorted[Math.max(0, Math.min(count - 1, index))] / 1e6;
+		}
+
+		/**
+		 * Method to return a string with the times
+		 *
+		 * @return a string with the mean, median, 95th percentile and most
+		 */
+		public String toString() {
+			return String.format(Locale.ROOT, "%-9s mean %8.2f ms  p50 %8.2f ms  p95 %8.2f ms  max %8.2f ms", name,
+					getMeanMillis(), getPercentileMillis(50), getPercentileMillis(95), getPercentileMillis(100));
+		}
+	}
+
+	/**
+	 * The totals of a batch and the times of its stages
+	 */
+	public static class BatchStats {
+		/** the time reading and decoding took */
+		private final StageTimes read = new StageTimes("read");
+
+		/** the time transforming took */
+		private final StageTimes transform = new StageTimes("transform");
+
+		/** the time encoding and writing took */
+		private final StageTimes write = new StageTimes("write");
+
+		/** the time from the start of reading to the end of writing */
+		private final StageTimes total = new StageTimes("total");
+
+		/** the number of pictures to process */
+		private final int pictures;
+
+		/** the number of pictures written */
+		private final AtomicInteger done = new AtomicInteger();
+
+		/** the number of pictures that failed */
+		private final AtomicInteger failures = new AtomicInteger();
+
+		/** the bytes of the files read for the pictures written */
+		private final AtomicLong bytesRead = new AtomicLong();
+
+		/** the bytes of the files written */
+		private final AtomicLong bytesWritten = new AtomicLong();
+
+		/** when the batch started */
+		private final long started = System.nanoTime();
+
+		/** how long the batch took, once it is finished */
+		private volatile long elapsed = -1;
+
+		/**
+		 * Constructor that takes the number of pictures
+		 *
+		 * @param pictures the number of pictures to process
+		 */
+		BatchStats(int pictures) {
+			this.pictures = pictures;
+		}
+
+		/**
+		 * Method to count a written picture
+		 *
+		 * @param read    the size of the file read
+		 * @param written the size of the file written
+		 */
+		void done(long read, long written) {
+			bytesRead.addAndGet(read);
+			bytesWritten.addAndGet(written);
+			done.incrementAndGet();
+		}
+
+		/**
+		 * Method to count and report a picture that failed
+		 *
+		 * @param job     the picture
+		 * @param problem what went wrong
+		 */
+		void failed(Job job, Throwable problem) {
+			failures.incrementAndGet();
+			job.picture = null;
+			System.err.println("could not process " + job.input + ": " + problem);
+		}
+
+		/**
+		 * Method to stop the clock
+		 */
+		void finish() {
+			elapsed = System.nanoTime() - started;
+		}
+
+		/**
+		 * Method to get the time taken so far, or in all once finished
+		 *
+		 * @return the time in seconds
+		 */
+		public double getSeconds() {
+			long nanos = elapsed;
+			return (nanos < 0 ? System.nanoTime() - started : nanos) / 1e9;
+		}
+
+		/**
+		 * Method to get the number of pictures written
+		 *
+		 * @return the number of pictures
+		 */
+		public int getDone() {
+			return done.get();
+		}
+
+		/**
+		 * Method to get the number of pictures that failed
+		 *
+		 * @return the number of pictures
+		 */
+		public int getFailures() {
+			return failures.get();
+		}
+
+		/**
+		 * Method to get the pictures written per second
+		 *
+		 * @return the pictures per second
+		 */
+		public double getPicturesPerSecond() {
+			return done.get() / getSeconds();
+		}
+
+		/**
+		 * Method to get the megabytes of files read per second for the pictures
+		 * written
+		 *
+		 * @return the megabytes per second
+		 */
+		public double getMegabytesPerSecond() {
+			return bytesRead.get() / 1e6 / getSeconds();
+		}
+
+		/**
+		 * Method to get the times of a stage
+		 *
+		 * @param stage read, transform, write or total
+		 * @return the times
+		 */
+		public StageTimes getStage(String stage) {
+			switch (stage) {
+			case "read":
+				return read;
+			case "transform":
+				return transform;
+			case "write":
+				return write;
+			case "total":
+				return total;
+			default:
+				throw new IllegalArgumentException("there is no stage " + stage);
+			}
+		}
+
+		/**
+		 * Method to get a line with the progress so far
+		 *
+		 * @return a string with the pictures done and the speed
+		 */
+		public String getProgress() {
+			return String.format(Locale.ROOT, "%d of %d pictures, %d failed, %.1f pictures/s, %.2f MB/s",
+					done.get(), pictures, failures.get(), getPicturesPerSecond(), getMegabytesPerSecond());
+		}
+
+		/**
+		 * Method to return a string with the summary
+		 *
+		 * @return the progress, the sizes and the times of each stage
+		 */
+		public String toString() {
+			return String.format(Locale.ROOT, "%s in %.2f s%n%.2f MB read, %.2f MB written%n%s%n%s%n%s%n%s",
+					getProgress(), getSeconds(), bytesRead.get() / 1e6, bytesWritten.get() / 1e6, read, transform,
+					write, total);
+		}
+	}
+
+	/**
+	 * Method to print how to run the batch and exit
+	 */
+	private static void usage() {
+		System.err.println("usage: java BatchRunner [-io n] [-cpu n] [-queue n] [-quality q] [-report s]"
+				+ " input-directory-or-glob output-directory");
+		System.exit(2);
+	}
+
+	/**
+	 * Main method that runs a batch from the command line and exits with 1 if
+	 * any picture failed
+	 *
+	 * @param args the options, the input and the output directory
+	 */
+	public static void main(String[] args) throws Exception {
+		BatchRunner runner = new BatchRunner();
+		int arg = 0;
+		try {
+			for (; arg < args.length && args[arg].startsWith("-"); arg += 2) {
+				if (arg + 1 >= args.length)
+					usage();
+				int value = Integer.parseInt(args[arg + 1]);
+				switch (args[arg]) {
+				case "-io":
+					runner.setIoThreads(value);
+					break;
+				case "-cpu":
+					runner.setCpuThreads(value);
+					break;
+				case "-queue":
+					runner.setQueueSize(value);
+					break;
+				case "-quality":
+					runner.setQuality(value);
+					break;
+				case "-report":
+					runner.setReportSeconds(value);
+					break;
+				default:
+					usage();
+				}
+			}
+		} catch (IllegalArgumentException ex) {
+			System.err.println(ex.getMessage());
+			usage();
+		}
+		if (args.length - arg != 2)
+			usage();
+		Inputs inputs = findInputs(args[arg]);
+		System.out.println(inputs.getFiles().size() + " pictures in " + inputs.getDirectory());
+		BatchStats stats = runner.run(inputs, new File(args[arg + 1]));
+		System.out.println(stats);
+		System.exit(stats.getFailures() > 0 ? 1 : 0);
+	}
+}
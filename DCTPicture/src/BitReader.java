@@ -0,0 +1,216 @@
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * A class that reads bits, most significant first, from a channel through a
+ * buffer. In JPEG mode a 0xFF 0x00 in the coded bits is read as 0xFF, and any
+ * other byte after a 0xFF is a marker: the reader stops there, remembers the
+ * marker and reads zero bits until it is told to go on. Headers can be read a
+ * byte at a time between runs of bits.
+ * 
+ * The bit methods are called from inside the Huffman decoder, which can't
+ * throw checked exceptions, so they throw an UncheckedIOException that
+ * wraps the IOException.
+ */
+public class BitReader {
+	/** the size of the buffer */
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	/** the most zero bytes that can be read past the end before giving up */
+	private static final int MAX_PADDING = 16;
+
+	/** the channel to read from */
+	private final ReadableByteChannel channel;
+
+	/** the buffer of bytes read from the channel and not used yet */
+	private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+	/** whether the bits are stuffed and can end at a marker */
+	private final boolean jpeg;
+
+	/** the bits read and not used yet, in the low count bits */
+	private long accumulator;
+
+	/** the number of bits in the accumulator */
+	private int count;
+
+	/** the marker that ended the coded bits, or -1 */
+	private int marker = -1;
+
+	/** the number of zero bytes made up after the end of the bits */
+	private int padding;
+
+	/** the number of bytes taken from the channel */
+	private long bytesRead;
+
+	/**
+	 * Constructor that takes the channel to read from
+	 * 
+	 * @param channel the channel
+	 * @param jpeg    true if the bits are stuffed and end at a marker
+	 */
+	public BitReader(ReadableByteChannel channel, boolean jpeg) {
+		this.channel = channel;
+		this.jpeg = jpeg;
+		buffer.flip();
+	}
+
+	/**
+	 * Method to look at the next bits without using them
+	 * 
+	 * @param length the number of bits (1 to 24)
+	 * @return the bits
+	 */
+	public int peekBits(int length) {
+		if (count < length)
+			fill();
+		return (int) (accumulator >>> (count - length)) & ((1 << length) - 1);
+	}
+
+	/**
+	 * Method to use bits that were looked at
+	 * 
+	 * @param length the number of bits
+	 */
+	public void skipBits(int length) {
+		count -= length;
+	}
+
+	/**
+	 * Method to read bits
+	 * 
+	 * @param length the number of bits (0 to 24)
+	 * @return the bits
+	 */
+	public int readBits(int length) {
+		if (length == 0)
+			return 0;
+		int bits = peekBits(length);
+		count -= length;
+		return bits;
+	}
+
+	/**
+	 * Method to drop the bits up to the next whole byte
+	 */
+	public void alignToByte() {
+		count -= count & 7;
+	}
+
+	/**
+	 * Method to read a byte of a header (after aligning to a whole byte)
+	 * 
+	 * @return the byte from 0 to 255
+	 * @throws IOException if the channel ends or can't be read
+	 */
+	public int readByte() throws IOException {
+		alignToByte();
+		if (count >= 8) {
+			count -= 8;
+			return (int) (accumulator >>> count) & 0xff;
+		}
+		int b = rawByte();
+		if (b < 0)
+			throw new EOFException("the file ended early");
+		return b;
+	}
+
+	/**
+	 * Method to read a short of a header, most significant byte first
+	 * 
+	 * @return the short from 0 to 65535
+	 * @throws IOException if the channel ends or can't be read
+	 */
+	public int readShort() throws IOException {
+		return (readByte() << 8) | readByte();
+	}
+
+	/**
+	 * Method to read an int of a header, most significant byte first
+	 * 
+	 * @return the int
+	 * @throws IOException if the channel ends or can't be read
+	 */
+	public int readInt() throws IOException {
+		return (readShort() << 16) | readShort();
+	}
+
+	/**
+	 * Method to get the marker that ended the coded bits
+	 * 
+	 * @return the marker byte (the one after the 0xFF), or -1 if there wasn't one
+	 */
+	public int getMarker() {
+		return marker;
+	}
+
+	/**
+	 * Method to go on past the marker that ended the coded bits (such as a
+	 * restart marker), dropping the padding bits before it
+	 */
+	public void clearMarker() {
+		marker = -1;
+		padding = 0;
+		count = 0;
+	}
+
+	/**
+	 * Method to get the number of bytes taken from the channel
+	 * 
+	 * @return the number of bytes
+	 */
+	public long getBytesRead() {
+		return bytesRead;
+	}
+
+	/**
+	 * Method to fill the accumulator with as many whole bytes as it holds
+	 */
+	private void fill() {
+		try {
+			while (count <= 56) {
+				int b = (marker >= 0) ? -1 : rawByte();
+				if (b == 0xff && jpeg) {
+					int next = rawByte();
+					if (next != 0) {
+						// a marker ends the coded bits
+						marker = next;
+						b = -1;
+					}
+				}
+				if (b < 0) {
+					if (++padding > MAX_PADDING)
+						throw new EOFException("the coded bits ended early");
+					b = 0;
+				}
+				accumulator = (accumulator << 8) | b;
+				count += 8;
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Method to get the next byte from the channel
+	 * 
+	 * @return the byte, or -1 at the end of the channel
+	 * @throws IOException if the channel can't be read
+	 */
+	private int rawByte() throws IOException {
+		if (!buffer.hasRemaining()) {
+			buffer.clear();
+			int read = 0;
+			while (read == 0)
+				read = channel.read(buffer);
+			buffer.flip();
+			if (read < 0)
+				return -1;
+		}
+		bytesRead++;
+		return buffer.get() & 0xff;
+	}
+}
@@ -0,0 +1,152 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * A class that writes bits, most significant first, to a channel through a
+ * buffer, so the writer can stream a file of any size in a fixed amount of
+ * memory. In a JPEG entropy-coded segment every 0xFF byte has to be followed
+ * by a 0x00 so it can't be mistaken for a marker; the writer can do that
+ * stuffing itself. Whole bytes, shorts and ints (for headers) can be written
+ * between runs of bits, and are never stuffed.
+ */
+public class BitWriter {
+	/** the size of the buffer */
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	/** the channel to write to */
+	private final WritableByteChannel channel;
+
+	/** the buffer of bytes not yet written to the channel */
+	private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+	/** whether to put a 0x00 after each 0xFF of coded bits */
+	private final boolean stuffing;
+
+	/** the bits not yet made into a byte, in the low count bits */
+	private long accumulator;
+
+	/** the number of bits in the accumulator (0 to 7 between calls) */
+	private int count;
+
+	/** the number of bytes handed to the channel so far */
+	private long bytesWritten;
+
+	/**
+	 * Constructor that takes the channel to write to
+	 * 
+	 * @param channel  the channel
+	 * @param stuffing true to stuff a 0x00 after each 0xFF of coded bits
+	 */
+	public BitWriter(WritableByteChannel channel, boolean stuffing) {
+		this.channel = channel;
+		this.stuffing = stuffing;
+	}
+
+	/**
+	 * Method to write the low bits of a value
+	 * 
+	 * @param value  the value
+	 * @param length the number of bits to write (0 to 24)
+	 * @throws IOException if the channel can't be written
+	 */
+	public void writeBits(int value, int length) throws IOException {
+		accumulator = (accumulator << length) | (value & ((1 << length) - 1));
+		count += length;
+		while (count >= 8) {
+			count -= 8;
+			int b = (int) (accumulator >>> count) & 0xff;
+			put(b);
+			if (stuffing && b == 0xff)
+				put(0);
+		}
+	}
+
+	/**
+	 * Method to pad the bits written so far out to a whole byte with 1 bits
+	 * 
+	 * @throws IOException if the channel can't be written
+	 */
+	public void alignToByte() throws IOException {
+		if (count > 0)
+			writeBits(0xff, 8 - count);
+	}
+
+	/**
+	 * Method to write a byte (after any bits, which are padded to a whole byte)
+	 * 
+	 * @param value the byte in the low 8 bits
+	 * @throws IOException if the channel can't be written
+	 */
+	public void writeByte(int value) throws IOException {
+		alignToByte();
+		put(value & 0xff);
+	}
+
+	/**
+	 * Method to write a short, most significant byte first
+	 * 
+	 * @param value the short in the low 16 bits
+	 * @throws IOException if the channel can't be written
+	 */
+	public void writeShort(int value) throws IOException {
+		writeByte(value >> 8);
+		writeByte(value);
+	}
+
+	/**
+	 * Method to write an int, most significant byte first
+	 * 
+	 * @param value the int
+	 * @throws IOException if the channel can't be written
+	 */
+	public void writeInt(int value) throws IOException {
+		writeShort(value >> 16);
+		writeShort(value);
+	}
+
+	/**
+	 * Method to pad the bits to a whole byte and hand everything in the buffer to
+	 * the channel
+	 * 
+	 * @throws IOException if the channel can't be written
+	 */
+	public void flush() throws IOException {
+		alignToByte();
+		drain();
+	}
+
+	/**
+	 * Method to get the number of bytes written, including the ones still in the
+	 * buffer
+	 * 
+	 * @return the number of bytes
+	 */
+	public long getBytesWritten() {
+		return bytesWritten + buffer.position();
+	}
+
+	/**
+	 * Method to put a byte in the buffer, draining it first if it is full
+	 * 
+	 * @param b the byte
+	 * @throws IOException if the channel can't be written
+	 */
+	private void put(int b) throws IOException {
+		if (!buffer.hasRemaining())
+			drain();
+		buffer.put((byte) b);
+	}
+
+	/**
+	 * Method to write the whole buffer to the channel
+	 * 
+	 * @throws IOException if the channel can't be written
+	 */
+	private void drain() throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining())
+			bytesWritten += channel.write(buffer);
+		buffer.clear();
+	}
+}
@@ -0,0 +1,146 @@
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * A class that runs work on the 8x8 blocks of a picture in parallel. The rows
+ * of blocks are split into bands and the bands are run on a ForkJoinPool, so
+ * idle threads steal bands from busy ones. Each block is still computed by
+ * exactly one thread in the same way, so the results are the same as running
+ * the bands one after the other. Small pictures are always run on the calling
+ * thread since splitting them costs more than it saves.
+ *
+ * Schedulers with the same number of threads share one pool, so making a new
+ * scheduler (as DctEngine.setParallelism() does) doesn't start new threads.
+ * The pools live for the whole program; their threads are daemons, so they
+ * don't keep it from exiting.
+ */
+public class BlockScheduler {
+	/**
+	 * Interface to describe the work done on a band of block rows
+	 */
+	public interface BandTask {
+		public void run(int firstBlockRow, int lastBlockRow); // do the block rows from first up to (not including) last
+	}
+
+	/** the fewest blocks that are worth running in parallel */
+	public static final int MIN_PARALLEL_BLOCKS = 256;
+
+	/** the number of bands to make for each thread so that stealing can balance them */
+	private static final int BANDS_PER_THREAD = 4;
+
+	/** the pools made so far, by number of threads */
+	private static final Map<Integer, ForkJoinPool> POOLS = new HashMap<Integer, ForkJoinPool>();
+
+	/** the number of threads to use */
+	private int parallelism;
+
+	/** the pool to run the bands on (created when first needed) */
+	private ForkJoinPool pool;
+
+	/**
+	 * Constructor that uses the common pool with one thread per processor
+	 */
+	public BlockScheduler() {
+		this.parallelism = ForkJoinPool.getCommonPoolParallelism();
+		this.pool = ForkJoinPool.commonPool();
+	}
+
+	/**
+	 * Constructor that takes the number of threads to use
+	 * 
+	 * @param parallelism the number of threads, 1 to run everything on the calling
+	 *                    thread
+	 */
+	public BlockScheduler(int parallelism) {
+		if (parallelism < 1)
+			throw new IllegalArgumentException("parallelism must be at least 1 but was " + parallelism);
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * Method to get the number of threads used
+	 * 
+	 * @return the number of threads
+	 */
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	/**
+	 * Method to run the passed task over all the block rows and wait for it to
+	 * finish
+	 * 
+	 * @param blockRows    the number of rows of blocks
+	 * @param blockColumns the number of columns of blocks
+	 * @param task         the task to run on each band
+	 */
+	public void run(int blockRows, int blockColumns, BandTask task) {
+		if (parallelism == 1 || blockRows < 2 || (long) blockRows * blockColumns < MIN_PARALLEL_BLOCKS) {
+			task.run(0, blockRows);
+			return;
+		}
+		int grain = Math.max(1, blockRows / (parallelism * BANDS_PER_THREAD));
+		getPool().invoke(new BandAction(task, 0, blockRows, grain));
+	}
+
+	/**
+	 * Method to get the pool, the one shared by every scheduler with this
+	 * number of threads, creating it the first time
+	 * 
+	 * @return the pool
+	 */
+	private synchronized ForkJoinPool getPool() {
+		if (pool == null)
+			pool = sharedPool(parallelism);
+		return pool;
+	}
+
+	/**
+	 * Method to get the pool for a number of threads, creating it the first
+	 * time
+	 * 
+	 * @param parallelism the number of threads
+	 * @return the pool
+	 */
+	private static ForkJoinPool sharedPool(int parallelism) {
+		synchronized (POOLS) {
+			ForkJoinPool shared = POOLS.get(parallelism);
+			if (shared == null) {
+				shared = new ForkJoinPool(parallelism);
+				POOLS.put(parallelism, shared);
+			}
+			return shared;
+		}
+	}
+
+	/**
+	 * A fork/join action that splits a range of block rows in half until it is no
+	 * more than the grain and then runs the task on it
+	 */
+	private static class BandAction extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final BandTask task;
+		private final int first;
+		private final int last;
+		private final int grain;
+
+		BandAction(BandTask task, int first, int last, int grain) {
+			this.task = task;
+			this.first = first;
+			this.last = last;
+			this.grain = grain;
+		}
+
+		protected void compute() {
+			if (last - first <= grain) {
+				task.run(first, last);
+				return;
+			}
+			int middle = (first + last) >>> 1;
+			invokeAll(new BandAction(task, first, middle, grain), new BandAction(task, middle, last, grain));
+		}
+	}
+}
@@ -0,0 +1,67 @@
+/**
+ * The ways the chroma (Cb and Cr) of a YCbCrImage can be subsampled. The eye
+ * sees much less detail in color than in brightness, so the chroma can be kept
+ * at half the width, or half the width and height, of the luma (Y) with little
+ * visible loss. A minimum coded unit (MCU) is the area of pixels covered by one
+ * chroma block: horizontal x vertical luma blocks.
+ */
+public enum ChromaSubsampling {
+	/** chroma at full resolution */
+	S444(1, 1),
+	/** chroma at half the width */
+	S422(2, 1),
+	/** chroma at half the width and half the height */
+	S420(2, 2);
+
+	/** the number of luma blocks across an MCU */
+	private final int horizontal;
+
+	/** the number of luma blocks down an MCU */
+	private final int vertical;
+
+	/**
+	 * Constructor that takes the number of luma blocks across and down an MCU
+	 * 
+	 * @param horizontal the luma blocks across
+	 * @param vertical   the luma blocks down
+	 */
+	private ChromaSubsampling(int horizontal, int vertical) {
+		this.horizontal = horizontal;
+		this.vertical = vertical;
+	}
+
+	/**
+	 * Method to get the number of luma blocks across an MCU (the horizontal
+	 * sampling factor of the luma)
+	 * 
+	 * @return the luma blocks across
+	 */
+	public int getHorizontal() {
+		return horizontal;
+	}
+
+	/**
+	 * Method to get the number of luma blocks down an MCU (the vertical sampling
+	 * factor of the luma)
+	 * 
+	 * @return the luma blocks down
+	 */
+	public int getVertical() {
+		return vertical;
+	}
+
+	/**
+	 * Method to get the subsampling with the passed luma sampling factors
+	 * 
+	 * @param horizontal the luma blocks across an MCU
+	 * @param vertical   the luma blocks down an MCU
+	 * @return the subsampling
+	 */
+	public static ChromaSubsampling forFactors(int horizontal, int vertical) {
+		for (ChromaSubsampling subsampling : values()) {
+			if (subsampling.horizontal == horizontal && subsampling.vertical == vertical)
+				return subsampling;
+		}
+		throw new IllegalArgumentException("unsupported sampling factors " + horizontal + "x" + vertical);
+	}
+}
@@ -0,0 +1,260 @@
+import java.util.Arrays;
+
+/**
+ * A class that changes the tone and sharpness of a picture by changing its
+ * discrete cosine transform coefficients, so any number of changes cost one
+ * pass over the coefficients and one inverse transform instead of a pass over
+ * the pixels for each. Adding to every pixel only changes the DC coefficient
+ * of each block, a contrast change scales every coefficient around mid gray,
+ * and blurring or sharpening weights each frequency. Each method returns a new
+ * filter that does this filter and then the new change, so they can be
+ * chained:
+ *
+ * <pre>
+ * new CoefficientFilter().brightness(20).contrast(1.2).sharpen(0.5).apply(coefficients);
+ * </pre>
+ *
+ * A filter is the same for every block: for each frequency a gain for the
+ * luma and a gain for the chroma (the differences of the colors from the
+ * luma), plus a shift of the luma DC. Red, green and blue coefficients are
+ * split into luma and chroma for each coefficient (the transform is linear, so
+ * that can be done on coefficients), so a filter does the same to a red,
+ * green and blue image as to a YCbCr one. The blurs and sharpens only see
+ * inside each block, so strong ones show the block edges.
+ */
+public class CoefficientFilter {
+	/** the DC coefficient of a block where every sample is 128 (mid gray) */
+	private static final double MID_GRAY = CoefficientImage.DC_OFFSET;
+
+	/** the gain of each frequency of the luma, in row-major order */
+	private final double[] lumaGains;
+
+	/**
+	 * the amount added to the luma DC coefficient after it is scaled around mid
+	 * gray by its gain
+	 */
+	private final double lumaShift;
+
+	/** the gain of each frequency of the chroma, in row-major order */
+	private final double[] chromaGains;
+
+	/**
+	 * Constructor that makes a filter that doesn't change anything
+	 */
+	public CoefficientFilter() {
+		this(ones(), 0, ones());
+	}
+
+	/**
+	 * Constructor that takes the gains and shift
+	 *
+	 * @param lumaGains   the gain of each frequency of the luma
+	 * @param lumaShift   the amount added to the luma DC coefficient
+	 * @param chromaGains the gain of each frequency of the chroma
+	 */
+	private CoefficientFilter(double[] lumaGains, double lumaShift, double[] chromaGains) {
+		this.lumaGains = lumaGains;
+		this.lumaShift = lumaShift;
+		this.chromaGains = chromaGains;
+	}
+
+	/**
+	 * Method to make 64 gains of 1
+	 *
+	 * @return the gains
+	 */
+	private static double[] ones() {
+		double[] gains = new double[64];
+		Arrays.fill(gains, 1);
+		return gains;
+	}
+
+	/**
+	 * Method to make a filter that does this one and then another change. The
+	 * change scales the luma around mid gray and then shifts it.
+	 *
+	 * @param luma   the gain of each luma frequency
+	 * @param shift  the amount added to the luma DC coefficient
+	 * @param chroma the gain of each chroma frequency
+	 * @return the new filter
+	 */
+	private CoefficientFilter then(double[] luma, double shift, double[] chroma) {
+		double[] newLuma = new double[64];
+		double[] newChroma = new double[64];
+		for (int k = 0; k < 64; k++) {
+			newLuma[k] = luma[k] * lumaGains[k];
+			newChroma[k] = chroma[k] * chromaGains[k];
+		}
+		// g2 ((g1 (x - m) + m + s1) - m) + m + s2 = g2 g1 (x - m) + m + g2 s1 + s2
+		double newShift = luma[0] * lumaShift + shift;
+		return new CoefficientFilter(newLuma, newShift, newChroma);
+	}
+
+	/**
+	 * Method to add an amount to every color of every pixel
+	 *
+	 * @param amount the amount to add (-255 to 255)
+	 * @return the new filter
+	 */
+	public CoefficientFilter brightness(double amount) {
+		return then(ones(), 8 * amount, ones());
+	}
+
+	/**
+	 * Method to scale how far every color of every pixel is from mid gray
+	 * (128), like pixel = 128 + factor * (pixel - 128)
+	 *
+	 * @param factor the factor, less than 1 for less contrast and more than 1
+	 *               for more
+	 * @return the new filter
+	 */
+	public CoefficientFilter contrast(double factor) {
+		double[] gains = new double[64];
+		Arrays.fill(gains, factor);
+		return then(gains, 0, gains);
+	}
+
+	/**
+	 * Method to scale how far the colors of every pixel are from gray
+	 *
+	 * @param factor the factor, 0 for gray, 1 for no change and more than 1 for
+	 *               stronger colors
+	 * @return the new filter
+	 */
+	public CoefficientFilter saturation(double factor) {
+		double[] gains = new double[64];
+		Arrays.fill(gains, factor);
+		return then(ones(), 0, gains);
+	}
+
+	/**
+	 * Method to multiply each frequency of every block by a weight. The DC
+	 * weight scales the average of each block around mid gray.
+	 *
+	 * @param weights the 64 weights in row-major order
+	 * @return the new filter
+	 */
+	public CoefficientFilter weights(double[] weights) {
+		if (weights.length != 64)
+			throw new IllegalArgumentException("there must be 64 weights but there were " + weights.length);
+		return then(weights, 0, weights);
+	}
+
+	/**
+	 * Method to keep only the lowest frequencies of each block, the blur
+	 * idctBlur() does with 4
+	 *
+	 * @param keep the number of frequencies to keep in each direction (1 to 8)
+	 * @return the new filter
+	 */
+	public CoefficientFilter lowPass(int keep) {
+		double[] weights = new double[64];
+		for (int k = 0; k < 64; k++)
+			weights[k] = ((k >> 3) < keep && (k & 7) < keep) ? 1 : 0;
+		return weights(weights);
+	}
+
+	/**
+	 * Method to blur each block with a Gaussian, which weights each frequency
+	 * by how much a Gaussian of that width lets it through
+	 *
+	 * @param sigma the width of the Gaussian in pixels
+	 * @return the new filter
+	 */
+	public CoefficientFilter blur(double sigma) {
+		return weights(gaussian(sigma));
+	}
+
+	/**
+	 * Method to sharpen each block by boosting the frequencies a Gaussian of
+	 * one pixel takes out (an unsharp mask)
+	 *
+	 * @param amount how much to boost them, 0 for no change
+	 * @return the new filter
+	 */
+	public CoefficientFilter sharpen(double amount) {
+		double[] weights = gaussian(1);
+		for (int k = 0; k < 64; k++)
+			weights[k] = 1 + amount * (1 - weights[k]);
+		return weights(weights);
+	}
+
+	/**
+	 * Method to get how much a Gaussian lets each frequency of a block through.
+	 * Frequency u of a block is pi * u / 8 radians a pixel, and a Gaussian lets
+	 * w radians a pixel through by exp(-sigma^2 w^2 / 2).
+	 *
+	 * @param sigma the width of the Gaussian in pixels
+	 * @return the 64 weights in row-major order
+	 */
+	private static double[] gaussian(double sigma) {
+		double[] weights = new double[64];
+		for (int k = 0; k < 64; k++) {
+			double v = Math.PI * (k >> 3) / 8;
+			double u = Math.PI * (k & 7) / 8;
+			weights[k] = Math.exp(-sigma * sigma * (u * u + v * v) / 2);
+		}
+		return weights;
+	}
+
+	/**
+	 * Method to filter the coefficients of a red, green and blue image in place
+	 *
+	 * @param image the coefficients to change
+	 */
+	public void apply(CoefficientImage image) {
+		if (image.getChannels() != CoefficientImage.CHANNELS)
+			throw new IllegalArgumentException("the coefficients need " + CoefficientImage.CHANNELS
+					+ " channels but have " + image.getChannels());
+		double[] red = new double[64];
+		double[] green = new double[64];
+		double[] blue = new double[64];
+		for (int block = 0; block < image.getBlockCount(); block++) {
+			image.getBlock(block, 0, red);
+			image.getBlock(block, 1, green);
+			image.getBlock(block, 2, blue);
+			for (int k = 0; k < 64; k++) {
+				double luma = 0.299 * red[k] + 0.587 * green[k] + 0.114 * blue[k];
+				double newLuma = lumaGains[k] * luma;
+				if (k == 0)
+					newLuma += lumaShift + (1 - lumaGains[0]) * MID_GRAY;
+				double gain = chromaGains[k];
+				red[k] = newLuma + gain * (red[k] - luma);
+				green[k] = newLuma + gain * (green[k] - luma);
+				blue[k] = newLuma + gain * (blue[k] - luma);
+			}
+			image.setBlock(block, 0, red);
+			image.setBlock(block, 1, green);
+			image.setBlock(block, 2, blue);
+		}
+	}
+
+	/**
+	 * Method to filter the coefficients of a YCbCr image in place
+	 *
+	 * @param ycbcr the coefficients to change
+	 */
+	public void apply(YCbCrImage ycbcr) {
+		CoefficientImage luma = ycbcr.getLuma();
+		CoefficientImage chroma = ycbcr.getChroma();
+		double[] values = new double[64];
+		for (int block = 0; block < luma.getBlockCount(); block++) {
+			luma.getBlock(block, 0, values);
+			for (int k = 0; k < 64; k++)
+				values[k] *= lumaGains[k];
+			values[0] += lumaShift + (1 - lumaGains[0]) * MID_GRAY;
+			luma.setBlock(block, 0, values);
+		}
+		for (int block = 0; block < chroma.getBlockCount(); block++) {
+			for (int channel = 0; channel < 2; channel++) {
+				chroma.getBlock(block, channel, values);
+				// the chroma is centered on 128 too
+				values[0] -= MID_GRAY;
+				for (int k = 0; k < 64; k++)
+					values[k] *= chromaGains[k];
+				values[0] += MID_GRAY;
+				chroma.setBlock(block, channel, values);
+			}
+		}
+	}
+}
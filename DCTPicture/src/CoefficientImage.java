@@ -0,0 +1,891 @@
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+/**
+ * A class that holds the discrete cosine transform coefficients of a picture:
+ * one coefficient for each pixel of each channel. The channels are usually
+ * red, green and blue, but the luma and chroma planes of a YCbCrImage have one
+ * and two. The coefficients are stored block by block in one flat array: the
+ * 64 coefficients of a channel of a block are next to each other, and the
+ * channels of a block are next to each other, so transforming a block touches
+ * one short run of memory. The blocks are in row-major order. A picture that
+ * isn't a multiple of 8 wide or high gets whole blocks at its right and bottom
+ * edges.
+ * 
+ * The coefficients can be stored as doubles, as floats (half the memory) or
+ * as shorts (a quarter of the memory). Short coefficients are rounded to whole
+ * multiples of the steps of a QuantizationTable and are transformed with fixed
+ * point arithmetic. The transforms read and write whole blocks in the storage type
+ * directly, so no storage type is ever copied into a wider one.
+ */
+public abstract class CoefficientImage {
+	/**
+	 * The ways the coefficients can be stored
+	 */
+	public enum Storage {
+		DOUBLE, FLOAT, SHORT
+	}
+
+	/** the number of channels of a color image (red, green and blue) */
+	public static final int CHANNELS = 3;
+
+	/** the number of coefficients in a block */
+	public static final int BLOCK_AREA = 64;
+
+	/** the DC coefficient of a block where every sample is 128 */
+	public static final int DC_OFFSET = 8 * 128;
+
+	/**
+	 * the zig-zag scan order, ZIGZAG[z] is the row-major index in a block of the
+	 * z-th coefficient from the lowest frequency to the highest
+	 */
+	public static final int[] ZIGZAG = { 0, 1, 8, 16, 9, 2, 3, 10, 17, 24, 32, 25, 18, 11, 4, 5, 12, 19, 26, 33, 40,
+			48, 41, 34, 27, 20, 13, 6, 7, 14, 21, 28, 35, 42, 49, 56, 57, 50, 43, 36, 29, 22, 15, 23, 30, 37, 44, 51,
+			58, 59, 52, 45, 38, 31, 39, 46, 53, 60, 61, 54, 47, 55, 62, 63 };
+
+	/** the width in coefficients */
+	protected final int width;
+
+	/** the height in coefficients */
+	protected final int height;
+
+	/** the number of blocks across */
+	protected final int blocksWide;
+
+	/** the number of blocks down */
+	protected final int blocksHigh;
+
+	/** the number of channels */
+	protected final int channels;
+
+	/**
+	 * Constructor that takes the size
+	 *
+	 * @param width    the width in coefficients
+	 * @param height   the height in coefficients
+	 * @param channels the number of channels
+	 */
+	protected CoefficientImage(int width, int height, int channels) {
+		if (channels < 1)
+			throw new IllegalArgumentException("an image needs at least 1 channel but had " + channels);
+		this.channels = channels;
+		this.width = width;
+		this.height = height;
+		this.blocksWide = (width + 7) / 8;
+		this.blocksHigh = (height + 7) / 8;
+	}
+
+	/**
+	 * Method to create an image of all zero coefficients with red, green and
+	 * blue channels
+	 *
+	 * @param storage the way to store the coefficients
+	 * @param width   the width in coefficients
+	 * @param height  the height in coefficients
+	 * @return the new image
+	 */
+	public static CoefficientImage create(Storage storage, int width, int height) {
+		return create(storage, width, height, CHANNELS);
+	}
+
+	/**
+	 * Method to create an image of all zero coefficients with the passed number
+	 * of channels
+	 *
+	 * @param storage  the way to store the coefficients
+	 * @param width    the width in coefficients
+	 * @param height   the height in coefficients
+	 * @param channels the number of channels
+	 * @return the new image
+	 */
+	public static CoefficientImage create(Storage storage, int width, int height, int channels) {
+		switch (storage) {
+		case FLOAT:
+			return new FloatImage(width, height, channels);
+		case SHORT:
+			QuantizationTable[] tables = new QuantizationTable[channels];
+			Arrays.fill(tables, QuantizationTable.uniform(1));
+			return createQuantized(width, height, tables);
+		default:
+			return new DoubleImage(width, height, channels);
+		}
+	}
+
+	/**
+	 * Method to create an image of short coefficients that are multiples of the
+	 * passed step
+	 *
+	 * @param width  the width in coefficients
+	 * @param height the height in coefficients
+	 * @param step   the quantization step (1 or more)
+	 * @return the new image
+	 */
+	public static CoefficientImage createQuantized(int width, int height, int step) {
+		if (step < 1)
+			throw new IllegalArgumentException("step must be at least 1 but was " + step);
+		return createQuantized(width, height, QuantizationTable.uniform(step));
+	}
+
+	/**
+	 * Method to create an image of short coefficients quantized by the same table
+	 * in each of the red, green and blue channels
+	 *
+	 * @param width  the width in coefficients
+	 * @param height the height in coefficients
+	 * @param table  the quantization table
+	 * @return the new image
+	 */
+	public static CoefficientImage createQuantized(int width, int height, QuantizationTable table) {
+		return createQuantized(width, height, new QuantizationTable[] { table, table, table });
+	}
+
+	/**
+	 * Method to create an image of short coefficients quantized by a table for
+	 * each channel. There is a channel for each table.
+	 *
+	 * @param width  the width in coefficients
+	 * @param height the height in coefficients
+	 * @param tables the quantization table of each channel
+	 * @return the new image
+	 */
+	public static CoefficientImage createQuantized(int width, int height, QuantizationTable[] tables) {
+		return new ShortImage(width, height, tables);
+	}
+
+	/**
+	 * Method to use an array of coefficients from dct() as an image without
+	 * copying it
+	 *
+	 * @param colorArray the coefficients as [color][row][col]
+	 * @return an image that reads and writes the array
+	 */
+	public static CoefficientImage wrap(double[][][] colorArray) {
+		return new ArrayImage(colorArray);
+	}
+
+	/**
+	 * Method to get the width
+	 *
+	 * @return the width in coefficients
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * Method to get the height
+	 *
+	 * @return the height in coefficients
+	 */
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * Method to get the number of channels
+	 *
+	 * @return the number of channels
+	 */
+	public int getChannels() {
+		return channels;
+	}
+
+	/**
+	 * Method to get the number of blocks across
+	 *
+	 * @return the number of blocks in a row of blocks
+	 */
+	public int getBlocksWide() {
+		return blocksWide;
+	}
+
+	/**
+	 * Method to get the number of blocks down
+	 *
+	 * @return the number of blocks in a column of blocks
+	 */
+	public int getBlocksHigh() {
+		return blocksHigh;
+	}
+
+	/**
+	 * Method to get the number of blocks
+	 *
+	 * @return the number of blocks
+	 */
+	public int getBlockCount() {
+		return blocksWide * blocksHigh;
+	}
+
+	/**
+	 * Method to get the index of the block at a row and column of blocks
+	 *
+	 * @param blockRow    the row of blocks
+	 * @param blockColumn the column of blocks
+	 * @return the block index
+	 */
+	public int getBlockIndex(int blockRow, int blockColumn) {
+		return blockRow * blocksWide + blockColumn;
+	}
+
+	/**
+	 * Method to get the way the coefficients are stored
+	 *
+	 * @return the storage
+	 */
+	public abstract Storage getStorage();
+
+	/**
+	 * Method to get one coefficient of a block
+	 *
+	 * @param block   the block index
+	 * @param channel the channel (0 red, 1 green, 2 blue)
+	 * @param k       the row-major index in the block (0 to 63)
+	 * @return the coefficient
+	 */
+	public abstract double getCoefficient(int block, int channel, int k);
+
+	/**
+	 * Method to set one coefficient of a block. It is rounded to the storage.
+	 *
+	 * @param block   the block index
+	 * @param channel the channel (0 red, 1 green, 2 blue)
+	 * @param k       the row-major index in the block (0 to 63)
+	 * @param value   the coefficient
+	 */
+	public abstract void setCoefficient(int block, int channel, int k, double value);
+
+	/**
+	 * Method to get one coefficient of a block in zig-zag order
+	 *
+	 * @param block   the block index
+	 * @param channel the channel (0 red, 1 green, 2 blue)
+	 * @param z       the zig-zag index (0 is DC, 63 the highest frequency)
+	 * @return the coefficient
+	 */
+	public double getZigZag(int block, int channel, int z) {
+		return getCoefficient(block, channel, ZIGZAG[z]);
+	}
+
+	/**
+	 * Method to set one coefficient of a block in zig-zag order
+	 *
+	 * @param block   the block index
+	 * @param channel the channel (0 red, 1 green, 2 blue)
+	 * @param z       the zig-zag index (0 is DC, 63 the highest frequency)
+	 * @param value   the coefficient
+	 */
+	public void setZigZag(int block, int channel, int z, double value) {
+		setCoefficient(block, channel, ZIGZAG[z], value);
+	}
+
+	/**
+	 * Method to get the coefficient at a row and column of the picture
+	 *
+	 * @param channel the channel (0 red, 1 green, 2 blue)
+	 * @param row     the row
+	 * @param col     the column
+	 * @return the coefficient
+	 */
+	public double get(int channel, int row, int col) {
+		return getCoefficient(getBlockIndex(row >> 3, col >> 3), channel, ((row & 7) << 3) | (col & 7));
+	}
+
+	/**
+	 * Method to set the coefficient at a row and column of the picture
+	 *
+	 * @param channel the channel (0 red, 1 green, 2 blue)
+	 * @param row     the row
+	 * @param col     the column
+	 * @param value   the coefficient
+	 */
+	public void set(int channel, int row, int col, double value) {
+		setCoefficient(getBlockIndex(row >> 3, col >> 3), channel, ((row & 7) << 3) | (col & 7), value);
+	}
+
+	/**
+	 * Method to copy the 64 coefficients of a block into an array
+	 *
+	 * @param block   the block index
+	 * @param channel the channel (0 red, 1 green, 2 blue)
+	 * @param values  the array to copy into in row-major order
+	 */
+	public abstract void getBlock(int block, int channel, double[] values);
+
+	/**
+	 * Method to set the 64 coefficients of a block from an array
+	 *
+	 * @param block   the block index
+	 * @param channel the channel (0 red, 1 green, 2 blue)
+	 * @param values  the coefficients in row-major order
+	 */
+	public abstract void setBlock(int block, int channel, double[] values);
+
+	/**
+	 * Method to copy the 64 coefficients of a block into an array of integers
+	 * (rounding them if they aren't stored as integers)
+	 *
+	 * @param block   the block index
+	 * @param channel the channel (0 red, 1 green, 2 blue)
+	 * @param values  the array to copy into in row-major order
+	 */
+	public void getBlock(int block, int channel, int[] values) {
+		for (int k = 0; k < BLOCK_AREA; k++)
+			values[k] = (int) Math.round(getCoefficient(block, channel, k));
+	}
+
+	/**
+	 * Method to set the 64 coefficients of a block from an array of integers
+	 *
+	 * @param block   the block index
+	 * @param channel the channel (0 red, 1 green, 2 blue)
+	 * @param values  the coefficients in row-major order
+	 */
+	public void setBlock(int block, int channel, int[] values) {
+		for (int k = 0; k < BLOCK_AREA; k++)
+			setCoefficient(block, channel, k, values[k]);
+	}
+
+	/**
+	 * Method to get the quantization table of a channel
+	 *
+	 * @param channel the channel (0 red, 1 green, 2 blue)
+	 * @return the table, or null if the coefficients aren't quantized
+	 */
+	public QuantizationTable getQuantization(int channel) {
+		return null;
+	}
+
+	/**
+	 * Method to copy the quantized levels of a block (each coefficient divided by
+	 * its quantization step) into an array. Coefficients that aren't quantized
+	 * are rounded. As in a JPEG file the levels are those of samples centered on
+	 * zero, so the DC coefficient has DC_OFFSET taken off before it is divided.
+	 *
+	 * @param block   the block index
+	 * @param channel the channel (0 red, 1 green, 2 blue)
+	 * @param levels  the array to copy into in row-major order
+	 */
+	public void getLevels(int block, int channel, int[] levels) {
+		getBlock(block, channel, levels);
+		levels[0] -= DC_OFFSET;
+	}
+
+	/**
+	 * Method to set the quantized levels of a block
+	 *
+	 * @param block   the block index
+	 * @param channel the channel (0 red, 1 green, 2 blue)
+	 * @param levels  the levels in row-major order
+	 */
+	public void setLevels(int block, int channel, int[] levels) {
+		int dc = levels[0];
+		levels[0] = dc + DC_OFFSET;
+		setBlock(block, channel, levels);
+		levels[0] = dc;
+	}
+
+	/**
+	 * Method to tell if the coefficients are whole numbers that should be inverse
+	 * transformed with fixed point arithmetic
+	 *
+	 * @return true if the coefficients are integers
+	 */
+	public boolean isInteger() {
+		return false;
+	}
+
+	/**
+	 * Method to get the coefficients as an array like the one from dct(). An
+	 * image from wrap() returns its array, any other image copies into a new one
+	 * that is rounded up to whole blocks.
+	 *
+	 * @return the coefficients as [color][row][col]
+	 */
+	public double[][][] toArray() {
+		int rows = blocksHigh * 8;
+		int cols = blocksWide * 8;
+		double[][][] colorArray = new double[channels][rows][cols];
+		for (int channel = 0; channel < channels; channel++) {
+			for (int row = 0; row < rows; row++) {
+				for (int col = 0; col < cols; col++)
+					colorArray[channel][row][col] = get(channel, row, col);
+			}
+		}
+		return colorArray;
+	}
+
+	/**
+	 * Method to make a picture from the coefficients of a red, green and blue
+	 * image at 1/1, 1/2, 1/4 or 1/8 of their size. The smaller sizes only
+	 * inverse transform the lowest frequencies of each block (the 1/8 picture is
+	 * just the DC coefficients), so a thumbnail costs a fraction of a full
+	 * inverse transform.
+	 *
+	 * @param denominator 1, 2, 4 or 8
+	 * @return the new picture
+	 */
+	public Picture toPicture(int denominator) {
+		// a new image is black, so there is nothing to clear before every pixel is set
+		Picture picture = new Picture(new BufferedImage((width + denominator - 1) / denominator,
+				(height + denominator - 1) / denominator, BufferedImage.TYPE_INT_RGB));
+		new DctEngine().inverseScaled(this, picture.getRaster(), denominator);
+		return picture;
+	}
+
+	/**
+	 * Method to make a new image of the same storage, channels and quantization
+	 * as this one
+	 *
+	 * @param width      the width of the new image
+	 * @param height     the height of the new image
+	 * @param transposed true to transpose the quantization tables, for blocks
+	 *                   that will be transposed
+	 * @return the new image, all zero
+	 */
+	CoefficientImage createLike(int width, int height, boolean transposed) {
+		if (getStorage() != Storage.SHORT)
+			return create(getStorage(), width, height, channels);
+		QuantizationTable[] tables = new QuantizationTable[channels];
+		for (int channel = 0; channel < channels; channel++)
+			tables[channel] = transposed ? getQuantization(channel).transpose() : getQuantization(channel);
+		return createQuantized(width, height, tables);
+	}
+
+	/**
+	 * Method to copy a block-aligned part of the image into a new image without
+	 * changing any coefficient
+	 *
+	 * @param x      the left edge of the part, a multiple of 8
+	 * @param y      the top edge of the part, a multiple of 8
+	 * @param width  the width of the part
+	 * @param height the height of the part
+	 * @return the new image
+	 */
+	public CoefficientImage crop(int x, int y, int width, int height) {
+		if (x % 8 != 0 || y % 8 != 0)
+			throw new IllegalArgumentException("a crop must start on a block edge but was at " + x + "," + y);
+		if (x < 0 || y < 0 || width < 1 || height < 1 || x + width > this.width || y + height > this.height)
+			throw new IllegalArgumentException("the crop " + width + "x" + height + " at " + x + "," + y
+					+ " isn't inside the image");
+		CoefficientImage cropped = createLike(width, height, false);
+		double[] values = new double[BLOCK_AREA];
+		for (int blockRow = 0; blockRow < cropped.getBlocksHigh(); blockRow++) {
+			for (int blockColumn = 0; blockColumn < cropped.getBlocksWide(); blockColumn++) {
+				int from = getBlockIndex(y / 8 + blockRow, x / 8 + blockColumn);
+				int to = cropped.getBlockIndex(blockRow, blockColumn);
+				for (int channel = 0; channel < channels; channel++) {
+					getBlock(from, channel, values);
+					cropped.setBlock(to, channel, values);
+				}
+			}
+		}
+		return cropped;
+	}
+
+	/**
+	 * Method to get a view of some rows of blocks as an image of their own, so
+	 * a band of a picture can be transformed into its place in this image. The
+	 * view shares the coefficients of this image.
+	 *
+	 * @param firstBlockRow the first row of blocks
+	 * @param blockRows     the number of rows of blocks
+	 * @return the view
+	 */
+	CoefficientImage blockRows(int firstBlockRow, int blockRows) {
+		return blockRegion(firstBlockRow, 0, blockRows, blocksWide);
+	}
+
+	/**
+	 * Method to get a view of a rectangle of blocks as an image of their own,
+	 * so a tile of a picture can be transformed into its place in this image.
+	 * The view shares the coefficients of this image.
+	 *
+	 * @param firstBlockRow    the first row of blocks
+	 * @param firstBlockColumn the first column of blocks
+	 * @param blockRows        the number of rows of blocks
+	 * @param blockColumns     the number of columns of blocks
+	 * @return the view
+	 */
+	CoefficientImage blockRegion(int firstBlockRow, int firstBlockColumn, int blockRows, int blockColumns) {
+		if (firstBlockRow < 0 || firstBlockColumn < 0 || blockRows < 1 || blockColumns < 1
+				|| firstBlockRow + blockRows > blocksHigh || firstBlockColumn + blockColumns > blocksWide)
+			throw new IllegalArgumentException(blockColumns + "x" + blockRows + " blocks at block " + firstBlockColumn
+					+ "," + firstBlockRow + " aren't in the image");
+		return new BlockRegionImage(this, firstBlockRow, firstBlockColumn, blockRows, blockColumns);
+	}
+
+	/**
+	 * Method to get the number of values in the storage array
+	 *
+	 * @return the number of values
+	 */
+	protected int storageLength() {
+		return getBlockCount() * channels * BLOCK_AREA;
+	}
+
+	/**
+	 * Method to get the index in the storage array of the first coefficient of a
+	 * channel of a block
+	 *
+	 * @param block   the block index
+	 * @param channel the channel
+	 * @return the index
+	 */
+	protected int offset(int block, int channel) {
+		return (block * channels + channel) * BLOCK_AREA;
+	}
+
+	/**
+	 * Method to quantize a coefficient to the nearest level of a step. The DC
+	 * coefficient is stored less DC_OFFSET so a flat gray block is all zeros.
+	 *
+	 * @param value the coefficient
+	 * @param step  the quantization step
+	 * @param k     the index of the coefficient in the block
+	 * @return the level, clamped to a short
+	 */
+	protected static short quantize(double value, int step, int k) {
+		if (k == 0)
+			value -= DC_OFFSET;
+		return toShort(Math.round(value / step));
+	}
+
+	/**
+	 * Method to quantize an integer coefficient to the nearest level of a step
+	 * with integer arithmetic only, so the levels are the same on every
+	 * machine. The DC coefficient is stored less DC_OFFSET.
+	 *
+	 * @param value the coefficient
+	 * @param step  the quantization step
+	 * @param k     the index of the coefficient in the block
+	 * @return the level, clamped to a short
+	 */
+	protected static short quantizeInteger(int value, int step, int k) {
+		if (k == 0)
+			value -= DC_OFFSET;
+		int half = step / 2;
+		// round half away from zero so positive and negative values match
+		return toShort(value >= 0 ? (value + half) / step : -((half - value) / step));
+	}
+
+	/**
+	 * Method to get the coefficient of a quantized level
+	 *
+	 * @param level the level
+	 * @param step  the quantization step
+	 * @param k     the index of the coefficient in the block
+	 * @return the coefficient, with DC_OFFSET added back to the DC one
+	 */
+	protected static int dequantize(int level, int step, int k) {
+		int value = level * step;
+		return k == 0 ? value + DC_OFFSET : value;
+	}
+
+	/**
+	 * Method to clamp a level to a short
+	 *
+	 * @param value the level
+	 * @return the nearest short
+	 */
+	protected static short toShort(long value) {
+		if (value > Short.MAX_VALUE)
+			return Short.MAX_VALUE;
+		if (value < Short.MIN_VALUE)
+			return Short.MIN_VALUE;
+		return (short) value;
+	}
+
+	/**
+	 * Method to return a string with information about this image
+	 *
+	 * @return a string with the size and storage
+	 */
+	public String toString() {
+		return "Coefficient Image, storage " + getStorage() + " channels " + channels + " height " + height + " width "
+				+ width;
+	}
+
+	/**
+	 * Coefficients stored as doubles
+	 */
+	private static class DoubleImage extends CoefficientImage {
+		private final double[] data;
+
+		DoubleImage(int width, int height, int channels) {
+			super(width, height, channels);
+			data = new double[storageLength()];
+		}
+
+		public Storage getStorage() {
+			return Storage.DOUBLE;
+		}
+
+		public double getCoefficient(int block, int channel, int k) {
+			return data[offset(block, channel) + k];
+		}
+
+		public void setCoefficient(int block, int channel, int k, double value) {
+			data[offset(block, channel) + k] = value;
+		}
+
+		public void getBlock(int block, int channel, double[] values) {
+			System.arraycopy(data, offset(block, channel), values, 0, BLOCK_AREA);
+		}
+
+		public void setBlock(int block, int channel, double[] values) {
+			System.arraycopy(values, 0, data, offset(block, channel), BLOCK_AREA);
+		}
+	}
+
+	/**
+	 * Coefficients stored as floats
+	 */
+	private static class FloatImage extends CoefficientImage {
+		private final float[] data;
+
+		FloatImage(int width, int height, int channels) {
+			super(width, height, channels);
+			data = new float[storageLength()];
+		}
+
+		public Storage getStorage() {
+			return Storage.FLOAT;
+		}
+
+		public double getCoefficient(int block, int channel, int k) {
+			return data[offset(block, channel) + k];
+		}
+
+		public void setCoefficient(int block, int channel, int k, double value) {
+			data[offset(block, channel) + k] = (float) value;
+		}
+
+		public void getBlock(int block, int channel, double[] values) {
+			int start = offset(block, channel);
+			for (int k = 0; k < BLOCK_AREA; k++)
+				values[k] = data[start + k];
+		}
+
+		public void setBlock(int block, int channel, double[] values) {
+			int start = offset(block, channel);
+			for (int k = 0; k < BLOCK_AREA; k++)
+				data[start + k] = (float) values[k];
+		}
+	}
+
+	/**
+	 * Coefficients stored as shorts, each one a count of quantization steps
+	 */
+	/*
+	 * the shorts are the levels, so the DC coefficient is stored without
+	 * DC_OFFSET: a level fits in 11 bits and is the level a JPEG file holds
+	 */
+	private static class ShortImage extends CoefficientImage {
+		private final short[] data;
+		private final QuantizationTable[] tables;
+		private final int[][] steps;
+
+		ShortImage(int width, int height, QuantizationTable[] tables) {
+			super(width, height, tables.length);
+			this.data = new short[storageLength()];
+			this.tables = tables.clone();
+			this.steps = new int[channels][];
+			for (int channel = 0; channel < channels; channel++)
+				steps[channel] = tables[channel].getSteps();
+		}
+
+		public Storage getStorage() {
+			return Storage.SHORT;
+		}
+
+		public boolean isInteger() {
+			return true;
+		}
+
+		public QuantizationTable getQuantization(int channel) {
+			return tables[channel];
+		}
+
+		public double getCoefficient(int block, int channel, int k) {
+			return dequantize(data[offset(block, channel) + k], steps[channel][k], k);
+		}
+
+		public void setCoefficient(int block, int channel, int k, double value) {
+			data[offset(block, channel) + k] = quantize(value, steps[channel][k], k);
+		}
+
+		public void getBlock(int block, int channel, double[] values) {
+			int start = offset(block, channel);
+			int[] step = steps[channel];
+			for (int k = 0; k < BLOCK_AREA; k++)
+				values[k] = dequantize(data[start + k], step[k], k);
+		}
+
+		public void setBlock(int block, int channel, double[] values) {
+			int start = offset(block, channel);
+			int[] step = steps[channel];
+			for (int k = 0; k < BLOCK_AREA; k++)
+				data[start + k] = quantize(values[k], step[k], k);
+		}
+
+		public void getBlock(int block, int channel, int[] values) {
+			int start = offset(block, channel);
+			int[] step = steps[channel];
+			for (int k = 0; k < BLOCK_AREA; k++)
+				values[k] = dequantize(data[start + k], step[k], k);
+		}
+
+		public void setBlock(int block, int channel, int[] values) {
+			int start = offset(block, channel);
+			int[] step = steps[channel];
+			for (int k = 0; k < BLOCK_AREA; k++)
+				data[start + k] = quantizeInteger(values[k], step[k], k);
+		}
+
+		public void getLevels(int block, int channel, int[] levels) {
+			int start = offset(block, channel);
+			for (int k = 0; k < BLOCK_AREA; k++)
+				levels[k] = data[start + k];
+		}
+
+		public void setLevels(int block, int channel, int[] levels) {
+			int start = offset(block, channel);
+			for (int k = 0; k < BLOCK_AREA; k++)
+				data[start + k] = toShort(levels[k]);
+		}
+	}
+
+	/**
+	 * Coefficients in an array from dct(), used in place
+	 */
+	private static class ArrayImage extends CoefficientImage {
+		private final double[][][] colorArray;
+
+		ArrayImage(double[][][] colorArray) {
+			super(colorArray[0][0].length, colorArray[0].length, colorArray.length);
+			this.colorArray = colorArray;
+		}
+
+		public Storage getStorage() {
+			return Storage.DOUBLE;
+		}
+
+		public double get(int channel, int row, int col) {
+			return colorArray[channel][row][col];
+		}
+
+		public void set(int channel, int row, int col, double value) {
+			colorArray[channel][row][col] = value;
+		}
+
+		public double getCoefficient(int block, int channel, int k) {
+			int row = (block / blocksWide) * 8 + (k >> 3);
+			int col = (block % blocksWide) * 8 + (k & 7);
+			return (row < height && col < width) ? colorArray[channel][row][col] : 0;
+		}
+
+		public void setCoefficient(int block, int channel, int k, double value) {
+			int row = (block / blocksWide) * 8 + (k >> 3);
+			int col = (block % blocksWide) * 8 + (k & 7);
+			if (row < height && col < width)
+				colorArray[channel][row][col] = value;
+		}
+
+		/*
+		 * an array that isn't a multiple of 8 wide or high only holds part of the
+		 * blocks at its edges, the rest of those blocks reads as zero and is
+		 * dropped when it is set
+		 */
+
+		public void getBlock(int block, int channel, double[] values) {
+			int row = (block / blocksWide) * 8;
+			int col = (block % blocksWide) * 8;
+			int rows = Math.min(8, height - row);
+			int cols = Math.min(8, width - col);
+			if (rows < 8 || cols < 8)
+				Arrays.fill(values, 0);
+			for (int i = 0; i < rows; i++)
+				System.arraycopy(colorArray[channel][row + i], col, values, i * 8, cols);
+		}
+
+		public void setBlock(int block, int channel, double[] values) {
+			int row = (block / blocksWide) * 8;
+			int col = (block % blocksWide) * 8;
+			int rows = Math.min(8, height - row);
+			int cols = Math.min(8, width - col);
+			for (int i = 0; i < rows; i++)
+				System.arraycopy(values, i * 8, colorArray[channel][row + i], col, cols);
+		}
+
+		public double[][][] toArray() {
+			return colorArray;
+		}
+	}
+
+	/**
+	 * A rectangle of blocks of another image, used in place
+	 */
+	private static class BlockRegionImage extends CoefficientImage {
+		private final CoefficientImage image;
+		private final int firstBlockRow;
+		private final int firstBlockColumn;
+
+		BlockRegionImage(CoefficientImage image, int firstBlockRow, int firstBlockColumn, int blockRows,
+				int blockColumns) {
+			super(Math.min(blockColumns * 8, image.width - firstBlockColumn * 8),
+					Math.min(blockRows * 8, image.height - firstBlockRow * 8), image.channels);
+			this.image = image;
+			this.firstBlockRow = firstBlockRow;
+			this.firstBlockColumn = firstBlockColumn;
+		}
+
+		private int index(int block) {
+			return image.getBlockIndex(firstBlockRow + block / blocksWide, firstBlockColumn + block % blocksWide);
+		}
+
+		public Storage getStorage() {
+			return image.getStorage();
+		}
+
+		public boolean isInteger() {
+			return image.isInteger();
+		}
+
+		public QuantizationTable getQuantization(int channel) {
+			return image.getQuantization(channel);
+		}
+
+		public double getCoefficient(int block, int channel, int k) {
+			return image.getCoefficient(index(block), channel, k);
+		}
+
+		public void setCoefficient(int block, int channel, int k, double value) {
+			image.setCoefficient(index(block), channel, k, value);
+		}
+
+		public void getBlock(int block, int channel, double[] values) {
+			image.getBlock(index(block), channel, values);
+		}
+
+		public void setBlock(int block, int channel, double[] values) {
+			image.setBlock(index(block), channel, values);
+		}
+
+		public void getBlock(int block, int channel, int[] values) {
+			image.getBlock(index(block), channel, values);
+		}
+
+		public void setBlock(int block, int channel, int[] values) {
+			image.setBlock(index(block), channel, values);
+		}
+
+		public void getLevels(int block, int channel, int[] levels) {
+			image.getLevels(index(block), channel, levels);
+		}
+
+		public void setLevels(int block, int channel, int[] levels) {
+			image.setLevels(index(block), channel, levels);
+		}
+	}
+}
@@ -0,0 +1,83 @@
+/**
+ * A class that holds how well and how fast a picture was compressed or
+ * decompressed: the size of the coded picture in bits per pixel and the speed
+ * in megabytes of red, green and blue pixels (3 bytes each) per second.
+ */
+public class CompressionStats {
+	/** the number of pixels */
+	private final long pixels;
+
+	/** the number of bytes of the coded picture */
+	private final long bytes;
+
+	/** the time taken in nanoseconds */
+	private final long nanos;
+
+	/**
+	 * Constructor that takes the pixels, the coded bytes and the time
+	 * 
+	 * @param pixels the number of pixels
+	 * @param bytes  the number of bytes of the coded picture
+	 * @param nanos  the time taken in nanoseconds
+	 */
+	public CompressionStats(long pixels, long bytes, long nanos) {
+		this.pixels = pixels;
+		this.bytes = bytes;
+		this.nanos = nanos;
+	}
+
+	/**
+	 * Method to get the number of pixels
+	 * 
+	 * @return the number of pixels
+	 */
+	public long getPixels() {
+		return pixels;
+	}
+
+	/**
+	 * Method to get the number of bytes of the coded picture
+	 * 
+	 * @return the number of bytes
+	 */
+	public long getBytes() {
+		return bytes;
+	}
+
+	/**
+	 * Method to get the time taken
+	 * 
+	 * @return the time in nanoseconds
+	 */
+	public long getNanos() {
+		return nanos;
+	}
+
+	/**
+	 * Method to get the size of the coded picture per pixel
+	 * 
+	 * @return the bits per pixel (24 for no compression)
+	 */
+	public double getBitsPerPixel() {
+		return (pixels == 0) ? 0 : bytes * 8.0 / pixels;
+	}
+
+	/**
+	 * Method to get the speed in megabytes of pixels per second
+	 * 
+	 * @return the millions of bytes of red, green and blue pixels per second
+	 */
+	public double getMegabytesPerSecond() {
+		return (nanos == 0) ? 0 : pixels * 3 * 1e3 / nanos;
+	}
+
+	/**
+	 * Method to return the stats as a string
+	 * 
+	 * @return the size, bits per pixel and speed
+	 */
+	public String toString() {
+		return String.format("%d pixels, %d bytes, %.3f bits/pixel, %.3f ms, %.1f MB/s", pixels, bytes,
+				getBitsPerPixel(), nanos / 1e6, getMegabytesPerSecond());
+	}
+}
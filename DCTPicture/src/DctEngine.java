@@ -0,0 +1,1225 @@
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A class that performs the discrete cosine transform (and its inverse) on the
+ * 8x8 blocks of a picture. The engine loads each block and hands it to a
+ * DctKernel, which does the math. The default kernel is the VectorDctKernel of
+ * the vector module (the cosine table multiplied in 256-bit vectors) when it
+ * and the jdk.incubator.vector module are there, and otherwise the fast
+ * factorized AanDctKernel; a SeparableDctKernel (a precomputed cosine table
+ * used as a matrix multiply on the rows and then the columns) can be set
+ * instead. The
+ * rows of blocks are run in parallel bands by a BlockScheduler. Pictures can
+ * also be converted to YCbCr with subsampled chroma (a YCbCrImage). A
+ * TransformListener can be set to be told the blocks done and time taken by
+ * each stage.
+ */
+public class DctEngine {
+	/**
+	 * The ways to fill out a block that hangs over the right or bottom edge of a
+	 * picture that isn't a multiple of 8 wide or high
+	 */
+	public enum EdgeMode {
+		/** repeat the last row or column of pixels */
+		REPLICATE,
+		/** reflect the pixels back from the last row or column */
+		MIRROR
+	}
+
+	/** the name of the forward transform stage given to listeners */
+	public static final String FORWARD = "forward";
+
+	/** the name of the inverse transform stage given to listeners */
+	public static final String INVERSE = "inverse";
+
+	/** the name of the quantize stage given to listeners */
+	public static final String QUANTIZE = "quantize";
+
+	/** the width and height of a block */
+	public static final int BLOCK_SIZE = 8;
+
+	/** the number of samples in a block */
+	public static final int BLOCK_AREA = BLOCK_SIZE * BLOCK_SIZE;
+
+	/** about the most pixels of a mapped raster that are copied into the heap at once */
+	private static final int BAND_PIXELS = 1 << 22;
+
+	/**
+	 * the kernel of the vector module, or null if it isn't on the class path or
+	 * can't run here
+	 */
+	private static final DctKernel VECTOR_KERNEL = loadVectorKernel();
+
+	/** the kernel that transforms one block */
+	private DctKernel kernel;
+
+	/** the kernel that transforms one block in fixed point */
+	private IntegerDctKernel integerKernel = new IntegerDctKernel();
+
+	/** the scheduler that runs the bands of blocks */
+	private BlockScheduler scheduler = new BlockScheduler();
+
+	/** how the blocks at the right and bottom edges are filled out */
+	private EdgeMode edgeMode = EdgeMode.REPLICATE;
+
+	/** the listener told about each transform, or null */
+	private TransformListener listener;
+
+	/** the number of blocks between progress reports, 0 for none */
+	private int progressInterval;
+
+	/**
+	 * Constructor that uses the kernel named by the dct.kernel system property
+	 * ("vector", "fast" or "separable"), or the vector kernel if it isn't set
+	 */
+	public DctEngine() {
+		this(defaultKernel());
+	}
+
+	/**
+	 * Constructor that takes the kernel to transform the blocks with
+	 * 
+	 * @param kernel the kernel to use
+	 */
+	public DctEngine(DctKernel kernel) {
+		this.kernel = kernel;
+	}
+
+	/**
+	 * Method to make the kernel named by the dct.kernel system property. The
+	 * vector kernel falls back to the fast factorized kernel when it can't be
+	 * loaded.
+	 * 
+	 * @return the kernel to use
+	 */
+	public static DctKernel defaultKernel() {
+		String name = System.getProperty("dct.kernel", "vector");
+		if (name.equals("separable"))
+			return new SeparableDctKernel();
+		if (name.equals("vector") && VECTOR_KERNEL != null)
+			return VECTOR_KERNEL;
+		return new AanDctKernel();
+	}
+
+	/**
+	 * Method to load the kernel of the vector module by name, since this
+	 * module is built for Java 8 and can't refer to jdk.incubator.vector. It
+	 * can't be loaded if it isn't on the class path, on a Java older than 17,
+	 * when the JVM wasn't started with --add-modules jdk.incubator.vector, or
+	 * when the machine has no 256-bit vectors.
+	 * 
+	 * @return the kernel, or null if it can't be loaded
+	 */
+	private static DctKernel loadVectorKernel() {
+		try {
+			return (DctKernel) Class.forName("VectorDctKernel").getConstructor().newInstance();
+		} catch (ReflectiveOperationException | LinkageError ex) {
+			return null;
+		}
+	}
+
+	/**
+	 * Method to get the kernel that transforms one block
+	 * 
+	 * @return the kernel
+	 */
+	public DctKernel getKernel() {
+		return kernel;
+	}
+
+	/**
+	 * Method to set the kernel that transforms one block
+	 * 
+	 * @param kernel the kernel to use
+	 */
+	public void setKernel(DctKernel kernel) {
+		this.kernel = kernel;
+	}
+
+	/**
+	 * Method to get the scheduler that runs the bands of blocks
+	 * 
+	 * @return the scheduler
+	 */
+	public BlockScheduler getScheduler() {
+		return scheduler;
+	}
+
+	/**
+	 * Method to set the scheduler that runs the bands of blocks
+	 * 
+	 * @param scheduler the scheduler to use
+	 */
+	public void setScheduler(BlockScheduler scheduler) {
+		this.scheduler = scheduler;
+	}
+
+	/**
+	 * Method to set the number of threads the blocks are transformed on; engines
+	 * with the same number of threads share one pool, so this is cheap to call
+	 * 
+	 * @param parallelism the number of threads, 1 to transform on the calling
+	 *                    thread
+	 */
+	public void setParallelism(int parallelism) {
+		this.scheduler = new BlockScheduler(parallelism);
+	}
+
+	/**
+	 * Method to get how the blocks at the edges are filled out
+	 * 
+	 * @return the edge mode
+	 */
+	public EdgeMode getEdgeMode() {
+		return edgeMode;
+	}
+
+	/**
+	 * Method to set how the blocks at the edges are filled out
+	 * 
+	 * @param edgeMode the edge mode to use
+	 */
+	public void setEdgeMode(EdgeMode edgeMode) {
+		this.edgeMode = edgeMode;
+	}
+
+	/**
+	 * Method to get the listener told about each transform
+	 * 
+	 * @return the listener, or null if there isn't one
+	 */
+	public TransformListener getListener() {
+		return listener;
+	}
+
+	/**
+	 * Method to set the listener told when each transform starts and finishes
+	 * 
+	 * @param listener the listener to use, or null for none
+	 */
+	public void setListener(TransformListener listener) {
+		setListener(listener, 0);
+	}
+
+	/**
+	 * Method to set the listener told about each transform. Progress is reported
+	 * at the end of the row of blocks that reaches each multiple of the interval.
+	 * 
+	 * @param listener         the listener to use, or null for none
+	 * @param progressInterval the number of blocks between progress reports, 0
+	 *                         for none
+	 */
+	public void setListener(TransformListener listener, int progressInterval) {
+		if (progressInterval < 0)
+			throw new IllegalArgumentException("the progress interval can't be negative but was " + progressInterval);
+		this.listener = listener;
+		this.progressInterval = progressInterval;
+	}
+
+	/**
+	 * Method to transform the 8x8 blocks of the passed pixels. If the picture
+	 * isn't a multiple of 8 wide and high the array is rounded up to whole blocks.
+	 *
+	 * @param raster the pixels of the picture
+	 * @return the coefficients as [color][row][col] with red, green and blue
+	 */
+	public double[][][] forward(PictureRaster raster) {
+		double[][][] colorArray = new double[CoefficientImage.CHANNELS][blockCount(raster.getHeight())
+				* BLOCK_SIZE][blockCount(raster.getWidth()) * BLOCK_SIZE];
+		forward(raster, CoefficientImage.wrap(colorArray));
+		return colorArray;
+	}
+
+	/**
+	 * Method to transform the 8x8 blocks of the passed pixels into a new
+	 * coefficient image. Short storage is transformed with fixed point
+	 * arithmetic, so no floating point is used and the coefficients are exactly
+	 * the same on every machine.
+	 *
+	 * @param raster  the pixels of the picture
+	 * @param storage the way to store the coefficients
+	 * @return the coefficients
+	 */
+	public CoefficientImage forward(PictureRaster raster, CoefficientImage.Storage storage) {
+		CoefficientImage coefficients = CoefficientImage.create(storage, raster.getWidth(), raster.getHeight());
+		forward(raster, coefficients);
+		return coefficients;
+	}
+
+	/**
+	 * Method to transform the 8x8 blocks of the passed pixels into the passed
+	 * coefficient image
+	 *
+	 * @param raster       the pixels of the picture
+	 * @param coefficients the image to put the coefficients in (the same size as
+	 *                     the picture)
+	 */
+	public void forward(PictureRaster raster, CoefficientImage coefficients) {
+		checkCovers(coefficients, raster);
+		if (coefficients.isInteger())
+			forwardInteger(raster, coefficients);
+		else
+			forwardDouble(raster, coefficients);
+	}
+
+	/**
+	 * Method to inverse transform the passed coefficients into the passed pixels
+	 *
+	 * @param colorArray the coefficients as [color][row][col]
+	 * @param raster     the pixels of the picture to set
+	 */
+	public void inverse(double[][][] colorArray, PictureRaster raster) {
+		inverse(CoefficientImage.wrap(colorArray), raster, BLOCK_SIZE);
+	}
+
+	/**
+	 * Method to inverse transform the passed coefficients into the passed pixels
+	 * keeping only the lowest frequencies of each block
+	 *
+	 * @param colorArray the coefficients as [color][row][col]
+	 * @param raster     the pixels of the picture to set
+	 * @param keep       the number of frequencies to keep in each direction (1 to
+	 *                   8)
+	 */
+	public void inverse(double[][][] colorArray, PictureRaster raster, int keep) {
+		inverse(CoefficientImage.wrap(colorArray), raster, keep);
+	}
+
+	/**
+	 * Method to inverse transform the passed coefficients into the passed pixels
+	 * keeping only the lowest frequencies of each block. Every coefficient at a
+	 * row or column of keep or more in a block is treated as zero, which blurs the
+	 * picture. Integer coefficients are inverse transformed with fixed point
+	 * arithmetic.
+	 *
+	 * @param coefficients the coefficients
+	 * @param raster       the pixels of the picture to set
+	 * @param keep         the number of frequencies to keep in each direction (1
+	 *                     to 8)
+	 */
+	public void inverse(CoefficientImage coefficients, PictureRaster raster, int keep) {
+		checkCovers(coefficients, raster);
+		if (coefficients.isInteger())
+			inverseInteger(coefficients, raster, keep);
+		else
+			inverseDouble(coefficients, raster, keep);
+	}
+
+	/**
+	 * Method to transform the 8x8 blocks of a mapped picture into the passed
+	 * coefficient image (usually a MappedCoefficientImage). The picture is
+	 * copied into the heap a band of rows of blocks at a time and each band is
+	 * transformed like a picture of its own, so only a band of pixels is ever in
+	 * the heap. The listener hears about each band as a stage.
+	 *
+	 * @param raster       the pixels of the picture
+	 * @param coefficients the image to put the coefficients in (the same size as
+	 *                     the picture)
+	 */
+	public void forward(MappedRaster raster, CoefficientImage coefficients) {
+		checkCovers(coefficients, raster.getWidth(), raster.getHeight());
+		PictureRaster band = null;
+		for (int first = 0; first < blockCount(raster.getHeight()); first = bandEnd(raster, first)) {
+			band = bandRaster(raster, first, band);
+			raster.getRows(first * BLOCK_SIZE, band);
+			forward(band, coefficients.blockRows(first, blockCount(band.getHeight())));
+		}
+	}
+
+	/**
+	 * Method to inverse transform the passed coefficients into a mapped picture
+	 * a band of rows of blocks at a time
+	 *
+	 * @param coefficients the coefficients
+	 * @param raster       the pixels of the picture to set
+	 */
+	public void inverse(CoefficientImage coefficients, MappedRaster raster) {
+		inverse(coefficients, raster, BLOCK_SIZE);
+	}
+
+	/**
+	 * Method to inverse transform the passed coefficients into a mapped picture
+	 * a band of rows of blocks at a time, keeping only the lowest frequencies of
+	 * each block. Each band is read before it is set so its alpha is kept.
+	 *
+	 * @param coefficients the coefficients
+	 * @param raster       the pixels of the picture to set
+	 * @param keep         the number of frequencies to keep in each direction (1
+	 *                     to 8)
+	 */
+	public void inverse(CoefficientImage coefficients, MappedRaster raster, int keep) {
+		checkCovers(coefficients, raster.getWidth(), raster.getHeight());
+		PictureRaster band = null;
+		for (int first = 0; first < blockCount(raster.getHeight()); first = bandEnd(raster, first)) {
+			band = bandRaster(raster, first, band);
+			raster.getRows(first * BLOCK_SIZE, band);
+			inverse(coefficients.blockRows(first, blockCount(band.getHeight())), band, keep);
+			raster.setRows(first * BLOCK_SIZE, band);
+		}
+	}
+
+	/**
+	 * Method to find the row of blocks after a band of a mapped picture. A band
+	 * is enough rows of blocks for about BAND_PIXELS pixels, and the last row of
+	 * blocks is never a band of its own if it is only part of a block high, so
+	 * the edge mode can mirror into the rows above it.
+	 *
+	 * @param raster the mapped picture
+	 * @param first  the first row of blocks of the band
+	 * @return the row of blocks after the band
+	 */
+	private static int bandEnd(MappedRaster raster, int first) {
+		int blocksHigh = blockCount(raster.getHeight());
+		int end = first + Math.max(1, BAND_PIXELS / (raster.getWidth() * BLOCK_SIZE));
+		if (end == blocksHigh - 1 && raster.getHeight() % BLOCK_SIZE != 0)
+			return blocksHigh;
+		return Math.min(end, blocksHigh);
+	}
+
+	/**
+	 * Method to get a raster for a band of a mapped picture, reusing the one for
+	 * the last band if it is the same size
+	 *
+	 * @param raster the mapped picture
+	 * @param first  the first row of blocks of the band
+	 * @param band   the raster of the last band, or null
+	 * @return the raster for the band
+	 */
+	private static PictureRaster bandRaster(MappedRaster raster, int first, PictureRaster band) {
+		int rows = Math.min(bandEnd(raster, first) * BLOCK_SIZE, raster.getHeight()) - first * BLOCK_SIZE;
+		if (band != null && band.getHeight() == rows)
+			return band;
+		return new PictureRaster(new BufferedImage(raster.getWidth(), rows, BufferedImage.TYPE_INT_ARGB));
+	}
+
+	/**
+	 * Method to convert the passed pixels to YCbCr and transform them into the
+	 * passed image. The pixels are done an MCU at a time: the chroma of each MCU
+	 * is averaged down to one block per channel as it is converted, so the
+	 * chroma transforms only cost a half or a quarter of the luma ones.
+	 *
+	 * @param raster  the pixels of the picture
+	 * @param ycbcr   the image to put the coefficients in
+	 */
+	public void forward(PictureRaster raster, YCbCrImage ycbcr) {
+		checkCovers(ycbcr, raster);
+		ChromaSubsampling subsampling = ycbcr.getSubsampling();
+		int horizontal = subsampling.getHorizontal();
+		int vertical = subsampling.getVertical();
+		int mcuWidth = BLOCK_SIZE * horizontal;
+		int mcuHeight = BLOCK_SIZE * vertical;
+		double chromaScale = 1.0 / (horizontal * vertical);
+		CoefficientImage luma = ycbcr.getLuma();
+		CoefficientImage chroma = ycbcr.getChroma();
+		run(FORWARD, ycbcr.getMcusHigh(), ycbcr.getMcusWide(), (firstMcuRow, lastMcuRow) -> {
+			int[] samples = new int[mcuWidth * mcuHeight];
+			double[] y = new double[mcuWidth * mcuHeight];
+			double[] cb = new double[BLOCK_AREA];
+			double[] cr = new double[BLOCK_AREA];
+			double[] block = new double[BLOCK_AREA];
+			int[] integers = new int[BLOCK_AREA];
+
+			for (int mcuRow = firstMcuRow; mcuRow < lastMcuRow; mcuRow++) {
+				for (int mcuColumn = 0; mcuColumn < ycbcr.getMcusWide(); mcuColumn++) {
+					loadArea(raster, mcuRow * mcuHeight, mcuColumn * mcuWidth, mcuHeight, mcuWidth, samples);
+
+					// convert to YCbCr, adding the chroma of each pixel to its chroma sample
+					Arrays.fill(cb, 0);
+					Arrays.fill(cr, 0);
+					for (int i = 0; i < mcuHeight; i++) {
+						int chromaRow = (i / vertical) * BLOCK_SIZE;
+						for (int j = 0; j < mcuWidth; j++) {
+							int value = samples[i * mcuWidth + j];
+							int red = (value >> 16) & 0xff;
+							int green = (value >> 8) & 0xff;
+							int blue = value & 0xff;
+							int k = chromaRow + j / horizontal;
+							y[i * mcuWidth + j] = 0.299 * red + 0.587 * green + 0.114 * blue;
+							cb[k] += -0.168736 * red - 0.331264 * green + 0.5 * blue;
+							cr[k] += 0.5 * red - 0.418688 * green - 0.081312 * blue;
+						}
+					}
+					for (int k = 0; k < BLOCK_AREA; k++) {
+						cb[k] = cb[k] * chromaScale + 128;
+						cr[k] = cr[k] * chromaScale + 128;
+					}
+
+					for (int by = 0; by < vertical; by++) {
+						for (int bx = 0; bx < horizontal; bx++) {
+							for (int i = 0; i < BLOCK_SIZE; i++)
+								System.arraycopy(y, (by * BLOCK_SIZE + i) * mcuWidth + bx * BLOCK_SIZE, block,
+										i * BLOCK_SIZE, BLOCK_SIZE);
+							int index = luma.getBlockIndex(mcuRow * vertical + by, mcuColumn * horizontal + bx);
+							forwardBlock(block, integers, luma, index, 0);
+						}
+					}
+					int index = chroma.getBlockIndex(mcuRow, mcuColumn);
+					forwardBlock(cb, integers, chroma, index, YCbCrImage.CB);
+					forwardBlock(cr, integers, chroma, index, YCbCrImage.CR);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Method to inverse transform the passed YCbCr coefficients into the passed
+	 * pixels. The chroma of each MCU is spread back over the pixels it was
+	 * averaged from before converting to red, green and blue.
+	 *
+	 * @param ycbcr  the coefficients
+	 * @param raster the pixels of the picture to set
+	 */
+	public void inverse(YCbCrImage ycbcr, PictureRaster raster) {
+		inverse(ycbcr, raster, BLOCK_SIZE);
+	}
+
+	/**
+	 * Method to inverse transform the passed YCbCr coefficients into the passed
+	 * pixels keeping only the lowest frequencies of each luma and chroma block
+	 *
+	 * @param ycbcr  the coefficients
+	 * @param raster the pixels of the picture to set
+	 * @param keep   the number of frequencies to keep in each direction (1 to 8)
+	 */
+	public void inverse(YCbCrImage ycbcr, PictureRaster raster, int keep) {
+		checkCovers(ycbcr, raster);
+		ChromaSubsampling subsampling = ycbcr.getSubsampling();
+		int horizontal = subsampling.getHorizontal();
+		int vertical = subsampling.getVertical();
+		int mcuWidth = BLOCK_SIZE * horizontal;
+		int mcuHeight = BLOCK_SIZE * vertical;
+		CoefficientImage luma = ycbcr.getLuma();
+		CoefficientImage chroma = ycbcr.getChroma();
+		run(INVERSE, ycbcr.getMcusHigh(), ycbcr.getMcusWide(), (firstMcuRow, lastMcuRow) -> {
+			int[] samples = new int[mcuWidth * mcuHeight];
+			double[] y = new double[mcuWidth * mcuHeight];
+			double[] cb = new double[BLOCK_AREA];
+			double[] cr = new double[BLOCK_AREA];
+			double[] block = new double[BLOCK_AREA];
+			int[] integers = new int[BLOCK_AREA];
+
+			for (int mcuRow = firstMcuRow; mcuRow < lastMcuRow; mcuRow++) {
+				for (int mcuColumn = 0; mcuColumn < ycbcr.getMcusWide(); mcuColumn++) {
+					for (int by = 0; by < vertical; by++) {
+						for (int bx = 0; bx < horizontal; bx++) {
+							int index = luma.getBlockIndex(mcuRow * vertical + by, mcuColumn * horizontal + bx);
+							inverseBlock(luma, index, 0, block, integers, keep);
+							for (int i = 0; i < BLOCK_SIZE; i++)
+								System.arraycopy(block, i * BLOCK_SIZE, y,
+										(by * BLOCK_SIZE + i) * mcuWidth + bx * BLOCK_SIZE, BLOCK_SIZE);
+						}
+					}
+					int index = chroma.getBlockIndex(mcuRow, mcuColumn);
+					inverseBlock(chroma, index, YCbCrImage.CB, cb, integers, keep);
+					inverseBlock(chroma, index, YCbCrImage.CR, cr, integers, keep);
+
+					for (int i = 0; i < mcuHeight; i++) {
+						int chromaRow = (i / vertical) * BLOCK_SIZE;
+						for (int j = 0; j < mcuWidth; j++) {
+							int k = chromaRow + j / horizontal;
+							samples[i * mcuWidth + j] = toRgb(y[i * mcuWidth + j], cb[k], cr[k]);
+						}
+					}
+					storeArea(raster, mcuRow * mcuHeight, mcuColumn * mcuWidth, mcuHeight, mcuWidth, samples);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Method to inverse transform the passed coefficients into a picture that is
+	 * 1/2, 1/4 or 1/8 of their size. Each block becomes 4x4, 2x2 or 1x1 pixels
+	 * from an inverse transform of only its lowest frequencies (see
+	 * ReducedDctKernel), which is much cheaper than a full inverse transform.
+	 *
+	 * @param coefficients the coefficients of a red, green and blue picture
+	 * @param raster       the pixels to set, the size of the coefficients divided
+	 *                     by the denominator (rounded up)
+	 * @param denominator  1, 2, 4 or 8
+	 */
+	public void inverseScaled(CoefficientImage coefficients, PictureRaster raster, int denominator) {
+		if (coefficients.getChannels() != CoefficientImage.CHANNELS)
+			throw new IllegalArgumentException("the coefficients need " + CoefficientImage.CHANNELS
+					+ " channels but have " + coefficients.getChannels());
+		checkScaled(coefficients.getWidth(), coefficients.getHeight(), raster, denominator);
+		if (denominator == 1) {
+			inverse(coefficients, raster, BLOCK_SIZE);
+			return;
+		}
+		int size = BLOCK_SIZE / denominator;
+		run(INVERSE, coefficients.getBlocksHigh(), coefficients.getBlocksWide(), (firstBlockRow, lastBlockRow) -> {
+			ReducedDctKernel reduced = new ReducedDctKernel(size);
+			double[] block = new double[BLOCK_AREA];
+			double[] red = new double[size * size];
+			double[] green = new double[size * size];
+			double[] blue = new double[size * size];
+			int[] samples = new int[size * size];
+
+			for (int blockRow = firstBlockRow; blockRow < lastBlockRow; blockRow++) {
+				for (int blockColumn = 0; blockColumn < coefficients.getBlocksWide(); blockColumn++) {
+					int index = coefficients.getBlockIndex(blockRow, blockColumn);
+					coefficients.getBlock(index, 0, block);
+					reduced.inverse(block, red);
+					coefficients.getBlock(index, 1, block);
+					reduced.inverse(block, green);
+					coefficients.getBlock(index, 2, block);
+					reduced.inverse(block, blue);
+					for (int k = 0; k < size * size; k++)
+						samples[k] = (toColorValue(red[k]) << 16) | (toColorValue(green[k]) << 8) | toColorValue(blue[k]);
+					storeArea(raster, blockRow * size, blockColumn * size, size, size, samples);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Method to inverse transform the passed YCbCr coefficients into a picture
+	 * that is 1/2, 1/4 or 1/8 of their size. The luma and chroma blocks are
+	 * both shrunk, so the chroma still covers the same pixels of the smaller
+	 * picture.
+	 *
+	 * @param ycbcr       the coefficients
+	 * @param raster      the pixels to set, the size of the coefficients divided
+	 *                    by the denominator (rounded up)
+	 * @param denominator 1, 2, 4 or 8
+	 */
+	public void inverseScaled(YCbCrImage ycbcr, PictureRaster raster, int denominator) {
+		checkScaled(ycbcr.getWidth(), ycbcr.getHeight(), raster, denominator);
+		if (denominator == 1) {
+			inverse(ycbcr, raster);
+			return;
+		}
+		int size = BLOCK_SIZE / denominator;
+		ChromaSubsampling subsampling = ycbcr.getSubsampling();
+		int horizontal = subsampling.getHorizontal();
+		int vertical = subsampling.getVertical();
+		int mcuWidth = size * horizontal;
+		int mcuHeight = size * vertical;
+		CoefficientImage luma = ycbcr.getLuma();
+		CoefficientImage chroma = ycbcr.getChroma();
+		run(INVERSE, ycbcr.getMcusHigh(), ycbcr.getMcusWide(), (firstMcuRow, lastMcuRow) -> {
+			ReducedDctKernel reduced = new ReducedDctKernel(size);
+			double[] block = new double[BLOCK_AREA];
+			double[] lumaBlock = new double[size * size];
+			double[] y = new double[mcuWidth * mcuHeight];
+			double[] cb = new double[size * size];
+			double[] cr = new double[size * size];
+			int[] samples = new int[mcuWidth * mcuHeight];
+
+			for (int mcuRow = firstMcuRow; mcuRow < lastMcuRow; mcuRow++) {
+				for (int mcuColumn = 0; mcuColumn < ycbcr.getMcusWide(); mcuColumn++) {
+					for (int by = 0; by < vertical; by++) {
+						for (int bx = 0; bx < horizontal; bx++) {
+							luma.getBlock(luma.getBlockIndex(mcuRow * vertical + by, mcuColumn * horizontal + bx), 0,
+									block);
+							reduced.inverse(block, lumaBlock);
+							for (int i = 0; i < size; i++)
+								System.arraycopy(lumaBlock, i * size, y, (by * size + i) * mcuWidth + bx * size, size);
+						}
+					}
+					int index = chroma.getBlockIndex(mcuRow, mcuColumn);
+					chroma.getBlock(index, YCbCrImage.CB, block);
+					reduced.inverse(block, cb);
+					chroma.getBlock(index, YCbCrImage.CR, block);
+					reduced.inverse(block, cr);
+
+					for (int i = 0; i < mcuHeight; i++) {
+						int chromaRow = (i / vertical) * size;
+						for (int j = 0; j < mcuWidth; j++) {
+							int k = chromaRow + j / horizontal;
+							samples[i * mcuWidth + j] = toRgb(y[i * mcuWidth + j], cb[k], cr[k]);
+						}
+					}
+					storeArea(raster, mcuRow * mcuHeight, mcuColumn * mcuWidth, mcuHeight, mcuWidth, samples);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Method to make sure a picture is the size of the coefficients divided by a
+	 * denominator
+	 *
+	 * @param width       the width of the coefficients
+	 * @param height      the height of the coefficients
+	 * @param raster      the pixels of the picture
+	 * @param denominator 1, 2, 4 or 8
+	 */
+	private static void checkScaled(int width, int height, PictureRaster raster, int denominator) {
+		if (denominator != 1 && denominator != 2 && denominator != 4 && denominator != 8)
+			throw new IllegalArgumentException("the denominator must be 1, 2, 4 or 8 but was " + denominator);
+		int scaledWidth = (width + denominator - 1) / denominator;
+		int scaledHeight = (height + denominator - 1) / denominator;
+		if (raster.getWidth() != scaledWidth || raster.getHeight() != scaledHeight)
+			throw new IllegalArgumentException("the picture (" + raster.getWidth() + "x" + raster.getHeight()
+					+ ") isn't 1/" + denominator + " the size of the coefficients (" + scaledWidth + "x"
+					+ scaledHeight + ")");
+	}
+
+	/**
+	 * Method to transform one block of samples and store it in a channel of an
+	 * image, with the fixed point kernel if the image holds integers
+	 *
+	 * @param block    the 64 samples (0 to 255), changed by the transform
+	 * @param integers an array of 64 to use for the fixed point kernel
+	 * @param target   the image to store the coefficients in
+	 * @param index    the block index
+	 * @param channel  the channel
+	 */
+	private void forwardBlock(double[] block, int[] integers, CoefficientImage target, int index, int channel) {
+		if (target.isInteger()) {
+			for (int k = 0; k < BLOCK_AREA; k++)
+				integers[k] = (int) (block[k] + 0.5);
+			integerKernel.forward(integers);
+			target.setBlock(index, channel, integers);
+		} else {
+			kernel.forward(block);
+			target.setBlock(index, channel, block);
+		}
+	}
+
+	/**
+	 * Method to inverse transform one block of a channel of an image into
+	 * samples, with the fixed point kernel if the image holds integers
+	 *
+	 * @param source   the image with the coefficients
+	 * @param index    the block index
+	 * @param channel  the channel
+	 * @param block    the array to put the 64 samples in
+	 * @param integers an array of 64 to use for the fixed point kernel
+	 * @param keep     the number of frequencies to keep in each direction
+	 */
+	private void inverseBlock(CoefficientImage source, int index, int channel, double[] block, int[] integers,
+			int keep) {
+		if (source.isInteger()) {
+			source.getBlock(index, channel, integers);
+			if (keep < BLOCK_SIZE) {
+				for (int k = 0; k < BLOCK_AREA; k++) {
+					if ((k >> 3) >= keep || (k & 7) >= keep)
+						integers[k] = 0;
+				}
+			}
+			integerKernel.inverse(integers, extent(integers, keep));
+			for (int k = 0; k < BLOCK_AREA; k++)
+				block[k] = integers[k];
+		} else {
+			source.getBlock(index, channel, block);
+			if (keep < BLOCK_SIZE) {
+				for (int k = 0; k < BLOCK_AREA; k++) {
+					if ((k >> 3) >= keep || (k & 7) >= keep)
+						block[k] = 0;
+				}
+			}
+			kernel.inverse(block, extent(block, keep));
+		}
+	}
+
+	/**
+	 * Method to make sure a red, green and blue image has blocks for all of a
+	 * picture
+	 *
+	 * @param coefficients the coefficients
+	 * @param raster       the pixels of the picture
+	 */
+	private static void checkCovers(CoefficientImage coefficients, PictureRaster raster) {
+		checkCovers(coefficients, raster.getWidth(), raster.getHeight());
+	}
+
+	/**
+	 * Method to make sure a red, green and blue image has blocks for all of a
+	 * picture of the passed size
+	 *
+	 * @param coefficients the coefficients
+	 * @param width        the width of the picture
+	 * @param height       the height of the picture
+	 */
+	private static void checkCovers(CoefficientImage coefficients, int width, int height) {
+		if (coefficients.getChannels() != CoefficientImage.CHANNELS)
+			throw new IllegalArgumentException("the coefficients need " + CoefficientImage.CHANNELS
+					+ " channels but have " + coefficients.getChannels());
+		if (coefficients.getBlocksWide() < blockCount(width) || coefficients.getBlocksHigh() < blockCount(height))
+			throw new IllegalArgumentException("the coefficients (" + coefficients.getWidth() + "x"
+					+ coefficients.getHeight() + ") don't cover the picture (" + width + "x" + height + ")");
+	}
+
+	/**
+	 * Method to make sure a YCbCr image is the size of a picture
+	 *
+	 * @param ycbcr  the coefficients
+	 * @param raster the pixels of the picture
+	 */
+	private static void checkCovers(YCbCrImage ycbcr, PictureRaster raster) {
+		if (ycbcr.getWidth() != raster.getWidth() || ycbcr.getHeight() != raster.getHeight())
+			throw new IllegalArgumentException("the coefficients (" + ycbcr.getWidth() + "x" + ycbcr.getHeight()
+					+ ") aren't the size of the picture (" + raster.getWidth() + "x" + raster.getHeight() + ")");
+	}
+
+	/**
+	 * Method to show the passed pixels the way they look after quantization, in
+	 * one pass: each block is transformed, each coefficient is rounded to a
+	 * multiple of its step, and the block is inverse transformed back in place.
+	 * With the fast kernel the quantization steps are folded into its scale
+	 * factors, so quantizing costs one multiply and one rounding per coefficient.
+	 *
+	 * @param raster the pixels of the picture to quantize in place
+	 * @param tables the quantization table of each channel (red, green and blue)
+	 */
+	public void quantize(PictureRaster raster, QuantizationTable[] tables) {
+		if (tables.length != CoefficientImage.CHANNELS)
+			throw new IllegalArgumentException(
+					"there must be a table for each of the " + CoefficientImage.CHANNELS + " channels");
+		int height = raster.getHeight();
+		int width = raster.getWidth();
+		DctKernel kernel = this.kernel;
+		run(QUANTIZE, blockCount(height), blockCount(width), (firstBlockRow, lastBlockRow) -> {
+			double[][] channels = new double[CoefficientImage.CHANNELS][BLOCK_AREA];
+			int[] samples = new int[BLOCK_AREA];
+
+			for (int r = firstBlockRow * BLOCK_SIZE; r < lastBlockRow * BLOCK_SIZE; r += BLOCK_SIZE) {
+				for (int c = 0; c < width; c += BLOCK_SIZE) {
+					loadBlock(raster, r, c, samples);
+					for (int k = 0; k < BLOCK_AREA; k++) {
+						int value = samples[k];
+						channels[0][k] = (value >> 16) & 0xff;
+						channels[1][k] = (value >> 8) & 0xff;
+						channels[2][k] = value & 0xff;
+					}
+
+					for (int channel = 0; channel < CoefficientImage.CHANNELS; channel++)
+						quantizeBlock(kernel, channels[channel], tables[channel]);
+
+					for (int k = 0; k < BLOCK_AREA; k++)
+						samples[k] = (toColorValue(channels[0][k]) << 16) | (toColorValue(channels[1][k]) << 8)
+								| toColorValue(channels[2][k]);
+					storeBlock(raster, r, c, samples);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Method to transform, quantize, dequantize and inverse transform one block
+	 * in place
+	 *
+	 * @param kernel the kernel to transform with
+	 * @param block  the 64 samples of the block
+	 * @param table  the quantization table
+	 */
+	private static void quantizeBlock(DctKernel kernel, double[] block, QuantizationTable table) {
+		if (kernel instanceof AanDctKernel) {
+			double[] divisors = table.getScaledDivisors();
+			double[] multipliers = table.getScaledMultipliers();
+			AanDctKernel.forwardScaled(block);
+			for (int k = 0; k < BLOCK_AREA; k++)
+				block[k] = Math.rint(block[k] * divisors[k]) * multipliers[k];
+			AanDctKernel.inverseScaled(block);
+			return;
+		}
+		kernel.forward(block);
+		for (int k = 0; k < BLOCK_AREA; k++) {
+			int step = table.getStep(k);
+			block[k] = Math.rint(block[k] / step) * step;
+		}
+		kernel.inverse(block);
+	}
+
+	/**
+	 * Method to transform the blocks with the floating point kernel
+	 *
+	 * @param raster       the pixels of the picture
+	 * @param coefficients the image to put the coefficients in
+	 */
+	private void forwardDouble(PictureRaster raster, CoefficientImage coefficients) {
+		int height = raster.getHeight();
+		int width = raster.getWidth();
+		run(FORWARD, blockCount(height), blockCount(width), (firstBlockRow, lastBlockRow) -> {
+			double[] red = new double[BLOCK_AREA];
+			double[] green = new double[BLOCK_AREA];
+			double[] blue = new double[BLOCK_AREA];
+			int[] samples = new int[BLOCK_AREA];
+
+			for (int r = firstBlockRow * BLOCK_SIZE; r < lastBlockRow * BLOCK_SIZE; r += BLOCK_SIZE) {
+				for (int c = 0; c < width; c += BLOCK_SIZE) {
+					int block = coefficients.getBlockIndex(r / BLOCK_SIZE, c / BLOCK_SIZE);
+					loadBlock(raster, r, c, samples);
+					for (int k = 0; k < BLOCK_AREA; k++) {
+						int value = samples[k];
+						red[k] = (value >> 16) & 0xff;
+						green[k] = (value >> 8) & 0xff;
+						blue[k] = value & 0xff;
+					}
+
+					kernel.forward(red);
+					kernel.forward(green);
+					kernel.forward(blue);
+
+					coefficients.setBlock(block, 0, red);
+					coefficients.setBlock(block, 1, green);
+					coefficients.setBlock(block, 2, blue);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Method to inverse transform the blocks with the floating point kernel
+	 *
+	 * @param coefficients the coefficients
+	 * @param raster       the pixels of the picture to set
+	 * @param keep         the number of frequencies to keep in each direction
+	 */
+	private void inverseDouble(CoefficientImage coefficients, PictureRaster raster, int keep) {
+		int height = raster.getHeight();
+		int width = raster.getWidth();
+		double[] mask = (keep < BLOCK_SIZE) ? lowPassMask(keep) : null;
+		run(INVERSE, blockCount(height), blockCount(width), (firstBlockRow, lastBlockRow) -> {
+			double[] red = new double[BLOCK_AREA];
+			double[] green = new double[BLOCK_AREA];
+			double[] blue = new double[BLOCK_AREA];
+			int[] samples = new int[BLOCK_AREA];
+
+			for (int r = firstBlockRow * BLOCK_SIZE; r < lastBlockRow * BLOCK_SIZE; r += BLOCK_SIZE) {
+				for (int c = 0; c < width; c += BLOCK_SIZE) {
+					int block = coefficients.getBlockIndex(r / BLOCK_SIZE, c / BLOCK_SIZE);
+					// load the block and zero the frequencies that aren't kept
+					coefficients.getBlock(block, 0, red);
+					coefficients.getBlock(block, 1, green);
+					coefficients.getBlock(block, 2, blue);
+					if (mask != null) {
+						kernel.multiply(red, mask);
+						kernel.multiply(green, mask);
+						kernel.multiply(blue, mask);
+					}
+
+					// sparse blocks take the cheaper paths of the kernel
+					kernel.inverse(red, extent(red, keep));
+					kernel.inverse(green, extent(green, keep));
+					kernel.inverse(blue, extent(blue, keep));
+
+					for (int k = 0; k < BLOCK_AREA; k++)
+						samples[k] = (toColorValue(red[k]) << 16) | (toColorValue(green[k]) << 8) | toColorValue(blue[k]);
+					storeBlock(raster, r, c, samples);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Method to transform the blocks with the fixed point kernel
+	 *
+	 * @param raster       the pixels of the picture
+	 * @param coefficients the image to put the coefficients in
+	 */
+	private void forwardInteger(PictureRaster raster, CoefficientImage coefficients) {
+		int height = raster.getHeight();
+		int width = raster.getWidth();
+		run(FORWARD, blockCount(height), blockCount(width), (firstBlockRow, lastBlockRow) -> {
+			int[] red = new int[BLOCK_AREA];
+			int[] green = new int[BLOCK_AREA];
+			int[] blue = new int[BLOCK_AREA];
+			int[] samples = new int[BLOCK_AREA];
+
+			for (int r = firstBlockRow * BLOCK_SIZE; r < lastBlockRow * BLOCK_SIZE; r += BLOCK_SIZE) {
+				for (int c = 0; c < width; c += BLOCK_SIZE) {
+					int block = coefficients.getBlockIndex(r / BLOCK_SIZE, c / BLOCK_SIZE);
+					loadBlock(raster, r, c, samples);
+					for (int k = 0; k < BLOCK_AREA; k++) {
+						int value = samples[k];
+						red[k] = (value >> 16) & 0xff;
+						green[k] = (value >> 8) & 0xff;
+						blue[k] = value & 0xff;
+					}
+
+					integerKernel.forward(red);
+					integerKernel.forward(green);
+					integerKernel.forward(blue);
+
+					coefficients.setBlock(block, 0, red);
+					coefficients.setBlock(block, 1, green);
+					coefficients.setBlock(block, 2, blue);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Method to inverse transform the blocks with the fixed point kernel
+	 *
+	 * @param coefficients the coefficients
+	 * @param raster       the pixels of the picture to set
+	 * @param keep         the number of frequencies to keep in each direction
+	 */
+	private void inverseInteger(CoefficientImage coefficients, PictureRaster raster, int keep) {
+		int height = raster.getHeight();
+		int width = raster.getWidth();
+		run(INVERSE, blockCount(height), blockCount(width), (firstBlockRow, lastBlockRow) -> {
+			int[] red = new int[BLOCK_AREA];
+			int[] green = new int[BLOCK_AREA];
+			int[] blue = new int[BLOCK_AREA];
+			int[] samples = new int[BLOCK_AREA];
+
+			for (int r = firstBlockRow * BLOCK_SIZE; r < lastBlockRow * BLOCK_SIZE; r += BLOCK_SIZE) {
+				for (int c = 0; c < width; c += BLOCK_SIZE) {
+					int block = coefficients.getBlockIndex(r / BLOCK_SIZE, c / BLOCK_SIZE);
+					coefficients.getBlock(block, 0, red);
+					coefficients.getBlock(block, 1, green);
+					coefficients.getBlock(block, 2, blue);
+
+					// zero the frequencies that aren't kept
+					for (int i = 0; i < BLOCK_SIZE; i++) {
+						for (int j = 0; j < BLOCK_SIZE; j++) {
+							if (i >= keep || j >= keep) {
+								red[i * BLOCK_SIZE + j] = 0;
+								green[i * BLOCK_SIZE + j] = 0;
+								blue[i * BLOCK_SIZE + j] = 0;
+							}
+						}
+					}
+
+					integerKernel.inverse(red, extent(red, keep));
+					integerKernel.inverse(green, extent(green, keep));
+					integerKernel.inverse(blue, extent(blue, keep));
+
+					// the kernel already clamped the samples to 0 to 255
+					for (int k = 0; k < BLOCK_AREA; k++)
+						samples[k] = (red[k] << 16) | (green[k] << 8) | blue[k];
+					storeBlock(raster, r, c, samples);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Method to run a task over all the rows of blocks on the scheduler. Without
+	 * a listener the task is handed straight to the scheduler; with one the
+	 * stage is timed and each band reports its rows as it finishes them.
+	 *
+	 * @param stage        the name of the stage
+	 * @param blockRows    the number of rows of blocks
+	 * @param blockColumns the number of columns of blocks
+	 * @param task         the task to run on each band
+	 */
+	private void run(String stage, int blockRows, int blockColumns, BlockScheduler.BandTask task) {
+		TransformListener listener = this.listener;
+		if (listener == null) {
+			scheduler.run(blockRows, blockColumns, task);
+			return;
+		}
+		int blockCount = blockRows * blockColumns;
+		int interval = progressInterval;
+		AtomicInteger blocksDone = new AtomicInteger();
+		listener.stageStarted(stage, blockCount);
+		long start = System.nanoTime();
+		scheduler.run(blockRows, blockColumns, (firstBlockRow, lastBlockRow) -> {
+			if (interval == 0) {
+				task.run(firstBlockRow, lastBlockRow);
+				return;
+			}
+			for (int row = firstBlockRow; row < lastBlockRow; row++) {
+				task.run(row, row + 1);
+				int done = blocksDone.addAndGet(blockColumns);
+				if (done / interval != (done - blockColumns) / interval)
+					listener.blocksDone(stage, done, blockCount);
+			}
+		});
+		listener.stageFinished(stage, blockCount, System.nanoTime() - start);
+	}
+
+	/**
+	 * Method to load the pixels of a block. The pixels of a block that hangs over
+	 * the right or bottom edge of the picture are filled out with the edge mode,
+	 * reading the picture in place.
+	 *
+	 * @param raster  the pixels of the picture
+	 * @param r       the top row of the block
+	 * @param c       the left column of the block
+	 * @param samples the array to put the 64 pixel values in
+	 */
+	private void loadBlock(PictureRaster raster, int r, int c, int[] samples) {
+		loadArea(raster, r, c, BLOCK_SIZE, BLOCK_SIZE, samples);
+	}
+
+	/**
+	 * Method to load the pixels of an area of whole blocks, filling out the part
+	 * that hangs over the edge of the picture with the edge mode
+	 *
+	 * @param raster  the pixels of the picture
+	 * @param r       the top row of the area
+	 * @param c       the left column of the area
+	 * @param rows    the number of rows in the area
+	 * @param cols    the number of columns in the area
+	 * @param samples the array to put the pixel values in, row by row
+	 */
+	private void loadArea(PictureRaster raster, int r, int c, int rows, int cols, int[] samples) {
+		int[] data = raster.getData();
+		int width = raster.getWidth();
+		int height = raster.getHeight();
+		if (r + rows <= height && c + cols <= width) {
+			for (int i = 0; i < rows; i++)
+				System.arraycopy(data, raster.index(c, r + i), samples, i * cols, cols);
+			return;
+		}
+		for (int i = 0; i < rows; i++) {
+			int index = raster.index(0, edgeIndex(r + i, height));
+			for (int j = 0; j < cols; j++)
+				samples[i * cols + j] = data[index + edgeIndex(c + j, width)];
+		}
+	}
+
+	/**
+	 * Method to store the pixels of a block, keeping the alpha of each pixel.
+	 * The part of a block that hangs over the edge of the picture is dropped.
+	 *
+	 * @param raster  the pixels of the picture
+	 * @param r       the top row of the block
+	 * @param c       the left column of the block
+	 * @param samples the 64 red, green and blue values to store
+	 */
+	private static void storeBlock(PictureRaster raster, int r, int c, int[] samples) {
+		storeArea(raster, r, c, BLOCK_SIZE, BLOCK_SIZE, samples);
+	}
+
+	/**
+	 * Method to store the pixels of an area, keeping the alpha of each pixel and
+	 * dropping the part that hangs over the edge of the picture
+	 *
+	 * @param raster  the pixels of the picture
+	 * @param r       the top row of the area
+	 * @param c       the left column of the area
+	 * @param rows    the number of rows in the area
+	 * @param cols    the number of columns in the area
+	 * @param samples the red, green and blue values to store, row by row
+	 */
+	private static void storeArea(PictureRaster raster, int r, int c, int rows, int cols, int[] samples) {
+		int[] data = raster.getData();
+		int rowsInside = Math.min(rows, raster.getHeight() - r);
+		int colsInside = Math.min(cols, raster.getWidth() - c);
+		for (int i = 0; i < rowsInside; i++) {
+			int index = raster.index(c, r + i);
+			for (int j = 0; j < colsInside; j++)
+				data[index + j] = (data[index + j] & 0xff000000) | samples[i * cols + j];
+		}
+	}
+
+	/**
+	 * Method to get the row or column to read for a position that may be past
+	 * the last one
+	 *
+	 * @param position the row or column
+	 * @param length   the number of rows or columns
+	 * @return a row or column from 0 to length - 1
+	 */
+	private int edgeIndex(int position, int length) {
+		if (position < length)
+			return position;
+		if (edgeMode == EdgeMode.MIRROR)
+			return Math.max(0, 2 * (length - 1) - position);
+		return length - 1;
+	}
+
+	/**
+	 * Method to find the extent of the non-zero coefficients of a block: the
+	 * smallest n where every coefficient at a row or column of n or more is zero
+	 *
+	 * @param block the 64 coefficients in row-major order
+	 * @param keep  the number of rows and columns that are kept (the rest are
+	 *              already zero)
+	 * @return the extent from 0 (all zero) to keep
+	 */
+	private static int extent(double[] block, int keep) {
+		int rows = 0;
+		int cols = 0;
+		for (int i = 0; i < keep; i++) {
+			for (int j = 0; j < keep; j++) {
+				if (block[i * BLOCK_SIZE + j] != 0) {
+					rows |= 1 << i;
+					cols |= 1 << j;
+				}
+			}
+		}
+		return 32 - Integer.numberOfLeadingZeros(rows | cols);
+	}
+
+	/**
+	 * Method to find the extent of the non-zero coefficients of a block of
+	 * integers
+	 *
+	 * @param block the 64 coefficients in row-major order
+	 * @param keep  the number of rows and columns that are kept (the rest are
+	 *              already zero)
+	 * @return the extent from 0 (all zero) to keep
+	 */
+	private static int extent(int[] block, int keep) {
+		int rows = 0;
+		int cols = 0;
+		for (int i = 0; i < keep; i++) {
+			for (int j = 0; j < keep; j++) {
+				if (block[i * BLOCK_SIZE + j] != 0) {
+					rows |= 1 << i;
+					cols |= 1 << j;
+				}
+			}
+		}
+		return 32 - Integer.numberOfLeadingZeros(rows | cols);
+	}
+
+	/**
+	 * Method to make a mask that is 1 for the frequencies below keep in both
+	 * directions and 0 for the rest
+	 *
+	 * @param keep the number of frequencies to keep in each direction
+	 * @return the 64 mask values in row-major order
+	 */
+	private static double[] lowPassMask(int keep) {
+		double[] mask = new double[BLOCK_AREA];
+		for (int i = 0; i < keep; i++) {
+			for (int j = 0; j < keep; j++)
+				mask[i * BLOCK_SIZE + j] = 1;
+		}
+		return mask;
+	}
+
+	/**
+	 * Method to get the number of blocks needed to cover a length of pixels
+	 *
+	 * @param length the number of pixels
+	 * @return the number of blocks
+	 */
+	private static int blockCount(int length) {
+		return (length + BLOCK_SIZE - 1) / BLOCK_SIZE;
+	}
+
+	/**
+	 * Method to convert a YCbCr sample to a red, green and blue pixel, rounding
+	 * each color to the nearest value
+	 *
+	 * @param luminance the Y sample (0 to 255)
+	 * @param blue      the Cb sample (0 to 255, 128 is no color)
+	 * @param red       the Cr sample (0 to 255, 128 is no color)
+	 * @return the pixel, red in bits 16 to 23, green 8 to 15 and blue 0 to 7
+	 */
+	private static int toRgb(double luminance, double blue, double red) {
+		luminance += 0.5;
+		double blueDifference = blue - 128;
+		double redDifference = red - 128;
+		return (toColorValue(luminance + 1.402 * redDifference) << 16)
+				| (toColorValue(luminance - 0.344136 * blueDifference - 0.714136 * redDifference) << 8)
+				| toColorValue(luminance + 1.772 * blueDifference);
+	}
+
+	/**
+	 * Method to turn an inverse transformed value into a color value from 0 to 255
+	 *
+	 * @param value the inverse transformed value
+	 * @return the color value
+	 */
+	private static int toColorValue(double value) {
+		if (value >= 255)
+			return 255;
+		if (value <= 0)
+			return 0;
+		return (int) value;
+	}
+}
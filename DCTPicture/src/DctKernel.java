@@ -0,0 +1,18 @@
+/**
+ * Interface to describe a kernel that does the two dimensional discrete cosine
+ * transform of one 8x8 block. The coefficients are orthonormal, so the DC
+ * coefficient is 8 times the average of the block. A kernel keeps no state
+ * between calls, so the same kernel can be used by several threads at once.
+ * A kernel can also take the extent of the non-zero coefficients of a block
+ * (every coefficient at a row or column of extent or more is zero) and take a
+ * cheaper path for sparse blocks; by default it does the full inverse. The
+ * masking step of a blur is also done by the kernel so that a kernel with
+ * wider arithmetic can do it with that.
+ */
+public interface DctKernel 
+{
+  public void forward(double[] block); // transform 64 samples in row-major order in place
+  public void inverse(double[] block); // inverse transform 64 coefficients in row-major order in place
+  public default void inverse(double[] block, int extent) { inverse(block); } // inverse of a block that is zero outside the extent x extent corner
+  public default void multiply(double[] block, double[] mask) { for (int k = 0; k < 64; k++) block[k] *= mask[k]; } // multiply the 64 values by the matching mask values in place
+}
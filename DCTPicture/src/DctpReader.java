@@ -0,0 +1,261 @@
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A class that reads pictures written by a DctpWriter. The header is read
+ * when the reader is made, so the size and layout of the picture are known
+ * before its blocks are decoded. The coded blocks stream from the channel
+ * through a small buffer straight into the coefficients.
+ */
+public class DctpReader {
+	/** where the bits are read from */
+	private final BitReader in;
+
+	/** the layout, DctpWriter.LAYOUT_RGB or LAYOUT_YCBCR */
+	private final int layout;
+
+	/** the width of the picture */
+	private final int width;
+
+	/** the height of the picture */
+	private final int height;
+
+	/** how the chroma is subsampled (4:4:4 for red, green and blue) */
+	private final ChromaSubsampling subsampling;
+
+	/** the quantization table of each component */
+	private final QuantizationTable[] quantization;
+
+	/** the DC Huffman table of each component */
+	private final HuffmanTable[] dcTables;
+
+	/** the AC Huffman table of each component */
+	private final HuffmanTable[] acTables;
+
+	/** the time the reader was made */
+	private final long start = System.nanoTime();
+
+	/** the size and speed of the last read */
+	private CompressionStats stats;
+
+	/**
+	 * Constructor that reads the header from a channel
+	 * 
+	 * @param channel the channel to read from
+	 * @throws IOException if it isn't a .dctp file or can't be read
+	 */
+	public DctpReader(ReadableByteChannel channel) throws IOException {
+		in = new BitReader(channel, false);
+		if (in.readInt() != DctpWriter.MAGIC)
+			throw new IOException("this isn't a .dctp file");
+		int version = in.readByte();
+		if (version != DctpWriter.VERSION)
+			throw new IOException("version " + version + " of the .dctp format isn't supported");
+		layout = in.readByte();
+		if (layout != DctpWriter.LAYOUT_RGB && layout != DctpWriter.LAYOUT_YCBCR)
+			throw new IOException("unknown layout " + layout);
+		int horizontal = in.readByte();
+		int vertical = in.readByte();
+		subsampling = ChromaSubsampling.forFactors(horizontal, vertical);
+		width = in.readInt();
+		height = in.readInt();
+
+		QuantizationTable[] tables = new QuantizationTable[in.readByte()];
+		for (int table = 0; table < tables.length; table++) {
+			int[] steps = new int[64];
+			for (int k = 0; k < 64; k++)
+				steps[k] = in.readShort();
+			tables[table] = new QuantizationTable(steps);
+		}
+		int components = in.readByte();
+		if (components != 3)
+			throw new IOException("a picture has 3 components but the file has " + components);
+		int[] quantizationOf = new int[components];
+		int[] dcOf = new int[components];
+		int[] acOf = new int[components];
+		for (int component = 0; component < components; component++) {
+			quantizationOf[component] = in.readByte();
+			dcOf[component] = in.readByte();
+			acOf[component] = in.readByte();
+		}
+		HuffmanTable[] dc = new HuffmanTable[in.readByte()];
+		for (int table = 0; table < dc.length; table++)
+			dc[table] = readTable(in);
+		HuffmanTable[] ac = new HuffmanTable[dc.length];
+		for (int table = 0; table < ac.length; table++)
+			ac[table] = readTable(in);
+
+		quantization = new QuantizationTable[components];
+		dcTables = new HuffmanTable[components];
+		acTables = new HuffmanTable[components];
+		try {
+			for (int component = 0; component < components; component++) {
+				quantization[component] = tables[quantizationOf[component]];
+				dcTables[component] = dc[dcOf[component]];
+				acTables[component] = ac[acOf[component]];
+			}
+		} catch (ArrayIndexOutOfBoundsException e) {
+			throw new IOException("a component uses a table that isn't in the file");
+		}
+	}
+
+	/**
+	 * Method to read a whole .dctp file into a picture
+	 * 
+	 * @param file the file
+	 * @return the picture
+	 * @throws IOException if the file isn't a .dctp file or can't be read
+	 */
+	public static BufferedImage read(File file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			DctpReader reader = new DctpReader(channel);
+			BufferedImage image = new BufferedImage(reader.getWidth(), reader.getHeight(),
+					BufferedImage.TYPE_INT_RGB);
+			reader.read(new PictureRaster(image), new DctEngine());
+			return image;
+		}
+	}
+
+	/**
+	 * Method to get the width of the picture
+	 * 
+	 * @return the width in pixels
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * Method to get the height of the picture
+	 * 
+	 * @return the height in pixels
+	 */
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * Method to tell if the picture is stored as YCbCr
+	 * 
+	 * @return true for YCbCr, false for red, green and blue
+	 */
+	public boolean isYCbCr() {
+		return layout == DctpWriter.LAYOUT_YCBCR;
+	}
+
+	/**
+	 * Method to get how the chroma is subsampled
+	 * 
+	 * @return the subsampling
+	 */
+	public ChromaSubsampling getSubsampling() {
+		return subsampling;
+	}
+
+	/**
+	 * Method to get the quantization table of a component
+	 * 
+	 * @param component the component
+	 * @return the table
+	 */
+	public QuantizationTable getQuantization(int component) {
+		return quantization[component];
+	}
+
+	/**
+	 * Method to decode the blocks of a YCbCr picture
+	 * 
+	 * @return the quantized coefficients
+	 * @throws IOException if the blocks can't be read
+	 */
+	public YCbCrImage readYCbCr() throws IOException {
+		if (!isYCbCr())
+			throw new IllegalStateException("the picture is stored as red, green and blue");
+		YCbCrImage ycbcr = YCbCrImage.createQuantized(width, height, subsampling, quantization);
+		try {
+			new RunLengthCoder(3).decode(new HuffmanDecoder(in, dcTables, acTables), ycbcr);
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+		finish();
+		return ycbcr;
+	}
+
+	/**
+	 * Method to decode the blocks of a red, green and blue picture
+	 * 
+	 * @return the quantized coefficients
+	 * @throws IOException if the blocks can't be read
+	 */
+	public CoefficientImage readRgb() throws IOException {
+		if (isYCbCr())
+			throw new IllegalStateException("the picture is stored as YCbCr");
+		CoefficientImage image = CoefficientImage.createQuantized(width, height, quantization);
+		try {
+			new RunLengthCoder(3).decode(new HuffmanDecoder(in, dcTables, acTables), image);
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+		finish();
+		return image;
+	}
+
+	/**
+	 * Method to decode the picture into pixels
+	 * 
+	 * @param raster the pixels to set, the size of the picture
+	 * @param engine the engine to inverse transform with
+	 * @throws IOException if the blocks can't be read
+	 */
+	public void read(PictureRaster raster, DctEngine engine) throws IOException {
+		if (isYCbCr())
+			engine.inverse(readYCbCr(), raster);
+		else
+			engine.inverse(readRgb(), raster, 8);
+		finish();
+	}
+
+	/**
+	 * Method to get the size and speed of the last read, from when the reader was
+	 * made
+	 * 
+	 * @return the stats, or null if nothing has been read
+	 */
+	public CompressionStats getStats() {
+		return stats;
+	}
+
+	/**
+	 * Method to record the stats of a read
+	 */
+	private void finish() {
+		stats = new CompressionStats((long) width * height, in.getBytesRead(), System.nanoTime() - start);
+	}
+
+	/**
+	 * Method to read a Huffman table as its counts of code lengths and symbols
+	 * 
+	 * @param in where to read
+	 * @return the table
+	 * @throws IOException if the table can't be read
+	 */
+	static HuffmanTable readTable(BitReader in) throws IOException {
+		int[] counts = new int[16];
+		int total = 0;
+		for (int length = 0; length < 16; length++) {
+			counts[length] = in.readByte();
+			total += counts[length];
+		}
+		if (total > 256)
+			throw new IOException("a Huffman table has " + total + " codes");
+		int[] symbols = new int[total];
+		for (int i = 0; i < total; i++)
+			symbols[i] = in.readByte();
+		return new HuffmanTable(counts, symbols);
+	}
+}
@@ -0,0 +1,288 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * A class that writes pictures in the .dctp format: the quantized discrete
+ * cosine transform coefficients of the picture, run-length coded and then
+ * Huffman coded with tables made for the picture. The file is
+ * 
+ * <pre>
+ * "DCTP", version (1 byte), layout (1 byte: 0 RGB, 1 YCbCr),
+ * luma blocks across and down an MCU (1 byte each), width and height (4 bytes each),
+ * number of quantization tables (1 byte), each 64 steps (2 bytes each, row-major),
+ * number of components (1 byte), each its quantization, DC and AC table (1 byte each),
+ * number of Huffman tables of each kind (1 byte), the DC tables then the AC tables,
+ *   each 16 counts of code lengths (1 byte each) and then the symbols (1 byte each),
+ * the coded blocks, padded with 1 bits to a whole byte.
+ * </pre>
+ * 
+ * The blocks are coded in two passes: the first counts the symbols to build
+ * the Huffman tables, the second writes them. The coded blocks stream through
+ * a small buffer to the channel, so the file is never held in memory.
+ */
+public class DctpWriter {
+	/** the first 4 bytes of a .dctp file */
+	public static final int MAGIC = ('D' << 24) | ('C' << 16) | ('T' << 8) | 'P';
+
+	/** the version of the format */
+	public static final int VERSION = 1;
+
+	/** the layout of a red, green and blue picture */
+	public static final int LAYOUT_RGB = 0;
+
+	/** the layout of a YCbCr picture */
+	public static final int LAYOUT_YCBCR = 1;
+
+	/** the quality pictures are quantized at */
+	private int quality = 75;
+
+	/** how the chroma of pictures is subsampled */
+	private ChromaSubsampling subsampling = ChromaSubsampling.S420;
+
+	/** the engine that transforms pictures */
+	private DctEngine engine = new DctEngine();
+
+	/**
+	 * Method to get the quality pictures are quantized at
+	 * 
+	 * @return the quality from 1 to 100
+	 */
+	public int getQuality() {
+		return quality;
+	}
+
+	/**
+	 * Method to set the quality pictures are quantized at
+	 * 
+	 * @param quality the quality from 1 to 100
+	 */
+	public void setQuality(int quality) {
+		if (quality < 1 || quality > 100)
+			throw new IllegalArgumentException("quality must be 1 to 100 but was " + quality);
+		this.quality = quality;
+	}
+
+	/**
+	 * Method to get how the chroma of pictures is subsampled
+	 * 
+	 * @return the subsampling
+	 */
+	public ChromaSubsampling getSubsampling() {
+		return subsampling;
+	}
+
+	/**
+	 * Method to set how the chroma of pictures is subsampled
+	 * 
+	 * @param subsampling the subsampling
+	 */
+	public void setSubsampling(ChromaSubsampling subsampling) {
+		this.subsampling = subsampling;
+	}
+
+	/**
+	 * Method to set the engine that transforms pictures
+	 * 
+	 * @param engine the engine to use
+	 */
+	public void setEngine(DctEngine engine) {
+		this.engine = engine;
+	}
+
+	/**
+	 * Method to transform, quantize and write a picture to a file
+	 * 
+	 * @param raster the pixels of the picture
+	 * @param file   the file to write
+	 * @return the size and speed
+	 * @throws IOException if the file can't be written
+	 */
+	public CompressionStats write(PictureRaster raster, File file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE,
+				StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			return write(raster, channel);
+		}
+	}
+
+	/**
+	 * Method to transform, quantize and write a picture to a channel
+	 * 
+	 * @param raster  the pixels of the picture
+	 * @param channel the channel to write to
+	 * @return the size and speed, including the transform
+	 * @throws IOException if the channel can't be written
+	 */
+	public CompressionStats write(PictureRaster raster, WritableByteChannel channel) throws IOException {
+		long start = System.nanoTime();
+		YCbCrImage ycbcr = YCbCrImage.createQuantized(raster.getWidth(), raster.getHeight(), subsampling, quality);
+		engine.forward(raster, ycbcr);
+		long bytes = writeYCbCr(ycbcr, channel);
+		return new CompressionStats((long) raster.getWidth() * raster.getHeight(), bytes, System.nanoTime() - start);
+	}
+
+	/**
+	 * Method to write quantized YCbCr coefficients to a channel
+	 * 
+	 * @param ycbcr   the coefficients
+	 * @param channel the channel to write to
+	 * @return the size and speed
+	 * @throws IOException if the channel can't be written
+	 */
+	public CompressionStats write(YCbCrImage ycbcr, WritableByteChannel channel) throws IOException {
+		long start = System.nanoTime();
+		long bytes = writeYCbCr(ycbcr, channel);
+		return new CompressionStats((long) ycbcr.getWidth() * ycbcr.getHeight(), bytes, System.nanoTime() - start);
+	}
+
+	/**
+	 * Method to write quantized red, green and blue coefficients to a channel.
+	 * The picture is the size of the image.
+	 * 
+	 * @param image   the coefficients
+	 * @param channel the channel to write to
+	 * @return the size and speed
+	 * @throws IOException if the channel can't be written
+	 */
+	public CompressionStats write(CoefficientImage image, WritableByteChannel channel) throws IOException {
+		if (image.getChannels() != CoefficientImage.CHANNELS)
+			throw new IllegalArgumentException("a picture needs " + CoefficientImage.CHANNELS + " channels");
+		long start = System.nanoTime();
+		QuantizationTable[] tables = new QuantizationTable[CoefficientImage.CHANNELS];
+		for (int channelIndex = 0; channelIndex < tables.length; channelIndex++)
+			tables[channelIndex] = quantizationOf(image.getQuantization(channelIndex));
+		long bytes = write(channel, LAYOUT_RGB, image.getWidth(), image.getHeight(), 1, 1, tables,
+				new int[] { 0, 0, 0 }, (coder, sink) -> coder.encode(image, sink));
+		return new CompressionStats((long) image.getWidth() * image.getHeight(), bytes, System.nanoTime() - start);
+	}
+
+	/**
+	 * Method to write YCbCr coefficients
+	 * 
+	 * @param ycbcr   the coefficients
+	 * @param channel the channel to write to
+	 * @return the number of bytes written
+	 * @throws IOException if the channel can't be written
+	 */
+	private long writeYCbCr(YCbCrImage ycbcr, WritableByteChannel channel) throws IOException {
+		QuantizationTable[] tables = new QuantizationTable[3];
+		for (int component = 0; component < tables.length; component++)
+			tables[component] = quantizationOf(ycbcr.getQuantization(component));
+		ChromaSubsampling sampling = ycbcr.getSubsampling();
+		return write(channel, LAYOUT_YCBCR, ycbcr.getWidth(), ycbcr.getHeight(), sampling.getHorizontal(),
+				sampling.getVertical(), tables, new int[] { 0, 1, 1 }, (coder, sink) -> coder.encode(ycbcr, sink));
+	}
+
+	/**
+	 * Method to get the table that was used to quantize coefficients
+	 * 
+	 * @param table the table of the image, or null if it isn't quantized
+	 * @return the table, steps of 1 if the image isn't quantized
+	 */
+	private static QuantizationTable quantizationOf(QuantizationTable table) {
+		return (table == null) ? QuantizationTable.uniform(1) : table;
+	}
+
+	/**
+	 * Method to write the header and the coded blocks
+	 * 
+	 * @param channel    the channel to write to
+	 * @param layout     the layout
+	 * @param width      the width of the picture
+	 * @param height     the height of the picture
+	 * @param horizontal the luma blocks across an MCU
+	 * @param vertical   the luma blocks down an MCU
+	 * @param tables     the quantization table of each component
+	 * @param huffmanOf  the Huffman tables (DC and AC) of each component
+	 * @param encode     runs a coder over all the blocks into a sink
+	 * @return the number of bytes written
+	 * @throws IOException if the channel can't be written
+	 */
+	private static long write(WritableByteChannel channel, int layout, int width, int height, int horizontal,
+			int vertical, QuantizationTable[] tables, int[] huffmanOf, BiConsumer<RunLengthCoder, SymbolSink> encode)
+			throws IOException {
+		int components = tables.length;
+
+		// the components can share quantization tables
+		List<QuantizationTable> unique = new ArrayList<QuantizationTable>();
+		int[] quantizationOf = new int[components];
+		for (int component = 0; component < components; component++) {
+			if (!unique.contains(tables[component]))
+				unique.add(tables[component]);
+			quantizationOf[component] = unique.indexOf(tables[component]);
+		}
+
+		// the first pass counts the symbols
+		int huffmanTables = 0;
+		for (int table : huffmanOf)
+			huffmanTables = Math.max(huffmanTables, table + 1);
+		SymbolCounter counter = new SymbolCounter(huffmanOf, huffmanOf, huffmanTables);
+		encode.accept(new RunLengthCoder(components), counter);
+		HuffmanTable[] dcTables = new HuffmanTable[huffmanTables];
+		HuffmanTable[] acTables = new HuffmanTable[huffmanTables];
+		for (int table = 0; table < huffmanTables; table++) {
+			dcTables[table] = counter.getDcTable(table);
+			acTables[table] = counter.getAcTable(table);
+		}
+
+		BitWriter out = new BitWriter(channel, false);
+		out.writeInt(MAGIC);
+		out.writeByte(VERSION);
+		out.writeByte(layout);
+		out.writeByte(horizontal);
+		out.writeByte(vertical);
+		out.writeInt(width);
+		out.writeInt(height);
+		out.writeByte(unique.size());
+		for (QuantizationTable table : unique) {
+			for (int k = 0; k < 64; k++)
+				out.writeShort(table.getStep(k));
+		}
+		out.writeByte(components);
+		for (int component = 0; component < components; component++) {
+			out.writeByte(quantizationOf[component]);
+			out.writeByte(huffmanOf[component]);
+			out.writeByte(huffmanOf[component]);
+		}
+		out.writeByte(huffmanTables);
+		for (HuffmanTable table : dcTables)
+			writeTable(out, table);
+		for (HuffmanTable table : acTables)
+			writeTable(out, table);
+
+		// the second pass codes the blocks
+		HuffmanTable[] dcOf = new HuffmanTable[components];
+		HuffmanTable[] acOf = new HuffmanTable[components];
+		for (int component = 0; component < components; component++) {
+			dcOf[component] = dcTables[huffmanOf[component]];
+			acOf[component] = acTables[huffmanOf[component]];
+		}
+		try {
+			encode.accept(new RunLengthCoder(components), new HuffmanEncoder(out, dcOf, acOf));
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+		out.flush();
+		return out.getBytesWritten();
+	}
+
+	/**
+	 * Method to write a Huffman table as its counts of code lengths and symbols
+	 * 
+	 * @param out   where to write
+	 * @param table the table
+	 * @throws IOException if the channel can't be written
+	 */
+	static void writeTable(BitWriter out, HuffmanTable table) throws IOException {
+		for (int count : table.getCounts())
+			out.writeByte(count);
+		for (int symbol : table.getSymbols())
+			out.writeByte(symbol);
+	}
+}
@@ -0,0 +1,38 @@
+/**
+ * A class that reads run-length symbols written by a HuffmanEncoder.
+ */
+public class HuffmanDecoder implements SymbolSource {
+	/** where to read the bits */
+	private final BitReader in;
+
+	/** the DC table of each component */
+	private final HuffmanTable[] dcTables;
+
+	/** the AC table of each component */
+	private final HuffmanTable[] acTables;
+
+	/**
+	 * Constructor that takes where to read and the tables of each component
+	 * 
+	 * @param in       where to read the bits
+	 * @param dcTables the DC table of each component
+	 * @param acTables the AC table of each component
+	 */
+	public HuffmanDecoder(BitReader in, HuffmanTable[] dcTables, HuffmanTable[] acTables) {
+		this.in = in;
+		this.dcTables = dcTables.clone();
+		this.acTables = acTables.clone();
+	}
+
+	public int readDcSymbol(int component) {
+		return dcTables[component].decode(in);
+	}
+
+	public int readAcSymbol(int component) {
+		return acTables[component].decode(in);
+	}
+
+	public int readBits(int size) {
+		return in.readBits(size);
+	}
+}
@@ -0,0 +1,58 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * A class that writes run-length symbols with Huffman codes, each code
+ * followed by the amplitude bits of its symbol.
+ */
+public class HuffmanEncoder implements SymbolSink {
+	/** where to write the bits */
+	private final BitWriter out;
+
+	/** the DC table of each component */
+	private final HuffmanTable[] dcTables;
+
+	/** the AC table of each component */
+	private final HuffmanTable[] acTables;
+
+	/**
+	 * Constructor that takes where to write and the tables of each component
+	 * 
+	 * @param out      where to write the bits
+	 * @param dcTables the DC table of each component
+	 * @param acTables the AC table of each component
+	 */
+	public HuffmanEncoder(BitWriter out, HuffmanTable[] dcTables, HuffmanTable[] acTables) {
+		this.out = out;
+		this.dcTables = dcTables.clone();
+		this.acTables = acTables.clone();
+	}
+
+	public void dcSymbol(int component, int size, int amplitude) {
+		write(dcTables[component], size, amplitude, size);
+	}
+
+	public void acSymbol(int component, int runSize, int amplitude) {
+		write(acTables[component], runSize, amplitude, runSize & 15);
+	}
+
+	/**
+	 * Method to write the code of a symbol and its amplitude bits
+	 * 
+	 * @param table     the Huffman table
+	 * @param symbol    the symbol
+	 * @param amplitude the amplitude bits
+	 * @param size      the number of amplitude bits
+	 */
+	private void write(HuffmanTable table, int symbol, int amplitude, int size) {
+		int length = table.getLength(symbol);
+		if (length == 0)
+			throw new IllegalStateException("the symbol " + symbol + " has no Huffman code");
+		try {
+			out.writeBits(table.getCode(symbol), length);
+			out.writeBits(amplitude, size);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+}
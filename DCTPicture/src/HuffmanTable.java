@@ -0,0 +1,243 @@
+import java.util.Arrays;
+
+/**
+ * A class that holds a Huffman code for the 256 byte symbols the way a JPEG
+ * file stores it: the number of codes of each length from 1 to 16 bits and
+ * the symbols in order of code length. The codes are canonical, so those two
+ * lists are enough to rebuild them. An optimal table for a picture can be
+ * made from how often each symbol is used (the first pass of a two pass
+ * encoder), with the method of the JPEG standard that keeps every code at 16
+ * bits or less and never uses a code of all ones.
+ */
+public class HuffmanTable {
+	/** the number of bits the decoder looks at at once */
+	private static final int LOOKAHEAD = 9;
+
+	/** counts[length] is the number of codes of each length (1 to 16) */
+	private final int[] counts = new int[17];
+
+	/** the symbols in order of code length */
+	private final int[] symbols;
+
+	/** the code of each symbol */
+	private final int[] codes = new int[256];
+
+	/** the length of the code of each symbol, 0 if the symbol has no code */
+	private final int[] lengths = new int[256];
+
+	/** the largest code of each length, -1 if there are none */
+	private final int[] maxCode = new int[18];
+
+	/** the index in symbols of the first code of each length minus that code */
+	private final int[] offsets = new int[17];
+
+	/** (length << 8) | symbol for each LOOKAHEAD bits that start a short code, or -1 */
+	private final int[] lookup = new int[1 << LOOKAHEAD];
+
+	/**
+	 * Constructor that takes the counts of codes of each length and the symbols
+	 * 
+	 * @param counts  the number of codes of length 1 to 16 (16 values)
+	 * @param symbols the symbols in order of code length
+	 */
+	public HuffmanTable(int[] counts, int[] symbols) {
+		if (counts.length != 16)
+			throw new IllegalArgumentException("there must be a count for each length from 1 to 16");
+		int total = 0;
+		for (int length = 1; length <= 16; length++) {
+			this.counts[length] = counts[length - 1];
+			total += counts[length - 1];
+		}
+		if (total != symbols.length || total > 256)
+			throw new IllegalArgumentException("the counts add up to " + total + " but there are "
+					+ symbols.length + " symbols");
+		this.symbols = symbols.clone();
+
+		// give out the codes in order, one more bit each time the length goes up
+		Arrays.fill(lookup, -1);
+		int code = 0;
+		int index = 0;
+		for (int length = 1; length <= 16; length++) {
+			offsets[length] = index - code;
+			for (int i = 0; i < this.counts[length]; i++) {
+				int symbol = symbols[index++];
+				codes[symbol] = code;
+				lengths[symbol] = length;
+				if (length <= LOOKAHEAD) {
+					int first = code << (LOOKAHEAD - length);
+					for (int fill = 0; fill < (1 << (LOOKAHEAD - length)); fill++)
+						lookup[first + fill] = (length << 8) | symbol;
+				}
+				code++;
+			}
+			maxCode[length] = (this.counts[length] > 0) ? code - 1 : -1;
+			if (code > (1 << length))
+				throw new IllegalArgumentException("there are too many codes of length " + length);
+			code <<= 1;
+		}
+		maxCode[17] = Integer.MAX_VALUE;
+	}
+
+	/**
+	 * Method to make the best table for how often each symbol is used
+	 * 
+	 * @param frequencies the number of times each of the 256 symbols is used
+	 * @return the table
+	 */
+	public static HuffmanTable optimal(long[] frequencies) {
+		// a reserved symbol 256 keeps any real code from being all ones
+		long[] freq = new long[257];
+		System.arraycopy(frequencies, 0, freq, 0, 256);
+		boolean used = false;
+		for (int i = 0; i < 256; i++)
+			used |= freq[i] > 0;
+		if (!used)
+			freq[0] = 1;
+		freq[256] = 1;
+		int[] codeSize = new int[257];
+		int[] others = new int[257];
+		Arrays.fill(others, -1);
+
+		while (true) {
+			// find the two least used trees, the larger index on a tie
+			int c1 = -1;
+			long v = Long.MAX_VALUE;
+			for (int i = 0; i <= 256; i++) {
+				if (freq[i] > 0 && freq[i] <= v) {
+					v = freq[i];
+					c1 = i;
+				}
+			}
+			int c2 = -1;
+			v = Long.MAX_VALUE;
+			for (int i = 0; i <= 256; i++) {
+				if (freq[i] > 0 && freq[i] <= v && i != c1) {
+					v = freq[i];
+					c2 = i;
+				}
+			}
+			if (c2 < 0)
+				break;
+
+			// merge them, making every symbol in both one bit longer
+			freq[c1] += freq[c2];
+			freq[c2] = 0;
+			codeSize[c1]++;
+			while (others[c1] >= 0) {
+				c1 = others[c1];
+				codeSize[c1]++;
+			}
+			others[c1] = c2;
+			codeSize[c2]++;
+			while (others[c2] >= 0) {
+				c2 = others[c2];
+				codeSize[c2]++;
+			}
+		}
+
+		int[] bits = new int[33];
+		for (int i = 0; i <= 256; i++) {
+			if (codeSize[i] > 0)
+				bits[codeSize[i]]++;
+		}
+
+		// move codes longer than 16 bits up the tree
+		for (int i = 32; i > 16; i--) {
+			while (bits[i] > 0) {
+				int j = i - 2;
+				while (bits[j] == 0)
+					j--;
+				bits[i] -= 2;
+				bits[i - 1]++;
+				bits[j + 1] += 2;
+				bits[j]--;
+			}
+		}
+
+		// drop the reserved symbol, which has one of the longest codes
+		int longest = 16;
+		while (bits[longest] == 0)
+			longest--;
+		bits[longest]--;
+
+		int[] counts = new int[16];
+		int total = 0;
+		for (int length = 1; length <= 16; length++) {
+			counts[length - 1] = bits[length];
+			total += bits[length];
+		}
+		int[] symbols = new int[total];
+		int index = 0;
+		for (int size = 1; size <= 32 && index < total; size++) {
+			for (int symbol = 0; symbol < 256 && index < total; symbol++) {
+				if (codeSize[symbol] == size)
+					symbols[index++] = symbol;
+			}
+		}
+		return new HuffmanTable(counts, symbols);
+	}
+
+	/**
+	 * Method to get the number of codes of each length
+	 * 
+	 * @return the counts of lengths 1 to 16 (16 values)
+	 */
+	public int[] getCounts() {
+		int[] result = new int[16];
+		System.arraycopy(counts, 1, result, 0, 16);
+		return result;
+	}
+
+	/**
+	 * Method to get the symbols in order of code length
+	 * 
+	 * @return the symbols
+	 */
+	public int[] getSymbols() {
+		return symbols.clone();
+	}
+
+	/**
+	 * Method to get the code of a symbol
+	 * 
+	 * @param symbol the symbol
+	 * @return the code, in the low getLength(symbol) bits
+	 */
+	public int getCode(int symbol) {
+		return codes[symbol];
+	}
+
+	/**
+	 * Method to get the length of the code of a symbol
+	 * 
+	 * @param symbol the symbol
+	 * @return the number of bits, 0 if the symbol has no code
+	 */
+	public int getLength(int symbol) {
+		return lengths[symbol];
+	}
+
+	/**
+	 * Method to read one symbol. Codes of up to 9 bits are found with one table
+	 * lookup; longer ones are found by length.
+	 * 
+	 * @param in where to read the bits
+	 * @return the symbol
+	 */
+	public int decode(BitReader in) {
+		int entry = lookup[in.peekBits(LOOKAHEAD)];
+		if (entry >= 0) {
+			in.skipBits(entry >> 8);
+			return entry & 0xff;
+		}
+		int bits = in.peekBits(16);
+		for (int length = LOOKAHEAD + 1; length <= 16; length++) {
+			int code = bits >>> (16 - length);
+			if (code <= maxCode[length]) {
+				in.skipBits(length);
+				return symbols[offsets[length] + code];
+			}
+		}
+		throw new IllegalStateException("the bits " + Integer.toBinaryString(bits) + " aren't a Huffman code");
+	}
+}
@@ -0,0 +1,262 @@
+import java.util.Arrays;
+
+/**
+ * A kernel that does the discrete cosine transform of a block with fixed point
+ * integer arithmetic (the accurate integer "islow" method of the Independent
+ * JPEG Group's library). The constants are 13 bit fixed point numbers and
+ * every rounding is a shift, so the results are exactly the same on every JVM
+ * and CPU. The coefficients are the orthonormal ones rounded to integers, so
+ * they fit in a short: the DC coefficient of a block is 8 times its average.
+ */
+public class IntegerDctKernel {
+	/** the number of fraction bits of the constants */
+	private static final int CONST_BITS = 13;
+
+	/** the number of extra bits kept between the two passes */
+	private static final int PASS1_BITS = 2;
+
+	private static final int FIX_0_298631336 = 2446;
+	private static final int FIX_0_390180644 = 3196;
+	private static final int FIX_0_541196100 = 4433;
+	private static final int FIX_0_765366865 = 6270;
+	private static final int FIX_0_899976223 = 7373;
+	private static final int FIX_1_175875602 = 9633;
+	private static final int FIX_1_501321110 = 12299;
+	private static final int FIX_1_847759065 = 15137;
+	private static final int FIX_1_961570560 = 16069;
+	private static final int FIX_2_053119869 = 16819;
+	private static final int FIX_2_562915447 = 20995;
+	private static final int FIX_3_072711026 = 25172;
+
+	/** the DC coefficient of a block where every sample is 128 */
+	private static final int DC_OFFSET = 8 * 128;
+
+	/**
+	 * Method to do the forward transform of one block in place
+	 *
+	 * @param block the 64 samples (0 to 255) of the block in row-major order
+	 */
+	public void forward(int[] block) {
+		// center the samples on zero so the intermediate values stay small
+		for (int k = 0; k < 64; k++)
+			block[k] -= 128;
+
+		for (int row = 0; row < 64; row += 8)
+			forward1D(block, row, 1, PASS1_BITS, CONST_BITS - PASS1_BITS, 0);
+
+		// the columns also remove the factor of 8 the butterflies leave in
+		for (int col = 0; col < 8; col++)
+			forward1D(block, col, 8, 0, CONST_BITS + PASS1_BITS + 3, PASS1_BITS + 3);
+
+		block[0] += DC_OFFSET;
+	}
+
+	/**
+	 * Method to do the inverse transform of one block in place. The samples are
+	 * clamped to 0 to 255.
+	 *
+	 * @param block the 64 coefficients of the block in row-major order
+	 */
+	public void inverse(int[] block) {
+		block[0] -= DC_OFFSET;
+
+		for (int col = 0; col < 8; col++)
+			inverse1D(block, col, 8, CONST_BITS - PASS1_BITS);
+		for (int row = 0; row < 64; row += 8)
+			inverse1D(block, row, 1, CONST_BITS + PASS1_BITS + 3);
+
+		for (int k = 0; k < 64; k++)
+			block[k] = clamp(block[k] + 128);
+	}
+
+	/**
+	 * Method to do the inverse transform of one block in place when every
+	 * coefficient at a row or column of extent or more is zero. A block with only
+	 * a DC coefficient is filled with its average and the all zero columns are
+	 * skipped. The samples are exactly the same as from inverse(block).
+	 *
+	 * @param block  the 64 coefficients of the block in row-major order
+	 * @param extent the number of rows and columns that can be non-zero (0 to 8)
+	 */
+	public void inverse(int[] block, int extent) {
+		if (extent >= 8) {
+			inverse(block);
+			return;
+		}
+		if (extent <= 1) {
+			// both passes reduce to dividing the DC coefficient by 8
+			Arrays.fill(block, clamp(descale(block[0] - DC_OFFSET, 3) + 128));
+			return;
+		}
+		block[0] -= DC_OFFSET;
+
+		// a column of zeros stays zeros
+		for (int col = 0; col < extent; col++)
+			inverse1D(block, col, 8, CONST_BITS - PASS1_BITS);
+		for (int row = 0; row < 64; row += 8)
+			inverse1D(block, row, 1, CONST_BITS + PASS1_BITS + 3);
+
+		for (int k = 0; k < 64; k++)
+			block[k] = clamp(block[k] + 128);
+	}
+
+	/**
+	 * Method to clamp a sample to 0 to 255
+	 *
+	 * @param value the sample
+	 * @return the clamped sample
+	 */
+	private static int clamp(int value) {
+		if (value < 0)
+			return 0;
+		if (value > 255)
+			return 255;
+		return value;
+	}
+
+	/**
+	 * Method to shift a value right by the passed number of bits with rounding
+	 *
+	 * @param value the value to shift
+	 * @param bits  the number of bits
+	 * @return the rounded value
+	 */
+	private static int descale(int value, int bits) {
+		return (value + (1 << (bits - 1))) >> bits;
+	}
+
+	/**
+	 * Method to do the one dimensional forward transform of 8 values
+	 *
+	 * @param data      the array that holds the values
+	 * @param start     the index of the first value
+	 * @param stride    the distance between the values
+	 * @param evenShift the left shift of the 0 and 4 outputs (or 0 to descale)
+	 * @param oddBits   the number of bits to descale the other outputs by
+	 * @param evenBits  the number of bits to descale the 0 and 4 outputs by (or 0
+	 *                  to shift them left)
+	 */
+	private static void forward1D(int[] data, int start, int stride, int evenShift, int oddBits, int evenBits) {
+		int i0 = start, i1 = start + stride, i2 = start + 2 * stride, i3 = start + 3 * stride;
+		int i4 = start + 4 * stride, i5 = start + 5 * stride, i6 = start + 6 * stride, i7 = start + 7 * stride;
+
+		int tmp0 = data[i0] + data[i7];
+		int tmp7 = data[i0] - data[i7];
+		int tmp1 = data[i1] + data[i6];
+		int tmp6 = data[i1] - data[i6];
+		int tmp2 = data[i2] + data[i5];
+		int tmp5 = data[i2] - data[i5];
+		int tmp3 = data[i3] + data[i4];
+		int tmp4 = data[i3] - data[i4];
+
+		// the even part
+		int tmp10 = tmp0 + tmp3;
+		int tmp13 = tmp0 - tmp3;
+		int tmp11 = tmp1 + tmp2;
+		int tmp12 = tmp1 - tmp2;
+
+		if (evenBits == 0) {
+			data[i0] = (tmp10 + tmp11) << evenShift;
+			data[i4] = (tmp10 - tmp11) << evenShift;
+		} else {
+			data[i0] = descale(tmp10 + tmp11, evenBits);
+			data[i4] = descale(tmp10 - tmp11, evenBits);
+		}
+
+		int z1 = (tmp12 + tmp13) * FIX_0_541196100;
+		data[i2] = descale(z1 + tmp13 * FIX_0_765366865, oddBits);
+		data[i6] = descale(z1 - tmp12 * FIX_1_847759065, oddBits);
+
+		// the odd part
+		z1 = tmp4 + tmp7;
+		int z2 = tmp5 + tmp6;
+		int z3 = tmp4 + tmp6;
+		int z4 = tmp5 + tmp7;
+		int z5 = (z3 + z4) * FIX_1_175875602;
+
+		tmp4 *= FIX_0_298631336;
+		tmp5 *= FIX_2_053119869;
+		tmp6 *= FIX_3_072711026;
+		tmp7 *= FIX_1_501321110;
+		z1 *= -FIX_0_899976223;
+		z2 *= -FIX_2_562915447;
+		z3 *= -FIX_1_961570560;
+		z4 *= -FIX_0_390180644;
+
+		z3 += z5;
+		z4 += z5;
+
+		data[i7] = descale(tmp4 + z1 + z3, oddBits);
+		data[i5] = descale(tmp5 + z2 + z4, oddBits);
+		data[i3] = descale(tmp6 + z2 + z3, oddBits);
+		data[i1] = descale(tmp7 + z1 + z4, oddBits);
+	}
+
+	/**
+	 * Method to do the one dimensional inverse transform of 8 values
+	 *
+	 * @param data   the array that holds the values
+	 * @param start  the index of the first value
+	 * @param stride the distance between the values
+	 * @param bits   the number of bits to descale the outputs by
+	 */
+	private static void inverse1D(int[] data, int start, int stride, int bits) {
+		int i0 = start, i1 = start + stride, i2 = start + 2 * stride, i3 = start + 3 * stride;
+		int i4 = start + 4 * stride, i5 = start + 5 * stride, i6 = start + 6 * stride, i7 = start + 7 * stride;
+
+		// the even part
+		int z2 = data[i2];
+		int z3 = data[i6];
+		int z1 = (z2 + z3) * FIX_0_541196100;
+		int tmp2 = z1 - z3 * FIX_1_847759065;
+		int tmp3 = z1 + z2 * FIX_0_765366865;
+
+		z2 = data[i0];
+		z3 = data[i4];
+		int tmp0 = (z2 + z3) << CONST_BITS;
+		int tmp1 = (z2 - z3) << CONST_BITS;
+
+		int tmp10 = tmp0 + tmp3;
+		int tmp13 = tmp0 - tmp3;
+		int tmp11 = tmp1 + tmp2;
+		int tmp12 = tmp1 - tmp2;
+
+		// the odd part
+		tmp0 = data[i7];
+		tmp1 = data[i5];
+		tmp2 = data[i3];
+		tmp3 = data[i1];
+
+		z1 = tmp0 + tmp3;
+		z2 = tmp1 + tmp2;
+		z3 = tmp0 + tmp2;
+		int z4 = tmp1 + tmp3;
+		int z5 = (z3 + z4) * FIX_1_175875602;
+
+		tmp0 *= FIX_0_298631336;
+		tmp1 *= FIX_2_053119869;
+		tmp2 *= FIX_3_072711026;
+		tmp3 *= FIX_1_501321110;
+		z1 *= -FIX_0_899976223;
+		z2 *= -FIX_2_562915447;
+		z3 *= -FIX_1_961570560;
+		z4 *= -FIX_0_390180644;
+
+		z3 += z5;
+		z4 += z5;
+
+		tmp0 += z1 + z3;
+		tmp1 += z2 + z4;
+		tmp2 += z2 + z3;
+		tmp3 += z1 + z4;
+
+		data[i0] = descale(tmp10 + tmp3, bits);
+		data[i7] = descale(tmp10 - tmp3, bits);
+		data[i1] = descale(tmp11 + tmp2, bits);
+		data[i6] = descale(tmp11 - tmp2, bits);
+		data[i2] = descale(tmp12 + tmp1, bits);
+		data[i5] = descale(tmp12 - tmp1, bits);
+		data[i3] = descale(tmp13 + tmp0, bits);
+		data[i4] = descale(tmp13 - tmp0, bits);
+	}
+}
@@ -0,0 +1,413 @@
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A class that reads baseline JPEG files straight into quantized YCbCr
+ * coefficients. The blocks are Huffman decoded into the levels the file holds
+ * and nothing is inverse transformed, so operations on the coefficients (such
+ * as a blur that keeps the low frequencies) start from the file instead of
+ * from pixels that have to be transformed again. The levels are kept as they
+ * are and are multiplied by the steps of the file's tables when they are read
+ * as coefficients.
+ *
+ * Baseline and extended Huffman coded files with 8 bit samples are read, with
+ * restart markers. The picture must be gray or have Y, Cb and Cr components
+ * in one interleaved scan, with the chroma sampled 4:4:4, 4:2:2 or 4:2:0.
+ * Progressive and arithmetic coded files throw an IOException, so callers can
+ * fall back to ImageIO for them. The headers are read when the reader is made.
+ */
+public class JpegReader {
+	/** the marker of the second kind of Huffman coded frame */
+	public static final int SOF1 = 0xffc1;
+
+	/** the marker of the restart interval */
+	public static final int DRI = 0xffdd;
+
+	/** the marker byte of the first restart marker, the next 7 follow it */
+	private static final int RST0 = 0xd0;
+
+	/** the most components a picture can have */
+	private static final int COMPONENTS = 3;
+
+	/** where the bits are read from */
+	private final BitReader in;
+
+	/** the quantization tables by their number in the file */
+	private final QuantizationTable[] tables = new QuantizationTable[4];
+
+	/** the DC Huffman tables by their number in the file */
+	private final HuffmanTable[] dcTables = new HuffmanTable[4];
+
+	/** the AC Huffman tables by their number in the file */
+	private final HuffmanTable[] acTables = new HuffmanTable[4];
+
+	/** the identifier of each component */
+	private int[] componentIds;
+
+	/** the quantization table number of each component */
+	private int[] quantizationOf;
+
+	/** the DC Huffman table of each component of the scan */
+	private HuffmanTable[] dcOf;
+
+	/** the AC Huffman table of each component of the scan */
+	private HuffmanTable[] acOf;
+
+	/** the width of the picture */
+	private int width;
+
+	/** the height of the picture */
+	private int height;
+
+	/** how the chroma is subsampled */
+	private ChromaSubsampling subsampling;
+
+	/** the number of MCUs between restart markers, or 0 for none */
+	private int restartInterval;
+
+	/** the time the reader was made */
+	private final long start = System.nanoTime();
+
+	/** the size and speed of the last read */
+	private CompressionStats stats;
+
+	/**
+	 * Constructor that reads the headers from a channel, up to the start of the
+	 * scan
+	 *
+	 * @param channel the channel to read from
+	 * @throws IOException if it isn't a JPEG file this class can read
+	 */
+	public JpegReader(ReadableByteChannel channel) throws IOException {
+		in = new BitReader(channel, true);
+		if (in.readShort() != JpegWriter.SOI)
+			throw new IOException("this isn't a JPEG file");
+		while (true) {
+			int marker = nextMarker();
+			if (marker == JpegWriter.DQT)
+				readQuantization();
+			else if (marker == JpegWriter.DHT)
+				readHuffman();
+			else if (marker == DRI) {
+				in.readShort();
+				restartInterval = in.readShort();
+			} else if (marker == JpegWriter.SOF0 || marker == SOF1)
+				readFrame();
+			else if (marker == JpegWriter.SOS) {
+				readScan();
+				return;
+			} else if (marker == JpegWriter.EOI)
+				throw new IOException("the file has no scan");
+			else if (marker >= 0xffc2 && marker <= 0xffcf && marker != 0xffc4 && marker != 0xffc8
+					&& marker != 0xffcc)
+				throw new IOException("only baseline Huffman coded files can be read, not frame type "
+						+ Integer.toHexString(marker));
+			else
+				skip(in.readShort() - 2);
+		}
+	}
+
+	/**
+	 * Method to read a whole JPEG file into a picture
+	 *
+	 * @param file the file
+	 * @return the picture
+	 * @throws IOException if the file can't be read
+	 */
+	public static BufferedImage read(File file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			JpegReader reader = new JpegReader(channel);
+			BufferedImage image = new BufferedImage(reader.getWidth(), reader.getHeight(),
+					BufferedImage.TYPE_INT_RGB);
+			reader.read(new PictureRaster(image), new DctEngine());
+			return image;
+		}
+	}
+
+	/**
+	 * Method to read the quantized coefficients of a whole JPEG file
+	 *
+	 * @param file the file
+	 * @return the coefficients
+	 * @throws IOException if the file can't be read
+	 */
+	public static YCbCrImage readCoefficients(File file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			return new JpegReader(channel).readYCbCr();
+		}
+	}
+
+	/**
+	 * Method to get the width of the picture
+	 *
+	 * @return the width in pixels
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * Method to get the height of the picture
+	 *
+	 * @return the height in pixels
+	 */
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * Method to tell if the picture is gray (only has a Y component)
+	 *
+	 * @return true if it is gray
+	 */
+	public boolean isGray() {
+		return componentIds.length == 1;
+	}
+
+	/**
+	 * Method to get how the chroma is subsampled
+	 *
+	 * @return the subsampling, 4:4:4 for a gray picture
+	 */
+	public ChromaSubsampling getSubsampling() {
+		return subsampling;
+	}
+
+	/**
+	 * Method to get the number of MCUs between restart markers
+	 *
+	 * @return the interval, or 0 if there are no restart markers
+	 */
+	public int getRestartInterval() {
+		return restartInterval;
+	}
+
+	/**
+	 * Method to decode the blocks into quantized coefficients. The chroma of a
+	 * gray picture is all zero levels, which is no color.
+	 *
+	 * @return the coefficients with the quantization tables of the file
+	 * @throws IOException if the blocks can't be read
+	 */
+	public YCbCrImage readYCbCr() throws IOException {
+		QuantizationTable[] quantization = new QuantizationTable[COMPONENTS];
+		for (int component = 0; component < COMPONENTS; component++)
+			quantization[component] = tables[quantizationOf[Math.min(component, componentIds.length - 1)]];
+		YCbCrImage ycbcr = YCbCrImage.createQuantized(width, height, subsampling, quantization);
+
+		RunLengthCoder coder = new RunLengthCoder(componentIds.length);
+		HuffmanDecoder decoder = new HuffmanDecoder(in, dcOf, acOf);
+		CoefficientImage luma = ycbcr.getLuma();
+		int[] levels = new int[CoefficientImage.BLOCK_AREA];
+
+		// a scan of one component has one block per MCU
+		int mcusWide = isGray() ? (width + 7) / 8 : ycbcr.getMcusWide();
+		int mcusHigh = isGray() ? (height + 7) / 8 : ycbcr.getMcusHigh();
+		int expected = 0;
+		try {
+			for (int mcu = 0; mcu < mcusWide * mcusHigh; mcu++) {
+				if (restartInterval > 0 && mcu > 0 && mcu % restartInterval == 0) {
+					nextRestart(expected);
+					expected = (expected + 1) & 7;
+					coder.reset();
+				}
+				int mcuRow = mcu / mcusWide;
+				int mcuColumn = mcu % mcusWide;
+				if (isGray()) {
+					coder.decode(decoder, 0, levels);
+					luma.setLevels(luma.getBlockIndex(mcuRow, mcuColumn), 0, levels);
+				} else
+					coder.decodeMcu(decoder, ycbcr, mcuRow, mcuColumn);
+			}
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		} catch (IllegalStateException e) {
+			throw new IOException("the coded blocks are damaged: " + e.getMessage(), e);
+		}
+		stats = new CompressionStats((long) width * height, in.getBytesRead(), System.nanoTime() - start);
+		return ycbcr;
+	}
+
+	/**
+	 * Method to decode the picture into pixels
+	 *
+	 * @param raster the pixels to set, the size of the picture
+	 * @param engine the engine to inverse transform with
+	 * @throws IOException if the blocks can't be read
+	 */
+	public void read(PictureRaster raster, DctEngine engine) throws IOException {
+		engine.inverse(readYCbCr(), raster);
+		stats = new CompressionStats((long) width * height, in.getBytesRead(), System.nanoTime() - start);
+	}
+
+	/**
+	 * Method to get the size and speed of the last read, from when the reader was
+	 * made
+	 *
+	 * @return the stats, or null if nothing has been read
+	 */
+	public CompressionStats getStats() {
+		return stats;
+	}
+
+	/**
+	 * Method to read the next marker, skipping any 0xFF fill bytes before it
+	 *
+	 * @return the marker, 0xFF followed by its byte
+	 * @throws IOException if there isn't a marker
+	 */
+	private int nextMarker() throws IOException {
+		int b = in.readByte();
+		if (b != 0xff)
+			throw new IOException("expected a marker but found 0x" + Integer.toHexString(b));
+		while (b == 0xff)
+			b = in.readByte();
+		return 0xff00 | b;
+	}
+
+	/**
+	 * Method to skip the rest of a segment
+	 *
+	 * @param length the number of bytes to skip
+	 * @throws IOException if the file ends
+	 */
+	private void skip(int length) throws IOException {
+		for (int i = 0; i < length; i++)
+			in.readByte();
+	}
+
+	/**
+	 * Method to read a DQT segment, which can hold several tables. The steps are
+	 * in zig-zag order, 8 or 16 bits each.
+	 *
+	 * @throws IOException if the segment can't be read
+	 */
+	private void readQuantization() throws IOException {
+		int length = in.readShort() - 2;
+		while (length > 0) {
+			int info = in.readByte();
+			boolean wide = (info >> 4) != 0;
+			int[] steps = new int[64];
+			for (int z = 0; z < 64; z++)
+				steps[CoefficientImage.ZIGZAG[z]] = wide ? in.readShort() : in.readByte();
+			try {
+				tables[info & 3] = new QuantizationTable(steps);
+			} catch (IllegalArgumentException e) {
+				throw new IOException(e.getMessage(), e);
+			}
+			length -= 1 + (wide ? 128 : 64);
+		}
+	}
+
+	/**
+	 * Method to read a DHT segment, which can hold several tables
+	 *
+	 * @throws IOException if the segment can't be read
+	 */
+	private void readHuffman() throws IOException {
+		int length = in.readShort() - 2;
+		while (length > 0) {
+			int info = in.readByte();
+			HuffmanTable table = DctpReader.readTable(in);
+			if ((info >> 4) == 0)
+				dcTables[info & 3] = table;
+			else
+				acTables[info & 3] = table;
+			length -= 17 + table.getSymbols().length;
+		}
+	}
+
+	/**
+	 * Method to read a SOF0 or SOF1 segment: the size of the picture and the
+	 * sampling factors and quantization table of each component
+	 *
+	 * @throws IOException if the frame isn't one this class can read
+	 */
+	private void readFrame() throws IOException {
+		in.readShort();
+		int precision = in.readByte();
+		if (precision != 8)
+			throw new IOException("only 8 bit samples can be read, not " + precision);
+		height = in.readShort();
+		width = in.readShort();
+		if (height == 0 || width == 0)
+			throw new IOException("the size must be in the frame header");
+		int components = in.readByte();
+		if (components != 1 && components != COMPONENTS)
+			throw new IOException("only gray and YCbCr pictures can be read, not " + components + " components");
+		componentIds = new int[components];
+		quantizationOf = new int[components];
+		int[] factors = new int[components];
+		for (int component = 0; component < components; component++) {
+			componentIds[component] = in.readByte();
+			factors[component] = in.readByte();
+			quantizationOf[component] = in.readByte() & 3;
+		}
+		if (components == 1)
+			subsampling = ChromaSubsampling.S444;
+		else {
+			if (factors[1] != 0x11 || factors[2] != 0x11)
+				throw new IOException("the chroma must have sampling factors of 1");
+			try {
+				subsampling = ChromaSubsampling.forFactors(factors[0] >> 4, factors[0] & 15);
+			} catch (IllegalArgumentException e) {
+				throw new IOException(e.getMessage(), e);
+			}
+		}
+	}
+
+	/**
+	 * Method to read a SOS segment: the Huffman tables of each component
+	 *
+	 * @throws IOException if the scan isn't one this class can read
+	 */
+	private void readScan() throws IOException {
+		if (componentIds == null)
+			throw new IOException("the scan comes before the frame header");
+		in.readShort();
+		int components = in.readByte();
+		if (components != componentIds.length)
+			throw new IOException("the components must all be in one scan");
+		dcOf = new HuffmanTable[components];
+		acOf = new HuffmanTable[components];
+		for (int component = 0; component < components; component++) {
+			if (in.readByte() != componentIds[component])
+				throw new IOException("the scan must have the components in frame order");
+			int selectors = in.readByte();
+			dcOf[component] = dcTables[(selectors >> 4) & 3];
+			acOf[component] = acTables[selectors & 3];
+			if (dcOf[component] == null || acOf[component] == null)
+				throw new IOException("a component uses a Huffman table that isn't in the file");
+		}
+		for (int component = 0; component < components; component++) {
+			if (tables[quantizationOf[component]] == null)
+				throw new IOException("a component uses a quantization table that isn't in the file");
+		}
+		int first = in.readByte();
+		int last = in.readByte();
+		int approximation = in.readByte();
+		if (first != 0 || last != 63 || approximation != 0)
+			throw new IOException("the scan must have all the coefficients at full precision");
+	}
+
+	/**
+	 * Method to go past a restart marker, dropping the padding bits before it
+	 *
+	 * @param expected the number of the restart marker (0 to 7)
+	 * @throws IOException if the next marker isn't that restart marker
+	 */
+	private void nextRestart(int expected) throws IOException {
+		in.alignToByte();
+		while (in.getMarker() < 0)
+			in.readBits(8);
+		if (in.getMarker() != RST0 + expected)
+			throw new IOException("expected restart marker " + expected + " but found 0x"
+					+ Integer.toHexString(in.getMarker()));
+		in.clearMarker();
+	}
+}
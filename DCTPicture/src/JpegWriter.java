@@ -0,0 +1,569 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+
+import javax.imageio.plugins.jpeg.JPEGHuffmanTable;
+
+/**
+ * A class that writes pictures as baseline JFIF (JPEG) files straight from
+ * quantized YCbCr coefficients, so a picture that was already transformed by
+ * dct(subsampling, quality) isn't converted and transformed again. The file is
+ *
+ * <pre>
+ * SOI, APP0 (JFIF 1.01), DQT (the luma and chroma tables in zig-zag order),
+ * SOF0 (8 bit samples, components 1 Y, 2 Cb and 3 Cr), DHT (a DC and an AC
+ * table for the luma and for the chroma), SOS (one interleaved scan of the
+ * MCUs), the coded blocks with a 0x00 after each 0xFF, EOI.
+ * </pre>
+ *
+ * The blocks are Huffman coded with the typical tables of the JPEG standard,
+ * which takes one pass, or with tables made for the picture, which takes two
+ * passes and makes the file smaller.
+ */
+public class JpegWriter {
+	/** the marker that starts a file */
+	public static final int SOI = 0xffd8;
+
+	/** the marker of the JFIF header */
+	public static final int APP0 = 0xffe0;
+
+	/** the marker of the quantization tables */
+	public static final int DQT = 0xffdb;
+
+	/** the marker of a baseline frame */
+	public static final int SOF0 = 0xffc0;
+
+	/** the marker of the Huffman tables */
+	public static final int DHT = 0xffc4;
+
+	/** the marker that starts a scan */
+	public static final int SOS = 0xffda;
+
+	/** the marker that ends a file */
+	public static final int EOI = 0xffd9;
+
+	/** the largest width or height of a JPEG picture */
+	public static final int MAX_SIZE = 65535;
+
+	/** the number of components (Y, Cb and Cr) */
+	private static final int COMPONENTS = 3;
+
+	/** the table (luma 0, chroma 1) of each component */
+	private static final int[] TABLE_OF = { 0, 1, 1 };
+
+	/** the quality pictures are quantized at */
+	private int quality = 75;
+
+	/** how the chroma of pictures is subsampled */
+	private ChromaSubsampling subsampling = ChromaSubsampling.S420;
+
+	/** whether to make Huffman tables for each picture */
+	private boolean optimized = false;
+
+	/** the engine that transforms pictures */
+	private DctEngine engine = new DctEngine();
+
+	/**
+	 * Method to get the quality pictures are quantized at
+	 *
+	 * @return the quality from 1 to 100
+	 */
+	public int getQuality() {
+		return quality;
+	}
+
+	/**
+	 * Method to set the quality pictures are quantized at
+	 *
+	 * @param quality the quality from 1 to 100
+	 */
+	public void setQuality(int quality) {
+		if (quality < 1 || quality > 100)
+			throw new IllegalArgumentException("quality must be 1 to 100 but was " + quality);
+		this.quality = quality;
+	}
+
+	/**
+	 * Method to get how the chroma of pictures is subsampled
+	 *
+	 * @return the subsampling
+	 */
+	public ChromaSubsampling getSubsampling() {
+		return subsampling;
+	}
+
+	/**
+	 * Method to set how the chroma of pictures is subsampled
+	 *
+	 * @param subsampling the subsampling
+	 */
+	public void setSubsampling(ChromaSubsampling subsampling) {
+		this.subsampling = subsampling;
+	}
+
+	/**
+	 * Method to tell if Huffman tables are made for each picture
+	 *
+	 * @return true if they are, false if the standard tables are used
+	 */
+	public boolean isOptimized() {
+		return optimized;
+	}
+
+	/**
+	 * Method to set whether Huffman tables are made for each picture. That codes
+	 * the blocks twice but makes the file a few percent smaller.
+	 *
+	 * @param optimized true to make tables, false to use the standard ones
+	 */
+	public void setOptimized(boolean optimized) {
+		this.optimized = optimized;
+	}
+
+	/**
+	 * Method to set the engine that transforms pictures
+	 *
+	 * @param engine the engine to use
+	 */
+	public void setEngine(DctEngine engine) {
+		this.engine = engine;
+	}
+
+	/**
+	 * Method to transform, quantize and write a picture to a file
+	 *
+	 * @param raster the pixels of the picture
+	 * @param file   the file to write
+	 * @return the size and speed
+	 * @throws IOException if the file can't be written
+	 */
+	public CompressionStats write(PictureRaster raster, File file) throws IOException {
+		try (FileChannel channel = open(file)) {
+			return write(raster, channel);
+		}
+	}
+
+	/**
+	 * Method to transform, quantize and write a picture to a channel
+	 *
+	 * @param raster  the pixels of the picture
+	 * @param channel the channel to write to
+	 * @return the size and speed, including the transform
+	 * @throws IOException if the channel can't be written
+	 */
+	public CompressionStats write(PictureRaster raster, WritableByteChannel channel) throws IOException {
+		checkSize(raster.getWidth(), raster.getHeight());
+		long start = System.nanoTime();
+		YCbCrImage ycbcr = YCbCrImage.createQuantized(raster.getWidth(), raster.getHeight(), subsampling, quality);
+		engine.forward(raster, ycbcr);
+		long bytes = writeYCbCr(ycbcr, channel);
+		return new CompressionStats((long) raster.getWidth() * raster.getHeight(), bytes, System.nanoTime() - start);
+	}
+
+	/**
+	 * Method to write quantized YCbCr coefficients to a file. Tables with steps
+	 * over QuantizationTable.MAX_STEP don't fit in a baseline file and are
+	 * turned down with an IllegalArgumentException before the file is opened.
+	 *
+	 * @param ycbcr the coefficients
+	 * @param file  the file to write
+	 * @return the size and speed
+	 * @throws IOException if the file can't be written
+	 */
+	public CompressionStats write(YCbCrImage ycbcr, File file) throws IOException {
+		checkSize(ycbcr.getWidth(), ycbcr.getHeight());
+		tablesOf(ycbcr);
+		try (FileChannel channel = open(file)) {
+			return write(ycbcr, channel);
+		}
+	}
+
+	/**
+	 * Method to write quantized YCbCr coefficients to a channel. The quality and
+	 * subsampling of the coefficients are used, not the ones of this writer.
+	 * Tables with steps over QuantizationTable.MAX_STEP don't fit in a baseline
+	 * file and are turned down with an IllegalArgumentException.
+	 *
+	 * @param ycbcr   the coefficients
+	 * @param channel the channel to write to
+	 * @return the size and speed
+	 * @throws IOException if the channel can't be written
+	 */
+	public CompressionStats write(YCbCrImage ycbcr, WritableByteChannel channel) throws IOException {
+		checkSize(ycbcr.getWidth(), ycbcr.getHeight());
+		long start = System.nanoTime();
+		long bytes = writeYCbCr(ycbcr, channel);
+		return new CompressionStats((long) ycbcr.getWidth() * ycbcr.getHeight(), bytes, System.nanoTime() - start);
+	}
+
+	/**
+	 * Method to open a file for writing
+	 *
+	 * @param file the file
+	 * @return the channel
+	 * @throws IOException if the file can't be opened
+	 */
+	private static FileChannel open(File file) throws IOException {
+		return FileChannel.open(file.toPath(), StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING);
+	}
+
+	/**
+	 * Method to check that a picture fits in a JPEG frame header
+	 *
+	 * @param width  the width of the picture
+	 * @param height the height of the picture
+	 */
+	private static void checkSize(int width, int height) {
+		if (width > MAX_SIZE || height > MAX_SIZE)
+			throw new IllegalArgumentException(
+					"a JPEG picture can be at most " + MAX_SIZE + " pixels wide and high but was " + width + "x" + height);
+	}
+
+	/**
+	 * Method to start a file that is written a band of MCU rows at a time, for
+	 * pictures that are never whole in memory. The markers are written right
+	 * away. The blocks are coded with the standard tables whether or not this
+	 * writer is optimized, since the tables come before the blocks.
+	 *
+	 * @param channel the channel to write to
+	 * @param width   the width of the picture
+	 * @param height  the height of the picture
+	 * @return the stream to write the bands to
+	 * @throws IOException if the channel can't be written
+	 */
+	public BandStream open(WritableByteChannel channel, int width, int height) throws IOException {
+		checkSize(width, height);
+		return new BandStream(channel, width, height);
+	}
+
+	/**
+	 * Method to write the markers and the coded blocks
+	 *
+	 * @param ycbcr   the coefficients
+	 * @param channel the channel to write to
+	 * @return the number of bytes written
+	 * @throws IOException if the channel can't be written
+	 */
+	private long writeYCbCr(YCbCrImage ycbcr, WritableByteChannel channel) throws IOException {
+		QuantizationTable[] tables = tablesOf(ycbcr);
+		HuffmanTable[] dcTables = new HuffmanTable[2];
+		HuffmanTable[] acTables = new HuffmanTable[2];
+		if (optimized) {
+			SymbolCounter counter = new SymbolCounter(TABLE_OF, TABLE_OF, 2);
+			new RunLengthCoder(COMPONENTS).encode(ycbcr, counter);
+			for (int table = 0; table < 2; table++) {
+				dcTables[table] = counter.getDcTable(table);
+				acTables[table] = counter.getAcTable(table);
+			}
+		} else {
+			standardTables(dcTables, acTables);
+		}
+
+		BitWriter out = new BitWriter(channel, true);
+		writeMarkers(out, ycbcr.getWidth(), ycbcr.getHeight(), ycbcr.getSubsampling(), tables, dcTables, acTables);
+		encode(ycbcr, new RunLengthCoder(COMPONENTS), encoderOf(out, dcTables, acTables));
+		out.alignToByte();
+		out.writeShort(EOI);
+		out.flush();
+		return out.getBytesWritten();
+	}
+
+	/**
+	 * Method to get the luma and chroma quantization tables of an image
+	 *
+	 * @param ycbcr the coefficients
+	 * @return the luma table and the chroma table
+	 */
+	private static QuantizationTable[] tablesOf(YCbCrImage ycbcr) {
+		QuantizationTable[] tables = { quantizationOf(ycbcr.getQuantization(0)),
+				quantizationOf(ycbcr.getQuantization(1)) };
+		if (!tables[1].equals(quantizationOf(ycbcr.getQuantization(2))))
+			throw new IllegalArgumentException("the Cb and Cr tables of a JPEG picture must be the same");
+		for (QuantizationTable table : tables)
+			checkBaseline(table);
+		return tables;
+	}
+
+	/**
+	 * Method to check that a quantization table fits in the 8-bit steps of a
+	 * baseline DQT marker, so no step is cut short when it is written
+	 *
+	 * @param table the table
+	 */
+	private static void checkBaseline(QuantizationTable table) {
+		for (int k = 0; k < CoefficientImage.BLOCK_AREA; k++)
+			if (table.getStep(k) > QuantizationTable.MAX_STEP)
+				throw new IllegalArgumentException("a baseline JPEG table can have steps of at most "
+						+ QuantizationTable.MAX_STEP + " but step " + k + " is " + table.getStep(k));
+	}
+
+	/**
+	 * Method to fill in the typical Huffman tables of the JPEG standard
+	 *
+	 * @param dcTables the array to put the luma and chroma DC tables in
+	 * @param acTables the array to put the luma and chroma AC tables in
+	 */
+	private static void standardTables(HuffmanTable[] dcTables, HuffmanTable[] acTables) {
+		dcTables[0] = standardTable(JPEGHuffmanTable.StdDCLuminance);
+		dcTables[1] = standardTable(JPEGHuffmanTable.StdDCChrominance);
+		acTables[0] = standardTable(JPEGHuffmanTable.StdACLuminance);
+		acTables[1] = standardTable(JPEGHuffmanTable.StdACChrominance);
+	}
+
+	/**
+	 * Method to write every marker up to the start of the scan
+	 *
+	 * @param out         where to write
+	 * @param width       the width of the picture
+	 * @param height      the height of the picture
+	 * @param sampling    how the chroma is subsampled
+	 * @param tables      the luma and chroma quantization tables
+	 * @param dcTables    the luma and chroma DC Huffman tables
+	 * @param acTables    the luma and chroma AC Huffman tables
+	 * @throws IOException if the channel can't be written
+	 */
+	private static void writeMarkers(BitWriter out, int width, int height, ChromaSubsampling sampling,
+			QuantizationTable[] tables, HuffmanTable[] dcTables, HuffmanTable[] acTables) throws IOException {
+		out.writeShort(SOI);
+
+		// version 1.01, no units, a 1 to 1 pixel aspect ratio and no thumbnail
+		out.writeShort(APP0);
+		out.writeShort(16);
+		out.writeInt(('J' << 24) | ('F' << 16) | ('I' << 8) | 'F');
+		out.writeByte(0);
+		out.writeShort(0x0101);
+		out.writeByte(0);
+		out.writeShort(1);
+		out.writeShort(1);
+		out.writeByte(0);
+		out.writeByte(0);
+
+		// 8 bit steps
+		out.writeShort(DQT);
+		out.writeShort(2 + tables.length * 65);
+		for (int table = 0; table < tables.length; table++) {
+			out.writeByte(table);
+			for (int z = 0; z < 64; z++)
+				out.writeByte(tables[table].getStep(CoefficientImage.ZIGZAG[z]));
+		}
+
+		out.writeShort(SOF0);
+		out.writeShort(8 + COMPONENTS * 3);
+		out.writeByte(8);
+		out.writeShort(height);
+		out.writeShort(width);
+		out.writeByte(COMPONENTS);
+		for (int component = 0; component < COMPONENTS; component++) {
+			out.writeByte(component + 1);
+			out.writeByte(component == 0 ? (sampling.getHorizontal() << 4) | sampling.getVertical() : 0x11);
+			out.writeByte(TABLE_OF[component]);
+		}
+
+		int length = 2;
+		for (int table = 0; table < 2; table++)
+			length += 2 * 17 + dcTables[table].getSymbols().length + acTables[table].getSymbols().length;
+		out.writeShort(DHT);
+		out.writeShort(length);
+		for (int table = 0; table < 2; table++) {
+			out.writeByte(table);
+			DctpWriter.writeTable(out, dcTables[table]);
+			out.writeByte(0x10 | table);
+			DctpWriter.writeTable(out, acTables[table]);
+		}
+
+		// the whole zig-zag range in one scan
+		out.writeShort(SOS);
+		out.writeShort(6 + COMPONENTS * 2);
+		out.writeByte(COMPONENTS);
+		for (int component = 0; component < COMPONENTS; component++) {
+			out.writeByte(component + 1);
+			out.writeByte((TABLE_OF[component] << 4) | TABLE_OF[component]);
+		}
+		out.writeByte(0);
+		out.writeByte(63);
+		out.writeByte(0);
+	}
+
+	/**
+	 * Method to make the encoder that codes the blocks of each component with
+	 * its tables
+	 *
+	 * @param out      where to write
+	 * @param dcTables the luma and chroma DC Huffman tables
+	 * @param acTables the luma and chroma AC Huffman tables
+	 * @return the encoder
+	 */
+	private static HuffmanEncoder encoderOf(BitWriter out, HuffmanTable[] dcTables, HuffmanTable[] acTables) {
+		HuffmanTable[] dcOf = new HuffmanTable[COMPONENTS];
+		HuffmanTable[] acOf = new HuffmanTable[COMPONENTS];
+		for (int component = 0; component < COMPONENTS; component++) {
+			dcOf[component] = dcTables[TABLE_OF[component]];
+			acOf[component] = acTables[TABLE_OF[component]];
+		}
+		return new HuffmanEncoder(out, dcOf, acOf);
+	}
+
+	/**
+	 * Method to code the blocks of an image
+	 *
+	 * @param ycbcr   the coefficients
+	 * @param coder   the coder, which keeps the DC predictions between calls
+	 * @param encoder the encoder
+	 * @throws IOException if the channel can't be written
+	 */
+	private static void encode(YCbCrImage ycbcr, RunLengthCoder coder, HuffmanEncoder encoder) throws IOException {
+		try {
+			coder.encode(ycbcr, encoder);
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+
+	/**
+	 * Method to get the table that was used to quantize coefficients
+	 *
+	 * @param table the table of the image, or null if it isn't quantized
+	 * @return the table, steps of 1 if the image isn't quantized
+	 */
+	private static QuantizationTable quantizationOf(QuantizationTable table) {
+		return (table == null) ? QuantizationTable.uniform(1) : table;
+	}
+
+	/**
+	 * Method to make a Huffman table from one of the typical tables of the JPEG
+	 * standard
+	 *
+	 * @param table the standard table
+	 * @return the table
+	 */
+	private static HuffmanTable standardTable(JPEGHuffmanTable table) {
+		short[] lengths = table.getLengths();
+		short[] values = table.getValues();
+		int[] counts = new int[lengths.length];
+		for (int i = 0; i < counts.length; i++)
+			counts[i] = lengths[i];
+		int[] symbols = new int[values.length];
+		for (int i = 0; i < symbols.length; i++)
+			symbols[i] = values[i];
+		return new HuffmanTable(counts, symbols);
+	}
+
+	/**
+	 * A JPEG file that is written a band of MCU rows at a time. Each band is
+	 * quantized coefficients as wide as the picture, a whole number of MCUs high
+	 * except for the last, and the coder keeps its DC predictions from one band
+	 * to the next, so the file is the same as one written from the whole
+	 * picture.
+	 */
+	public class BandStream {
+		/** where the file is written */
+		private final BitWriter out;
+
+		/** the coder, which keeps the DC predictions between bands */
+		private final RunLengthCoder coder = new RunLengthCoder(COMPONENTS);
+
+		/** the encoder */
+		private final HuffmanEncoder encoder;
+
+		/** the width of the picture */
+		private final int width;
+
+		/** the height of the picture */
+		private final int height;
+
+		/** how the chroma is subsampled */
+		private final ChromaSubsampling sampling;
+
+		/** the quality the bands are quantized at */
+		private final int bandQuality;
+
+		/** the luma and chroma quantization tables in the file */
+		private final QuantizationTable[] tables;
+
+		/** the number of rows of the picture written so far */
+		private int rowsWritten;
+
+		/**
+		 * Constructor that writes the markers
+		 *
+		 * @param channel the channel to write to
+		 * @param width   the width of the picture
+		 * @param height  the height of the picture
+		 * @throws IOException if the channel can't be written
+		 */
+		private BandStream(WritableByteChannel channel, int width, int height) throws IOException {
+			this.width = width;
+			this.height = height;
+			this.sampling = subsampling;
+			this.bandQuality = quality;
+			this.tables = new QuantizationTable[] { QuantizationTable.luminance(quality),
+					QuantizationTable.chrominance(quality) };
+			HuffmanTable[] dcTables = new HuffmanTable[2];
+			HuffmanTable[] acTables = new HuffmanTable[2];
+			standardTables(dcTables, acTables);
+			this.out = new BitWriter(channel, true);
+			writeMarkers(out, width, height, sampling, tables, dcTables, acTables);
+			out.flush();
+			this.encoder = encoderOf(out, dcTables, acTables);
+		}
+
+		/**
+		 * Method to get the height of a band
+		 *
+		 * @return the height of an MCU in pixels
+		 */
+		public int getBandHeight() {
+			return 8 * sampling.getVertical();
+		}
+
+		/**
+		 * Method to make a band of coefficients quantized for this file
+		 *
+		 * @param rows the height of the band in pixels
+		 * @return the new band
+		 */
+		public YCbCrImage createBand(int rows) {
+			return YCbCrImage.createQuantized(width, rows, sampling, bandQuality);
+		}
+
+		/**
+		 * Method to code and write the next band
+		 *
+		 * @param band the coefficients from createBand()
+		 * @throws IOException if the channel can't be written
+		 */
+		public void write(YCbCrImage band) throws IOException {
+			if (band.getWidth() != width || band.getSubsampling() != sampling)
+				throw new IllegalArgumentException("the band is " + band.getWidth() + " wide with "
+						+ band.getSubsampling() + " subsampling but the picture is " + width + " wide with " + sampling);
+			if (rowsWritten + band.getHeight() > height
+					|| (band.getHeight() % getBandHeight() != 0 && rowsWritten + band.getHeight() != height))
+				throw new IllegalArgumentException("a band " + band.getHeight() + " high can't go at row "
+						+ rowsWritten + " of a picture " + height + " high");
+			QuantizationTable[] bandTables = tablesOf(band);
+			if (!bandTables[0].equals(tables[0]) || !bandTables[1].equals(tables[1]))
+				throw new IllegalArgumentException("the band isn't quantized with the tables of the file");
+			encode(band, coder, encoder);
+			rowsWritten += band.getHeight();
+		}
+
+		/**
+		 * Method to end the file once every band is written
+		 *
+		 * @return the number of bytes written
+		 * @throws IOException if the channel can't be written
+		 */
+		public long finish() throws IOException {
+			if (rowsWritten != height)
+				throw new IllegalStateException("only " + rowsWritten + " of " + height + " rows were written");
+			out.alignToByte();
+			out.writeShort(EOI);
+			out.flush();
+			return out.getBytesWritten();
+		}
+	}
+}
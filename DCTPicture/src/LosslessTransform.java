@@ -0,0 +1,175 @@
+/**
+ * The mirrors and rotations that can be done on the coefficients of a picture
+ * without changing any of them, so a compressed picture can be turned without
+ * decoding it or losing anything. Mirroring a block only changes the signs of
+ * its odd frequencies in that direction and transposing it swaps its rows and
+ * columns of frequencies, so each transform moves the blocks to their new
+ * places and flips signs or transposes the coefficients of each one (the way
+ * the jpegtran tool does). Quantized coefficients keep their levels: a
+ * transposed image gets transposed quantization tables.
+ *
+ * A block that hangs over the right or bottom edge of the picture can't be
+ * moved to the left or top edge, so a transform that mirrors in a direction
+ * trims the picture to whole blocks (whole MCUs for YCbCr) in that direction,
+ * dropping at most 7 (or 15) rows or columns of pixels.
+ */
+public enum LosslessTransform {
+	/** mirror left to right */
+	FLIP_HORIZONTAL(false, true, false),
+	/** mirror top to bottom */
+	FLIP_VERTICAL(false, false, true),
+	/** swap the rows and columns (mirror across the top left to bottom right diagonal) */
+	TRANSPOSE(true, false, false),
+	/** mirror across the top right to bottom left diagonal */
+	TRANSVERSE(true, true, true),
+	/** turn 90 degrees clockwise */
+	ROTATE_90(true, true, false),
+	/** turn 180 degrees */
+	ROTATE_180(false, true, true),
+	/** turn 270 degrees clockwise (90 degrees counterclockwise) */
+	ROTATE_270(true, false, true);
+
+	/** whether the blocks are transposed first */
+	private final boolean transpose;
+
+	/** whether the (transposed) blocks are then mirrored left to right */
+	private final boolean flipX;
+
+	/** whether the (transposed) blocks are then mirrored top to bottom */
+	private final boolean flipY;
+
+	/**
+	 * source[k] is the index in the source block of the coefficient
+	 * that goes to index k of the transformed block
+	 */
+	private final int[] source = new int[64];
+
+	/** the sign each coefficient of the transformed block is multiplied by */
+	private final int[] signs = new int[64];
+
+	/**
+	 * Constructor that takes the steps that make up the transform
+	 *
+	 * @param transpose whether the blocks are transposed first
+	 * @param flipX     whether they are then mirrored left to right
+	 * @param flipY     whether they are then mirrored top to bottom
+	 */
+	private LosslessTransform(boolean transpose, boolean flipX, boolean flipY) {
+		this.transpose = transpose;
+		this.flipX = flipX;
+		this.flipY = flipY;
+		for (int v = 0; v < 8; v++) {
+			for (int u = 0; u < 8; u++) {
+				source[v * 8 + u] = transpose ? u * 8 + v : v * 8 + u;
+				// mirroring a cosine of an odd frequency negates it
+				boolean negate = (flipX && (u & 1) != 0) != (flipY && (v & 1) != 0);
+				signs[v * 8 + u] = negate ? -1 : 1;
+			}
+		}
+	}
+
+	/**
+	 * Method to tell if the transform swaps the width and height
+	 *
+	 * @return true for the transposes and the 90 and 270 degree turns
+	 */
+	public boolean swapsSize() {
+		return transpose;
+	}
+
+	/**
+	 * Method to transform the coefficients of a red, green and blue (or any)
+	 * image
+	 *
+	 * @param image the coefficients
+	 * @return a new image with the transformed coefficients
+	 */
+	public CoefficientImage apply(CoefficientImage image) {
+		int width = transpose ? image.getHeight() : image.getWidth();
+		int height = transpose ? image.getWidth() : image.getHeight();
+		if (flipX)
+			width -= width % 8;
+		if (flipY)
+			height -= height % 8;
+		if (width == 0 || height == 0)
+			throw new IllegalArgumentException("the picture is less than a block across");
+		CoefficientImage result = image.createLike(width, height, transpose);
+		transformBlocks(image, result);
+		return result;
+	}
+
+	/**
+	 * Method to transform the coefficients of a YCbCr image. The luma and
+	 * chroma are transformed alike, so the MCUs move as a whole. A transpose
+	 * swaps the subsampling factors, so 4:2:2 can only be mirrored and turned
+	 * 180 degrees.
+	 *
+	 * @param ycbcr the coefficients
+	 * @return a new image with the transformed coefficients
+	 */
+	public YCbCrImage apply(YCbCrImage ycbcr) {
+		ChromaSubsampling subsampling = ycbcr.getSubsampling();
+		if (transpose && subsampling.getHorizontal() != subsampling.getVertical())
+			throw new IllegalArgumentException(this + " would need " + subsampling.getVertical() + "x"
+					+ subsampling.getHorizontal() + " subsampling, which isn't supported");
+		int mcuWidth = 8 * subsampling.getHorizontal();
+		int mcuHeight = 8 * subsampling.getVertical();
+		int width = transpose ? ycbcr.getHeight() : ycbcr.getWidth();
+		int height = transpose ? ycbcr.getWidth() : ycbcr.getHeight();
+		if (flipX)
+			width -= width % mcuWidth;
+		if (flipY)
+			height -= height % mcuHeight;
+		if (width == 0 || height == 0)
+			throw new IllegalArgumentException("the picture is less than an MCU across");
+
+		int mcusWide = (width + mcuWidth - 1) / mcuWidth;
+		int mcusHigh = (height + mcuHeight - 1) / mcuHeight;
+		CoefficientImage luma = ycbcr.getLuma().createLike(mcusWide * mcuWidth, mcusHigh * mcuHeight, transpose);
+		CoefficientImage chroma = ycbcr.getChroma().createLike(mcusWide * 8, mcusHigh * 8, transpose);
+		transformBlocks(ycbcr.getLuma(), luma);
+		transformBlocks(ycbcr.getChroma(), chroma);
+		return new YCbCrImage(width, height, subsampling, luma, chroma);
+	}
+
+	/**
+	 * Method to fill every block of an image with the transformed block it comes
+	 * from. When the transform mirrors in a direction the image is whole blocks
+	 * in that direction.
+	 *
+	 * @param from the image to transform
+	 * @param to   the image to fill
+	 */
+	private void transformBlocks(CoefficientImage from, CoefficientImage to) {
+		// quantized levels are moved as they are, anything else as coefficients
+		boolean levels = from.getStorage() == CoefficientImage.Storage.SHORT;
+		int blocksWide = to.getBlocksWide();
+		int blocksHigh = to.getBlocksHigh();
+		int[] levelBlock = new int[64];
+		int[] transformedLevels = new int[64];
+		double[] block = new double[64];
+		double[] transformed = new double[64];
+		for (int blockRow = 0; blockRow < blocksHigh; blockRow++) {
+			for (int blockColumn = 0; blockColumn < blocksWide; blockColumn++) {
+				// undo the mirrors and then the transpose to find the block it comes from
+				int row = flipY ? blocksHigh - 1 - blockRow : blockRow;
+				int column = flipX ? blocksWide - 1 - blockColumn : blockColumn;
+				int index = transpose ? from.getBlockIndex(column, row) : from.getBlockIndex(row, column);
+				int target = to.getBlockIndex(blockRow, blockColumn);
+				for (int channel = 0; channel < from.getChannels(); channel++) {
+					if (levels) {
+						from.getLevels(index, channel, levelBlock);
+						for (int k = 0; k < 64; k++)
+							transformedLevels[k] = signs[k] * levelBlock[source[k]];
+						to.setLevels(target, channel, transformedLevels);
+					} else {
+						from.getBlock(index, channel, block);
+						for (int k = 0; k < 64; k++)
+							transformed[k] = signs[k] * block[source[k]];
+						to.setBlock(target, channel, transformed);
+					}
+				}
+			}
+		}
+	}
+}
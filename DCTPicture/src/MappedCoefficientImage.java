@@ -0,0 +1,232 @@
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * A coefficient image kept in a memory-mapped file (a MappedStore) instead of
+ * an array, for pictures whose coefficients don't fit in the heap. The blocks
+ * are laid out the same way as in the other images, one after another in
+ * row-major order, but they are found with long positions, so the only limit
+ * on the size is the disk. The coefficients are stored as floats or as
+ * quantized shorts (the levels, like the short images).
+ *
+ * The DctEngine transforms a MappedRaster into or out of any coefficient image
+ * a band of rows at a time, so a picture and its coefficients can both be
+ * mapped and only a band is ever in the heap.
+ */
+public class MappedCoefficientImage extends CoefficientImage {
+	/** the values */
+	private final MappedStore store;
+
+	/** the way the coefficients are stored, FLOAT or SHORT */
+	private final Storage storage;
+
+	/** the quantization table of each channel, or null for floats */
+	private final QuantizationTable[] tables;
+
+	/** the quantization steps of each channel, or null for floats */
+	private final int[][] steps;
+
+	/** the number of bytes in each value */
+	private final int valueSize;
+
+	/**
+	 * Constructor that maps the file
+	 *
+	 * @param file     the file to keep the coefficients in
+	 * @param width    the width in coefficients
+	 * @param height   the height in coefficients
+	 * @param channels the number of channels
+	 * @param tables   the quantization tables for shorts, or null for floats
+	 * @throws IOException if the file can't be made or mapped
+	 */
+	private MappedCoefficientImage(File file, int width, int height, int channels, QuantizationTable[] tables)
+			throws IOException {
+		super(width, height, channels);
+		if (tables == null) {
+			this.storage = Storage.FLOAT;
+			this.tables = null;
+			this.steps = null;
+			this.valueSize = 4;
+		} else {
+			this.storage = Storage.SHORT;
+			this.tables = tables.clone();
+			this.steps = new int[channels][];
+			for (int channel = 0; channel < channels; channel++)
+				steps[channel] = tables[channel].getSteps();
+			this.valueSize = 2;
+		}
+		long blocks = (long) blocksWide * blocksHigh;
+		if (blocks > Integer.MAX_VALUE)
+			throw new IllegalArgumentException("a " + width + "x" + height + " image has too many blocks");
+		this.store = new MappedStore(file, blocks * channels * BLOCK_AREA * valueSize);
+	}
+
+	/**
+	 * Method to create an image of float coefficients with red, green and blue
+	 * channels in a file
+	 *
+	 * @param file   the file to keep the coefficients in
+	 * @param width  the width in coefficients
+	 * @param height the height in coefficients
+	 * @return the new image, all zero
+	 * @throws IOException if the file can't be made or mapped
+	 */
+	public static MappedCoefficientImage create(File file, int width, int height) throws IOException {
+		return create(file, width, height, CHANNELS);
+	}
+
+	/**
+	 * Method to create an image of float coefficients with the passed number of
+	 * channels in a file
+	 *
+	 * @param file     the file to keep the coefficients in
+	 * @param width    the width in coefficients
+	 * @param height   the height in coefficients
+	 * @param channels the number of channels
+	 * @return the new image, all zero
+	 * @throws IOException if the file can't be made or mapped
+	 */
+	public static MappedCoefficientImage create(File file, int width, int height, int channels) throws IOException {
+		return new MappedCoefficientImage(file, width, height, channels, null);
+	}
+
+	/**
+	 * Method to create an image of short coefficients quantized by a table for
+	 * each channel in a file
+	 *
+	 * @param file   the file to keep the coefficients in
+	 * @param width  the width in coefficients
+	 * @param height the height in coefficients
+	 * @param tables the quantization table of each channel
+	 * @return the new image, all zero levels
+	 * @throws IOException if the file can't be made or mapped
+	 */
+	public static MappedCoefficientImage createQuantized(File file, int width, int height,
+			QuantizationTable[] tables) throws IOException {
+		return new MappedCoefficientImage(file, width, height, tables.length, tables);
+	}
+
+	/**
+	 * Method to get the store the coefficients are kept in
+	 *
+	 * @return the store
+	 */
+	public MappedStore getStore() {
+		return store;
+	}
+
+	/**
+	 * Method to get the position in the store of a coefficient
+	 *
+	 * @param block   the block index
+	 * @param channel the channel
+	 * @param k       the index of the coefficient in the block
+	 * @return the position in bytes
+	 */
+	private long position(int block, int channel, int k) {
+		return (((long) block * channels + channel) * BLOCK_AREA + k) * valueSize;
+	}
+
+	public Storage getStorage() {
+		return storage;
+	}
+
+	public boolean isInteger() {
+		return tables != null;
+	}
+
+	public QuantizationTable getQuantization(int channel) {
+		return tables == null ? null : tables[channel];
+	}
+
+	public double getCoefficient(int block, int channel, int k) {
+		long position = position(block, channel, k);
+		if (tables == null)
+			return store.getFloat(position);
+		return dequantize(store.getShort(position), steps[channel][k], k);
+	}
+
+	public void setCoefficient(int block, int channel, int k, double value) {
+		long position = position(block, channel, k);
+		if (tables == null) {
+			store.putFloat(position, (float) value);
+			return;
+		}
+		store.putShort(position, quantize(value, steps[channel][k], k));
+	}
+
+	public void getBlock(int block, int channel, double[] values) {
+		long position = position(block, channel, 0);
+		if (tables == null) {
+			for (int k = 0; k < BLOCK_AREA; k++)
+				values[k] = store.getFloat(position + 4 * k);
+			return;
+		}
+		int[] step = steps[channel];
+		for (int k = 0; k < BLOCK_AREA; k++)
+			values[k] = dequantize(store.getShort(position + 2 * k), step[k], k);
+	}
+
+	public void setBlock(int block, int channel, double[] values) {
+		long position = position(block, channel, 0);
+		if (tables == null) {
+			for (int k = 0; k < BLOCK_AREA; k++)
+				store.putFloat(position + 4 * k, (float) values[k]);
+			return;
+		}
+		int[] step = steps[channel];
+		for (int k = 0; k < BLOCK_AREA; k++)
+			store.putShort(position + 2 * k, quantize(values[k], step[k], k));
+	}
+
+	public void getBlock(int block, int channel, int[] values) {
+		if (tables == null) {
+			super.getBlock(block, channel, values);
+			return;
+		}
+		long position = position(block, channel, 0);
+		int[] step = steps[channel];
+		for (int k = 0; k < BLOCK_AREA; k++)
+			values[k] = dequantize(store.getShort(position + 2 * k), step[k], k);
+	}
+
+	public void setBlock(int block, int channel, int[] values) {
+		if (tables == null) {
+			super.setBlock(block, channel, values);
+			return;
+		}
+		long position = position(block, channel, 0);
+		int[] step = steps[channel];
+		for (int k = 0; k < BLOCK_AREA; k++)
+			store.putShort(position + 2 * k, quantizeInteger(values[k], step[k], k));
+	}
+
+	public void getLevels(int block, int channel, int[] levels) {
+		if (tables == null) {
+			super.getLevels(block, channel, levels);
+			return;
+		}
+		long position = position(block, channel, 0);
+		for (int k = 0; k < BLOCK_AREA; k++)
+			levels[k] = store.getShort(position + 2 * k);
+	}
+
+	public void setLevels(int block, int channel, int[] levels) {
+		if (tables == null) {
+			super.setLevels(block, channel, levels);
+			return;
+		}
+		long position = position(block, channel, 0);
+		for (int k = 0; k < BLOCK_AREA; k++)
+			store.putShort(position + 2 * k, toShort(levels[k]));
+	}
+
+	/**
+	 * Method to return a string with information about this image
+	 *
+	 * @return a string with the size, storage and store
+	 */
+	public String toString() {
+		return super.toString() + " in " + store;
+	}
+}
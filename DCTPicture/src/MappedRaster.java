@@ -0,0 +1,170 @@
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * A class that holds the pixels of a picture in a memory-mapped file (a
+ * MappedStore) instead of an array, for pictures too big for the heap or for
+ * an array. Each pixel is an int with alpha, red, green and blue like in a
+ * PictureRaster, and the rows are one after another, so the pixel at x and y
+ * is at the long index y * width + x. Work is done on bands of rows: copy
+ * them into a PictureRaster, work on that, and copy them back.
+ */
+public class MappedRaster {
+	/** the pixels */
+	private final MappedStore store;
+
+	/** the width in pixels */
+	private final int width;
+
+	/** the height in pixels */
+	private final int height;
+
+	/**
+	 * Constructor that maps a file for the pixels. A new file is all pixels of
+	 * zero (clear black), an existing one of the same size keeps its pixels.
+	 *
+	 * @param file   the file to keep the pixels in
+	 * @param width  the width in pixels
+	 * @param height the height in pixels
+	 * @throws IOException if the file can't be made or mapped
+	 */
+	public MappedRaster(File file, int width, int height) throws IOException {
+		if (width < 1 || height < 1)
+			throw new IllegalArgumentException("a raster can't be " + width + "x" + height);
+		this.width = width;
+		this.height = height;
+		this.store = new MappedStore(file, 4L * width * height);
+	}
+
+	/**
+	 * Method to get the width
+	 *
+	 * @return the width in pixels
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * Method to get the height
+	 *
+	 * @return the height in pixels
+	 */
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * Method to get the store the pixels are kept in
+	 *
+	 * @return the store
+	 */
+	public MappedStore getStore() {
+		return store;
+	}
+
+	/**
+	 * Method to get the position in the store of a pixel
+	 *
+	 * @param x the x (column) location
+	 * @param y the y (row) location
+	 * @return the position in bytes
+	 */
+	private long position(int x, int y) {
+		return 4 * ((long) y * width + x);
+	}
+
+	/**
+	 * Method to get the pixel value at a location
+	 *
+	 * @param x the x (column) location
+	 * @param y the y (row) location
+	 * @return the pixel value as an int
+	 */
+	public int getPixel(int x, int y) {
+		return store.getInt(position(x, y));
+	}
+
+	/**
+	 * Method to set the pixel value at a location
+	 *
+	 * @param x     the x (column) location
+	 * @param y     the y (row) location
+	 * @param value the pixel value as an int
+	 */
+	public void setPixel(int x, int y, int value) {
+		store.putInt(position(x, y), value);
+	}
+
+	/**
+	 * Method to copy rows of pixels into a raster as wide as this one. As many
+	 * rows are copied as the raster is high.
+	 *
+	 * @param firstRow the first row to copy
+	 * @param rows     the raster to copy them into
+	 */
+	public void getRows(int firstRow, PictureRaster rows) {
+		getRegion(0, firstRow, rows);
+	}
+
+	/**
+	 * Method to copy rows of pixels from a raster as wide as this one. As many
+	 * rows are copied as the raster is high.
+	 *
+	 * @param firstRow the first row to set
+	 * @param rows     the raster to copy them from
+	 */
+	public void setRows(int firstRow, PictureRaster rows) {
+		setRegion(0, firstRow, rows);
+	}
+
+	/**
+	 * Method to copy a rectangle of pixels into a raster the size of the
+	 * rectangle
+	 *
+	 * @param x      the left edge of the rectangle
+	 * @param y      the top edge of the rectangle
+	 * @param region the raster to copy the pixels into
+	 */
+	public void getRegion(int x, int y, PictureRaster region) {
+		checkRegion(x, y, region);
+		for (int i = 0; i < region.getHeight(); i++)
+			store.getInts(position(x, y + i), region.getData(), region.index(0, i), region.getWidth());
+	}
+
+	/**
+	 * Method to copy a rectangle of pixels from a raster the size of the
+	 * rectangle
+	 *
+	 * @param x      the left edge of the rectangle
+	 * @param y      the top edge of the rectangle
+	 * @param region the raster to copy the pixels from
+	 */
+	public void setRegion(int x, int y, PictureRaster region) {
+		checkRegion(x, y, region);
+		for (int i = 0; i < region.getHeight(); i++)
+			store.putInts(position(x, y + i), region.getData(), region.index(0, i), region.getWidth());
+	}
+
+	/**
+	 * Method to make sure a raster fits inside this one at a location
+	 *
+	 * @param x      the left edge
+	 * @param y      the top edge
+	 * @param region the raster
+	 */
+	private void checkRegion(int x, int y, PictureRaster region) {
+		if (x < 0 || y < 0 || x + region.getWidth() > width || y + region.getHeight() > height)
+			throw new IllegalArgumentException("a " + region.getWidth() + "x" + region.getHeight() + " region at " + x
+					+ "," + y + " isn't in the " + width + "x" + height + " raster");
+	}
+
+	/**
+	 * Method to return a string with information about this raster
+	 *
+	 * @return a string with the size
+	 */
+	public String toString() {
+		return "Mapped Raster, height " + height + " width " + width;
+	}
+}
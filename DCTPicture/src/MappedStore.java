@@ -0,0 +1,235 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A class that holds values in a memory-mapped file instead of the Java heap,
+ * so it can be larger than the heap and larger than an array. The operating
+ * system reads and writes the pages of the file as they are used and keeps
+ * the ones used lately in its page cache, so only the part being worked on
+ * needs to be in memory. Values are found by their position in bytes, a long.
+ *
+ * A buffer can only map 2 GB, so the file is mapped in chunks of 1 GB. The
+ * chunks are a multiple of every value size, so a value that is at a multiple
+ * of its size is never split between two chunks. The values are in the byte
+ * order of the machine, so the file is meant to be scratch space for one
+ * program rather than a file format. Reading and writing single values is
+ * safe from more than one thread as long as they use different positions.
+ * The file stays mapped until the store is garbage collected.
+ */
+public class MappedStore {
+	/** the log base 2 of the size of a chunk */
+	private static final int CHUNK_SHIFT = 30;
+
+	/** the size of a chunk in bytes */
+	private static final long CHUNK_SIZE = 1L << CHUNK_SHIFT;
+
+	/** the mapped chunks */
+	private final MappedByteBuffer[] chunks;
+
+	/** the size in bytes */
+	private final long size;
+
+	/**
+	 * Constructor that maps a file of the passed size, making it if there isn't
+	 * one. A new file (or the part of a file past its old end) is all zero bytes.
+	 *
+	 * @param file the file
+	 * @param size the size in bytes
+	 * @throws IOException if the file can't be made or mapped
+	 */
+	public MappedStore(File file, long size) throws IOException {
+		if (size < 0)
+			throw new IllegalArgumentException("the size can't be negative but was " + size);
+		this.size = size;
+		this.chunks = new MappedByteBuffer[(int) ((size + CHUNK_SIZE - 1) >> CHUNK_SHIFT)];
+		try (RandomAccessFile access = new RandomAccessFile(file, "rw")) {
+			access.setLength(size);
+			FileChannel channel = access.getChannel();
+			// a mapping stays valid after its channel is closed
+			for (int i = 0; i < chunks.length; i++) {
+				long start = (long) i << CHUNK_SHIFT;
+				chunks[i] = channel.map(FileChannel.MapMode.READ_WRITE, start, Math.min(CHUNK_SIZE, size - start));
+				chunks[i].order(ByteOrder.nativeOrder());
+			}
+		}
+	}
+
+	/**
+	 * Method to make a store in a new temporary file that is deleted when the
+	 * program exits
+	 *
+	 * @param size the size in bytes
+	 * @return the new store, all zero bytes
+	 * @throws IOException if the file can't be made or mapped
+	 */
+	public static MappedStore createTemporary(long size) throws IOException {
+		File file = File.createTempFile("dct", ".map");
+		file.deleteOnExit();
+		return new MappedStore(file, size);
+	}
+
+	/**
+	 * Method to get the size
+	 *
+	 * @return the size in bytes
+	 */
+	public long getSize() {
+		return size;
+	}
+
+	/**
+	 * Method to get the chunk that holds a position
+	 *
+	 * @param position the position in bytes
+	 * @return the chunk
+	 */
+	private ByteBuffer chunk(long position) {
+		return chunks[(int) (position >>> CHUNK_SHIFT)];
+	}
+
+	/**
+	 * Method to get the position of a position in its chunk
+	 *
+	 * @param position the position in bytes
+	 * @return the position in the chunk
+	 */
+	private static int inChunk(long position) {
+		return (int) (position & (CHUNK_SIZE - 1));
+	}
+
+	/**
+	 * Method to get a short
+	 *
+	 * @param position the position in bytes, a multiple of 2
+	 * @return the value
+	 */
+	public short getShort(long position) {
+		return chunk(position).getShort(inChunk(position));
+	}
+
+	/**
+	 * Method to set a short
+	 *
+	 * @param position the position in bytes, a multiple of 2
+	 * @param value    the value
+	 */
+	public void putShort(long position, short value) {
+		chunk(position).putShort(inChunk(position), value);
+	}
+
+	/**
+	 * Method to get an int
+	 *
+	 * @param position the position in bytes, a multiple of 4
+	 * @return the value
+	 */
+	public int getInt(long position) {
+		return chunk(position).getInt(inChunk(position));
+	}
+
+	/**
+	 * Method to set an int
+	 *
+	 * @param position the position in bytes, a multiple of 4
+	 * @param value    the value
+	 */
+	public void putInt(long position, int value) {
+		chunk(position).putInt(inChunk(position), value);
+	}
+
+	/**
+	 * Method to get a float
+	 *
+	 * @param position the position in bytes, a multiple of 4
+	 * @return the value
+	 */
+	public float getFloat(long position) {
+		return chunk(position).getFloat(inChunk(position));
+	}
+
+	/**
+	 * Method to set a float
+	 *
+	 * @param position the position in bytes, a multiple of 4
+	 * @param value    the value
+	 */
+	public void putFloat(long position, float value) {
+		chunk(position).putFloat(inChunk(position), value);
+	}
+
+	/**
+	 * Method to copy a run of ints into an array
+	 *
+	 * @param position the position in bytes of the first int, a multiple of 4
+	 * @param values   the array to copy into
+	 * @param offset   the index in the array of the first int
+	 * @param length   the number of ints
+	 */
+	public void getInts(long position, int[] values, int offset, int length) {
+		while (length > 0) {
+			IntBuffer ints = ints(position);
+			int count = Math.min(length, ints.remaining());
+			ints.get(values, offset, count);
+			position += 4L * count;
+			offset += count;
+			length -= count;
+		}
+	}
+
+	/**
+	 * Method to copy a run of ints from an array
+	 *
+	 * @param position the position in bytes of the first int, a multiple of 4
+	 * @param values   the array to copy from
+	 * @param offset   the index in the array of the first int
+	 * @param length   the number of ints
+	 */
+	public void putInts(long position, int[] values, int offset, int length) {
+		while (length > 0) {
+			IntBuffer ints = ints(position);
+			int count = Math.min(length, ints.remaining());
+			ints.put(values, offset, count);
+			position += 4L * count;
+			offset += count;
+			length -= count;
+		}
+	}
+
+	/**
+	 * Method to get a view of the ints from a position to the end of its chunk.
+	 * Each call gets its own view, so threads don't share a buffer position.
+	 *
+	 * @param position the position in bytes, a multiple of 4
+	 * @return the ints
+	 */
+	private IntBuffer ints(long position) {
+		ByteBuffer bytes = chunk(position).duplicate();
+		bytes.position(inChunk(position));
+		// a duplicate is big endian whatever the order of the original
+		return bytes.order(ByteOrder.nativeOrder()).asIntBuffer();
+	}
+
+	/**
+	 * Method to write the changed pages to the file now instead of whenever
+	 * the operating system gets to them
+	 */
+	public void force() {
+		for (MappedByteBuffer chunk : chunks)
+			chunk.force();
+	}
+
+	/**
+	 * Method to return a string with information about this store
+	 *
+	 * @return a string with the size
+	 */
+	public String toString() {
+		return "Mapped Store, size " + size + " chunks " + chunks.length;
+	}
+}
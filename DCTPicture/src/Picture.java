@@ -2,6 +2,7 @@ import java.awt.*;
 import java.awt.font.*;
 import java.awt.geom.*;
 import java.awt.image.BufferedImage;
+import java.io.IOException;
 import java.text.*;
 import java.util.*;
 import java.util.List; // resolves problem with java.awt.List and java.util.List
@@ -13,6 +14,11 @@ import java.util.List; // resolves problem with java.awt.List and java.util.List
  * @author Barbara Ericson ericson@cc.gatech.edu
  */
 public class Picture extends SimplePicture {
+	///////////////////// fields //////////////////////////////////
+
+	/** the engine that does the discrete cosine transform of the blocks */
+	private DctEngine dctEngine = new DctEngine();
+
 	///////////////////// constructors //////////////////////////////////
 
 	/**
@@ -82,11 +88,12 @@ public class Picture extends SimplePicture {
 
 	/** Method to set the blue to 0 */
 	public void zeroBlue() {
-		Pixel[][] pixels = this.getPixels2D();
-		for (Pixel[] rowArray : pixels) {
-			for (Pixel pixelObj : rowArray) {
-				pixelObj.setBlue(0);
-			}
+		PictureRaster raster = this.getRaster();
+		int[] data = raster.getData();
+		for (int row = 0; row < raster.getHeight(); row++) {
+			int index = raster.index(0, row);
+			for (int col = 0; col < raster.getWidth(); col++)
+				data[index + col] &= ~0xff;
 		}
 	}
 
@@ -95,15 +102,14 @@ public class Picture extends SimplePicture {
 	 * picture from left to right
 	 */
 	public void mirrorVertical() {
-		Pixel[][] pixels = this.getPixels2D();
-		Pixel leftPixel = null;
-		Pixel rightPixel = null;
-		int width = pixels[0].length;
-		for (int row = 0; row < pixels.length; row++) {
+		PictureRaster raster = this.getRaster();
+		int[] data = raster.getData();
+		int width = raster.getWidth();
+		for (int row = 0; row < raster.getHeight(); row++) {
+			int index = raster.index(0, row);
 			for (int col = 0; col < width / 2; col++) {
-				leftPixel = pixels[row][col];
-				rightPixel = pixels[row][width - 1 - col];
-				rightPixel.setColor(leftPixel.getColor());
+				int right = index + width - 1 - col;
+				data[right] = (data[right] & 0xff000000) | (data[index + col] & 0xffffff);
 			}
 		}
 	}
@@ -111,19 +117,13 @@ public class Picture extends SimplePicture {
 	/** Mirror just part of a picture of a temple */
 	public void mirrorTemple() {
 		int mirrorPoint = 276;
-		Pixel leftPixel = null;
-		Pixel rightPixel = null;
-		int count = 0;
-		Pixel[][] pixels = this.getPixels2D();
+		PictureRaster raster = this.getRaster();
 
 		// loop through the rows
 		for (int row = 27; row < 97; row++) {
 			// loop from 13 to just before the mirror point
 			for (int col = 13; col < mirrorPoint; col++) {
-
-				leftPixel = pixels[row][col];
-				rightPixel = pixels[row][mirrorPoint - col + mirrorPoint];
-				rightPixel.setColor(leftPixel.getColor());
+				raster.setRGB(mirrorPoint - col + mirrorPoint, row, raster.getPixel(col, row));
 			}
 		}
 	}
@@ -137,17 +137,18 @@ public class Picture extends SimplePicture {
 	 * @param startCol the start col to copy to
 	 */
 	public void copy(Picture fromPic, int startRow, int startCol) {
-		Pixel fromPixel = null;
-		Pixel toPixel = null;
-		Pixel[][] toPixels = this.getPixels2D();
-		Pixel[][] fromPixels = fromPic.getPixels2D();
-		for (int fromRow = 0, toRow = startRow; fromRow < fromPixels.length
-				&& toRow < toPixels.length; fromRow++, toRow++) {
-			for (int fromCol = 0, toCol = startCol; fromCol < fromPixels[0].length
-					&& toCol < toPixels[0].length; fromCol++, toCol++) {
-				fromPixel = fromPixels[fromRow][fromCol];
-				toPixel = toPixels[toRow][toCol];
-				toPixel.setColor(fromPixel.getColor());
+		PictureRaster to = this.getRaster();
+		PictureRaster from = fromPic.getRaster();
+		int[] toData = to.getData();
+		int[] fromData = from.getData();
+		for (int fromRow = 0, toRow = startRow; fromRow < from.getHeight()
+				&& toRow < to.getHeight(); fromRow++, toRow++) {
+			int fromIndex = from.index(0, fromRow);
+			int toIndex = to.index(startCol, toRow);
+			for (int fromCol = 0, toCol = startCol; fromCol < from.getWidth()
+					&& toCol < to.getWidth(); fromCol++, toCol++) {
+				int target = toIndex + fromCol;
+				toData[target] = (toData[target] & 0xff000000) | (fromData[fromIndex + fromCol] & 0xffffff);
 			}
 		}
 	}
@@ -174,19 +175,24 @@ public class Picture extends SimplePicture {
 	 * @param edgeDist the distance for finding edges
 	 */
 	public void edgeDetection(int edgeDist) {
-		Pixel leftPixel = null;
-		Pixel rightPixel = null;
-		Pixel[][] pixels = this.getPixels2D();
-		Color rightColor = null;
-		for (int row = 0; row < pixels.length; row++) {
-			for (int col = 0; col < pixels[0].length - 1; col++) {
-				leftPixel = pixels[row][col];
-				rightPixel = pixels[row][col + 1];
-				rightColor = rightPixel.getColor();
-				if (leftPixel.colorDistance(rightColor) > edgeDist)
-					leftPixel.setColor(Color.BLACK);
-				else
-					leftPixel.setColor(Color.WHITE);
+		PictureRaster raster = this.getRaster();
+		int[] data = raster.getData();
+		int black = Color.BLACK.getRGB() & 0xffffff;
+		int white = Color.WHITE.getRGB() & 0xffffff;
+		double edgeDistSquared = (double) edgeDist * edgeDist;
+		for (int row = 0; row < raster.getHeight(); row++) {
+			int index = raster.index(0, row);
+			for (int col = 0; col < raster.getWidth() - 1; col++) {
+				int left = data[index + col];
+				int right = data[index + col + 1];
+				// compare the squared distance so no square root is needed
+				double redDistance = Pixel.getRed(left) - Pixel.getRed(right);
+				double greenDistance = Pixel.getGreen(left) - Pixel.getGreen(right);
+				double blueDistance = Pixel.getBlue(left) - Pixel.getBlue(right);
+				double distanceSquared = redDistance * redDistance + greenDistance * greenDistance
+						+ blueDistance * blueDistance;
+				int color = (edgeDist < 0 || distanceSquared > edgeDistSquared) ? black : white;
+				data[index + col] = (left & 0xff000000) | color;
 			}
 		}
 	}
@@ -194,274 +200,264 @@ public class Picture extends SimplePicture {
 // Dct performs the discrete cosine theorem on 8x8 blocks of pixels on the picture and returns the values in 
 
 	public double[][][] dct() {
-		Pixel[][] currPixels = this.getPixels2D();
-		int i, j, k, l;
-		int m2 = currPixels.length;
-		int n2 = currPixels[0].length;
-		int n = 8, m = 8;
-		System.out.println("width: " + m);
-		System.out.println("height: " + n);
-
-		// dct will store the discrete cosine transform
-		double m1 = Math.sqrt(8);
-		double n1 = Math.sqrt(8);
-		double var2 = Math.sqrt(2);
-		double ci, cj, dctR, dctG, dctB, sumR, sumB, sumG;
-		double[][][] colorArray = new double[3][m2][n2];
-		/*
-		 * for (i = 0; i < m2; i++) { for (j = 0; j < n2; j++) System.out.printf("%f\t",
-		 * currPixels[i][j].getAverage()); System.out.println(); }
-		 */
-		for (int r = 0; r < m2; r += 8) { // for loops breaking up the image into 8x8 blocks
-			for (int c = 0; c < n2; c += 8) {
-
-				for (i = 0; i < 8; i++) {
-					for (j = 0; j < 8; j++) {
-
-						// ci and cj depends on frequency as well as
-						// number of row and columns of specified matrix
-						if (i == 0)
-							ci = 1 / m1;
-						else
-							ci = var2 / m1;
-
-						if (j == 0)
-							cj = 1 / n1;
-						else
-							cj = var2 / n1;
-
-						// sum will temporarily store the sum of
-						// cosine signals
-						sumR = 0;
-						sumB = 0;
-						sumG = 0;
-						for (k = 0; k < 8; k++) {
-							for (l = 0; l < 8; l++) {
-								// dct for red pixels
-								double a = Math.cos((2 * k + 1) * i * Math.PI / (2 * m))
-										* Math.cos((2 * l + 1) * j * Math.PI / (2 * n));
-								dctR = currPixels[k + r][l + c].getRed() * a;
-								sumR = sumR + dctR;
-								// dct for green pixels;
-								dctG = currPixels[k + r][c + l].getGreen()
-										* a;
-								sumG = sumG + dctG;
-								// dct for blue pixels;
-								dctB = currPixels[k + r][l + c].getBlue()
-										* a;
-								sumB = sumB + dctB;
-
-							}
-						}
-						colorArray[0][i + r][j + c] = ((ci * cj * sumR));
-						colorArray[1][i + r][j + c] = ((ci * cj * sumG));
-						colorArray[2][i + r][j + c] = ((ci * cj * sumB));
-
-						System.out.println("coordinates: x: " + (i + r) + " y: " + (j + c));
-
-					}
-
-				}
-			}
-		}
-
-		// --------------------------------------------------------------------------------------------------------------
-		// takes an array and seperates it into 8x8 arrays - returns a 2-d array
-
-		/*
-		 * int RCounter = 0, CCounter = 0; int newArrayCounter = 0; for(int i = 0 ;
-		 * i<currPixels.length; i++) { for(int j=0; j<currPixels[0].length; j++) {
-		 * if(CCounter%8==0) { break; } else {
-		 * 
-		 * newPixels[newArrayCounter] } }
-		 * 
-		 * }
-		 */
-		return colorArray;
+		// the engine transforms each block with its kernel
+		return dctEngine.forward(this.getRaster());
 	}
 
 	// -------------------------------------------------------------------------------------------------------------
 	// inverse dct
 
 	public void idct(double[][][] colorArray) {
-
-		int i, j, k, l;
-		// dct will store the discrete cosine transform
-
-		Pixel[][] matrix = this.getPixels2D();
-		int m1 = matrix.length;
-		int n1 = matrix[0].length;
-
-		int m = 8, n = 8;
-		double ck, cl, dctR, dctG, dctB, sumR, sumB, sumG, c1,c2;
-		c1 = Math.sqrt(2);
-		c2 = Math.sqrt(8);
-		for (int r = 0; r < m1; r += 8) { // for loops breaking up the image into 8x8 blocks
-			for (int c = 0; c < n1; c += 8) {
-
-				for (i = 0; i < 8; i++) {
-					for (j = 0; j < 8; j++) {
-						// ci and cj depends on frequency as well as
-						// number of row and columns of specified matrix
-
-						// sum will temporarily store the sum of
-						// cosine signals
-
-						sumR = 0;
-						sumG = 0;
-						sumB = 0;
-
-						for (k = 0; k < 8; k++) {
-							for (l = 0; l < 8; l++) {
-								double a =  Math.cos((2 * i + 1) * k * Math.PI / (2 * m))
-										* Math.cos((2 * j + 1) * l * Math.PI / (2 * n));
-
-								if (k == 0)
-									ck = 1 / c2;
-								else
-									ck = c1 / c2;
-
-								if (l == 0)
-									cl = 1 / c2;
-								else
-									cl = c1 / c2;
-
-								dctR = colorArray[0][k + r][l + c] * a;
-								sumR = sumR + ck * cl * dctR;
-
-								dctG = colorArray[1][k + r][l + c] * a;
-								sumG = sumG + ck * cl * dctG;
-
-								dctB = colorArray[2][k + r][l + c] * a;
-								sumB = sumB + ck * cl * dctB;
-							}
-						}
-						if (sumR >= 255) {
-							sumR = 255;
-						}
-						if (sumG >= 255) {
-							sumG = 255;
-						}
-						if (sumB >= 255) {
-							sumB = 255;
-						}
-
-						// System.out.println("running inverse dct");
-						matrix[i + r][j + c].setRed((int) sumR);
-						matrix[i + r][j + c].setGreen((int) sumG);
-						matrix[i + r][j + c].setBlue((int) sumB);
-					}
-				}
-			}
-		}
-		for (i = 0; i < m1; i++) {
-			for (j = 0; j < n1; j++)
-				System.out.printf("%f\t", matrix[i][j].getAverage());
-			System.out.println();
-		}
+		PictureRaster matrix = this.getRaster();
+		dctEngine.inverse(colorArray, matrix);
 	}
 
 	// --------------------------------------------------------------------------------------------------------------------------
-	//inverse idct method that shows the picture, but uses 3 seperate 8x8 array to store the colors and zero part of the array out...
-	// to blur it
+	//inverse idct method that shows the picture, but only keeps the 4x4 lowest frequencies of each 8x8 block and zeroes
+	// the rest to blur it
 	public void idctBlur(double[][][] colorArray) {
+		PictureRaster matrix = this.getRaster();
+		dctEngine.inverse(colorArray, matrix, 4);
+	}
 
-		int i, j, k, l, q, w;
-		// dct will store the discrete cosine transform
-
-		Pixel[][] matrix = this.getPixels2D();
-		int m1 = matrix.length;
-		int n1 = matrix[0].length;
-
-		int m = 8, n = 8;
-		double ck, cl, dctR, dctG, dctB, sumR, sumB, sumG, c1,c2;
-		c1 = Math.sqrt(2);
-		c2 = Math.sqrt(8);
-		for (int r = 0; r < m1; r += 8) { // for loops breaking up the image into 8x8 blocks
-			for (int c = 0; c < n1; c += 8) {
-
-				double[][] blurredGreenArray = new double[8][8];
-				double[][] blurredRedArray = new double[8][8];
-				double[][] blurredBlueArray = new double[8][8];
-				for (q = 0; q < 8; q++) {
-					for (w = 0; w < 8; w++) {
-						if(q<=3 && w<=3) {
-						blurredGreenArray[q][w] = colorArray[1][q+r][w+c];
-						blurredRedArray[q][w] = colorArray[0][q+r][w+c];
-						blurredBlueArray[q][w] = colorArray[2][q+r][w+c];
-
-						}
-						else {
-							blurredGreenArray[q][w] = 0;
-							blurredRedArray[q][w] = 0;
-							blurredBlueArray[q][w] = 0;
-						}
-					}
-				}
-
-				for (i = 0; i < 8; i++) {
-					for (j = 0; j < 8; j++) {
-						// ci and cj depends on frequency as well as
-						// number of row and columns of specified matrix
-
-						// sum will temporarily store the sum of
-						// cosine signals
-
-						sumR = 0;
-						sumG = 0;
-						sumB = 0;
-
-						for (k = 0; k < 8; k++) {
-							for (l = 0; l < 8; l++) {
-								
-								double a =  Math.cos((2 * i + 1) * k * Math.PI / (2 * m))
-										* Math.cos((2 * j + 1) * l * Math.PI / (2 * n));
-
-								if (k == 0)
-									ck = 1 / c2;
-								else
-									ck = c1 / c2;
-
-								if (l == 0)
-									cl = 1 /c2;
-								else
-									cl = c1 / c2;
-
-								dctR = blurredRedArray[k][l] *a;
-								sumR = sumR + ck * cl * dctR;
-
-								dctG = blurredGreenArray[k][l] * a;
-								sumG = sumG + ck * cl * dctG;
-
-								dctB = blurredBlueArray[k][l] * a;
-								sumB = sumB + ck * cl * dctB;
-							}
-						}
-						if (sumR >= 255) {
-							sumR = 255;
-						}
-						if (sumG >= 255) {
-							sumG = 255;
-						}
-						if (sumB >= 255) {
-							sumB = 255;
-						}
-
-						// System.out.println("running inverse dct");
-						matrix[i + r][j + c].setRed((int) sumR);
-						matrix[i + r][j + c].setGreen((int) sumG);
-						matrix[i + r][j + c].setBlue((int) sumB);
-					}
-				}
-			}
+	/**
+	 * Method to do the discrete cosine transform of the 8x8 blocks into
+	 * coefficients stored the passed way. Float storage takes half the memory of
+	 * dct() and short storage a quarter; short coefficients are computed with
+	 * fixed point arithmetic and are exactly the same on every machine.
+	 * 
+	 * @param storage the way to store the coefficients
+	 * @return the coefficients
+	 */
+	public CoefficientImage dct(CoefficientImage.Storage storage) {
+		return dctEngine.forward(this.getRaster(), storage);
+	}
+
+	/**
+	 * Method to do the discrete cosine transform of the 8x8 blocks with fixed
+	 * point integer arithmetic. The coefficients are rounded to integers and are
+	 * exactly the same on every machine.
+	 * 
+	 * @return the coefficients stored as shorts
+	 */
+	public CoefficientImage dctInteger() {
+		return dct(CoefficientImage.Storage.SHORT);
+	}
+
+	/**
+	 * Method to do the inverse discrete cosine transform of the passed
+	 * coefficients into this picture
+	 * 
+	 * @param coefficients the coefficients from dct(storage)
+	 */
+	public void idct(CoefficientImage coefficients) {
+		PictureRaster matrix = this.getRaster();
+		dctEngine.inverse(coefficients, matrix, 8);
+	}
+
+	/**
+	 * Method to do the inverse discrete cosine transform of the passed
+	 * coefficients into this picture keeping only the 4x4 lowest frequencies of
+	 * each block to blur it
+	 * 
+	 * @param coefficients the coefficients from dct(storage)
+	 */
+	public void idctBlur(CoefficientImage coefficients) {
+		PictureRaster matrix = this.getRaster();
+		dctEngine.inverse(coefficients, matrix, 4);
+	}
+
+	/**
+	 * Method to do the discrete cosine transform of the 8x8 blocks and quantize
+	 * the coefficients of every channel with the passed table
+	 * 
+	 * @param table the quantization table
+	 * @return the quantized coefficients stored as shorts
+	 */
+	public CoefficientImage dct(QuantizationTable table) {
+		PictureRaster raster = this.getRaster();
+		CoefficientImage coefficients = CoefficientImage.createQuantized(raster.getWidth(), raster.getHeight(), table);
+		dctEngine.forward(raster, coefficients);
+		return coefficients;
+	}
+
+	/**
+	 * Method to convert the picture to YCbCr with the chroma subsampled the
+	 * passed way and do the discrete cosine transform of the 8x8 blocks of the
+	 * luma and chroma. 4:2:0 subsampling does half the transforms of dct().
+	 * 
+	 * @param subsampling how to subsample the chroma
+	 * @return the coefficients
+	 */
+	public YCbCrImage dct(ChromaSubsampling subsampling) {
+		PictureRaster raster = this.getRaster();
+		YCbCrImage ycbcr = YCbCrImage.create(CoefficientImage.Storage.DOUBLE, raster.getWidth(), raster.getHeight(),
+				subsampling);
+		dctEngine.forward(raster, ycbcr);
+		return ycbcr;
+	}
+
+	/**
+	 * Method to convert the picture to YCbCr with the chroma subsampled the
+	 * passed way, transform it and quantize the luma and chroma with the
+	 * standard JPEG tables at the passed quality
+	 * 
+	 * @param subsampling how to subsample the chroma
+	 * @param quality     the quality from 1 to 100
+	 * @return the quantized coefficients stored as shorts
+	 */
+	public YCbCrImage dct(ChromaSubsampling subsampling, int quality) {
+		PictureRaster raster = this.getRaster();
+		YCbCrImage ycbcr = YCbCrImage.createQuantized(raster.getWidth(), raster.getHeight(), subsampling, quality);
+		dctEngine.forward(raster, ycbcr);
+		return ycbcr;
+	}
+
+	/**
+	 * Method to do the inverse discrete cosine transform of the passed YCbCr
+	 * coefficients into this picture
+	 * 
+	 * @param ycbcr the coefficients from dct(subsampling)
+	 */
+	public void idct(YCbCrImage ycbcr) {
+		dctEngine.inverse(ycbcr, this.getRaster());
+	}
+
+	/**
+	 * Method to do the inverse discrete cosine transform of the passed YCbCr
+	 * coefficients into this picture keeping only the 4x4 lowest frequencies of
+	 * each luma and chroma block
+	 * 
+	 * @param ycbcr the coefficients from dct(subsampling) or readJpeg()
+	 */
+	public void idctBlur(YCbCrImage ycbcr) {
+		dctEngine.inverse(ycbcr, this.getRaster(), 4);
+	}
+
+	/**
+	 * Method to read the quantized coefficients of a JPEG file without decoding
+	 * it to pixels. Making a picture the size of the coefficients and calling
+	 * idct() or idctBlur() with them skips the transform dct() would do.
+	 * 
+	 * @param fileName the name of the file, looked for in the media directory if
+	 *                 it can't be read as it is
+	 * @return the coefficients
+	 * @throws IOException if the file can't be read or isn't a baseline JPEG
+	 */
+	public static YCbCrImage readJpeg(String fileName) throws IOException {
+		return JpegReader.readCoefficients(getFileToRead(fileName));
+	}
+
+	/**
+	 * Method to write the picture as a JPEG file quantized at the passed quality
+	 * 
+	 * @param fileName the name of the file, in the media directory if it has no
+	 *                 directory
+	 * @param quality  the quality from 1 to 100
+	 * @return true if success else false
+	 */
+	public boolean writeJpeg(String fileName, int quality) {
+		try {
+			writeJpegOrFail(fileName, quality);
+			return true;
+		} catch (IOException ex) {
+			System.out.println("There was an error trying to write " + fileName);
+			ex.printStackTrace();
+			return false;
 		}
-		for (i = 0; i < m1; i++) {
-			for (j = 0; j < n1; j++)
-				System.out.printf("%f\t", matrix[i][j].getAverage());
-			System.out.println();
+	}
+
+	/**
+	 * Method to write the picture as a JPEG file quantized at the passed quality
+	 * 
+	 * @param fileName the name of the file, in the media directory if it has no
+	 *                 directory
+	 * @param quality  the quality from 1 to 100
+	 * @throws IOException if the file can't be written
+	 */
+	public void writeJpegOrFail(String fileName, int quality) throws IOException {
+		JpegWriter writer = new JpegWriter();
+		writer.setQuality(quality);
+		writer.setEngine(dctEngine);
+		writer.write(this.getRaster(), getFileToWrite(fileName));
+	}
+
+	/**
+	 * Method to write quantized coefficients from dct(subsampling, quality) as a
+	 * JPEG file without transforming the picture again
+	 * 
+	 * @param fileName the name of the file, in the media directory if it has no
+	 *                 directory
+	 * @param ycbcr    the coefficients
+	 * @return true if success else false
+	 */
+	public boolean writeJpeg(String fileName, YCbCrImage ycbcr) {
+		try {
+			new JpegWriter().write(ycbcr, getFileToWrite(fileName));
+			return true;
+		} catch (IOException ex) {
+			System.out.println("There was an error trying to write " + fileName);
+			ex.printStackTrace();
+			return false;
 		}
 	}
 
+	/**
+	 * Method to change the tone and sharpness of this picture with a chain of
+	 * coefficient changes. The picture is transformed once, every change is
+	 * done in one pass over the coefficients and then it is inverse
+	 * transformed once.
+	 * 
+	 * @param filter the changes, such as new
+	 *               CoefficientFilter().brightness(20).contrast(1.2)
+	 */
+	public void filter(CoefficientFilter filter) {
+		CoefficientImage coefficients = dct(CoefficientImage.Storage.DOUBLE);
+		filter.apply(coefficients);
+		idct(coefficients);
+	}
+
+	/**
+	 * Method to change this picture to look the way it would after being
+	 * compressed with the standard JPEG luminance table at the passed quality.
+	 * Lower qualities lose more detail. Unlike idctBlur(), which always keeps
+	 * the 4x4 lowest frequencies, this keeps each frequency as well as its
+	 * quantization step allows.
+	 * 
+	 * @param quality the quality from 1 to 100
+	 */
+	public void quantize(int quality) {
+		quantize(QuantizationTable.luminance(quality));
+	}
+
+	/**
+	 * Method to change this picture to look the way it would after its
+	 * coefficients are quantized with the passed table
+	 * 
+	 * @param table the quantization table used for every channel
+	 */
+	public void quantize(QuantizationTable table) {
+		dctEngine.quantize(this.getRaster(), new QuantizationTable[] { table, table, table });
+	}
+
+	/**
+	 * Method to get the engine used by dct(), idct() and idctBlur()
+	 * 
+	 * @return the dct engine
+	 */
+	public DctEngine getDctEngine() {
+		return dctEngine;
+	}
+
+	/**
+	 * Method to set the engine used by dct(), idct() and idctBlur()
+	 * 
+	 * @param dctEngine the dct engine to use
+	 */
+	public void setDctEngine(DctEngine dctEngine) {
+		this.dctEngine = dctEngine;
+	}
+
 	/*
 	 * Main method for testing - each class in Java can have a main method
 	 */
@@ -0,0 +1,132 @@
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+
+/**
+ * A class that gives direct access to the pixels of a picture as an array of
+ * ints. Each int holds one pixel as (alpha,) red, green and blue with 8 bits
+ * each, the same as getBasicPixel(), and the pixel at x and y is at
+ * getOffset() + y * getStride() + x. Reading and writing the array is the
+ * same as reading and writing the picture, with no color model conversion and
+ * no Pixel object for each pixel.
+ */
+public class PictureRaster
+{
+  /** the pixels */
+  private int[] data;
+  
+  /** the index of the pixel at 0,0 */
+  private int offset;
+  
+  /** the distance between the start of two rows */
+  private int stride;
+  
+  /** the width in pixels */
+  private int width;
+  
+  /** the height in pixels */
+  private int height;
+  
+  /**
+   * A constructor that takes a buffered image whose pixels are packed
+   * into ints (TYPE_INT_RGB or TYPE_INT_ARGB)
+   * @param image the buffered image
+   */
+  public PictureRaster(BufferedImage image)
+  {
+    WritableRaster raster = image.getRaster();
+    DataBufferInt buffer = (DataBufferInt) raster.getDataBuffer();
+    SinglePixelPackedSampleModel model = 
+      (SinglePixelPackedSampleModel) raster.getSampleModel();
+    this.data = buffer.getData();
+    this.stride = model.getScanlineStride();
+    this.offset = buffer.getOffset() 
+      - raster.getSampleModelTranslateY() * stride
+      - raster.getSampleModelTranslateX();
+    this.width = image.getWidth();
+    this.height = image.getHeight();
+  }
+  
+  /**
+   * Method to tell if a buffered image can be used directly
+   * @param image the buffered image
+   * @return true if its pixels are packed into ints
+   */
+  public static boolean canWrap(BufferedImage image)
+  {
+    int type = image.getType();
+    return type == BufferedImage.TYPE_INT_RGB || 
+      type == BufferedImage.TYPE_INT_ARGB;
+  }
+  
+  /**
+   * Method to get the array of pixels
+   * @return the pixels
+   */
+  public int[] getData() { return data; }
+  
+  /**
+   * Method to get the index of the pixel at 0,0
+   * @return the index of the first pixel
+   */
+  public int getOffset() { return offset; }
+  
+  /**
+   * Method to get the distance between the start of two rows
+   * @return the number of ints from one row to the next
+   */
+  public int getStride() { return stride; }
+  
+  /**
+   * Method to get the width
+   * @return the width in pixels
+   */
+  public int getWidth() { return width; }
+  
+  /**
+   * Method to get the height
+   * @return the height in pixels
+   */
+  public int getHeight() { return height; }
+  
+  /**
+   * Method to get the index of a pixel in the array
+   * @param x the x (column) location
+   * @param y the y (row) location
+   * @return the index of the pixel
+   */
+  public int index(int x, int y) { return offset + y * stride + x; }
+  
+  /**
+   * Method to get the pixel value at a location
+   * @param x the x (column) location
+   * @param y the y (row) location
+   * @return the pixel value as an int
+   */
+  public int getPixel(int x, int y) { return data[offset + y * stride + x]; }
+  
+  /**
+   * Method to set the pixel value at a location
+   * @param x the x (column) location
+   * @param y the y (row) location
+   * @param value the pixel value as an int
+   */
+  public void setPixel(int x, int y, int value) 
+  { 
+    data[offset + y * stride + x] = value; 
+  }
+  
+  /**
+   * Method to set the red, green and blue at a location and
+   * keep the alpha
+   * @param x the x (column) location
+   * @param y the y (row) location
+   * @param rgb the red, green and blue as an int
+   */
+  public void setRGB(int x, int y, int rgb)
+  {
+    int index = offset + y * stride + x;
+    data[index] = (data[index] & 0xff000000) | (rgb & 0xffffff);
+  }
+}
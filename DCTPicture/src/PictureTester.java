@@ -62,6 +62,152 @@ public class PictureTester
 	  
   }
   
+  /** Method to test quantize */
+  public static void testQuantize()
+  {
+    Picture beach = new Picture("beach.jpg");
+    beach.explore();
+    beach.quantize(10);
+    beach.explore();
+  }
+  
+  /** Method to test the YCbCr transform with 4:2:0 chroma */
+  public static void testYCbCr()
+  {
+    Picture beach = new Picture("beach.jpg");
+    beach.explore();
+    beach.idct(beach.dct(ChromaSubsampling.S420, 50));
+    beach.explore();
+  }
+  
+  /** Method to test writing and reading a .dctp file */
+  public static void testDctp()
+  {
+    Picture beach = new Picture("beach.jpg");
+    beach.write("beach.dctp");
+    Picture copy = new Picture("beach.dctp");
+    copy.explore();
+  }
+  
+  /** Method to test writing a JPEG file from the coefficients */
+  public static void testJpeg()
+  {
+    Picture beach = new Picture("beach.jpg");
+    YCbCrImage coefficients = beach.dct(ChromaSubsampling.S420, 50);
+    beach.writeJpeg("beach-q50.jpg", coefficients);
+    Picture copy = new Picture("beach-q50.jpg");
+    copy.explore();
+  }
+  
+  /** Method to test blurring the coefficients read from a JPEG file */
+  public static void testJpegBlur()
+  {
+    try {
+      YCbCrImage coefficients = Picture.readJpeg("beach.jpg");
+      Picture beach = new Picture(coefficients.getHeight(), coefficients.getWidth());
+      beach.idctBlur(coefficients);
+      beach.explore();
+    } catch (java.io.IOException ex) {
+      ex.printStackTrace();
+    }
+  }
+  
+  /** Method to test making thumbnails from the coefficients */
+  public static void testThumbnails()
+  {
+    Picture beach = new Picture("beach.jpg");
+    YCbCrImage coefficients = beach.dct(ChromaSubsampling.S420, 75);
+    coefficients.toPicture(2).explore();
+    coefficients.toPicture(4).explore();
+    coefficients.toPicture(8).explore();
+  }
+  
+  /** Method to test turning a JPEG file without decoding it */
+  public static void testLosslessRotate()
+  {
+    try {
+      YCbCrImage coefficients = Picture.readJpeg("beach.jpg");
+      YCbCrImage turned = LosslessTransform.ROTATE_90.apply(coefficients);
+      Picture beach = new Picture(turned.getHeight(), turned.getWidth());
+      beach.writeJpeg("beach-rotated.jpg", turned);
+      beach.idct(turned);
+      beach.explore();
+    } catch (java.io.IOException ex) {
+      ex.printStackTrace();
+    }
+  }
+  
+  /** Method to test changing the tone in the coefficients */
+  public static void testCoefficientFilter()
+  {
+    Picture beach = new Picture("beach.jpg");
+    beach.filter(new CoefficientFilter().brightness(15).contrast(1.3).saturation(1.2).sharpen(0.8));
+    beach.explore();
+  }
+  
+  /** Method to test blurring through memory-mapped files */
+  public static void testMappedBlur()
+  {
+    try {
+      Picture beach = new Picture("beach.jpg");
+      PictureRaster pixels = beach.getRaster();
+      java.io.File rasterFile = java.io.File.createTempFile("beach", ".pixels");
+      java.io.File coefficientFile = java.io.File.createTempFile("beach", ".coefficients");
+      rasterFile.deleteOnExit();
+      coefficientFile.deleteOnExit();
+      MappedRaster raster = 
+        new MappedRaster(rasterFile, pixels.getWidth(), pixels.getHeight());
+      raster.setRows(0, pixels);
+      MappedCoefficientImage coefficients = 
+        MappedCoefficientImage.create(coefficientFile, raster.getWidth(), raster.getHeight());
+      DctEngine engine = new DctEngine();
+      engine.forward(raster, coefficients);
+      engine.inverse(coefficients, raster, 4);
+      raster.getRows(0, pixels);
+      beach.explore();
+    } catch (java.io.IOException ex) {
+      ex.printStackTrace();
+    }
+  }
+  
+  /** Method to test blurring a picture a tile at a time */
+  public static void testTiledBlur()
+  {
+    TiledPicture beach = new TiledPicture("beach.jpg", 128, 8);
+    CoefficientImage coefficients = beach.dct(CoefficientImage.Storage.FLOAT);
+    beach.idctBlur(coefficients);
+    System.out.println(beach);
+    beach.explore();
+  }
+  
+  /** Method to test compressing a picture a band of rows at a time */
+  public static void testStreamingJpeg()
+  {
+    try {
+      java.io.File input = new java.io.File(FileChooser.getMediaPath("beach.jpg"));
+      java.io.File output = java.io.File.createTempFile("beach", ".jpg");
+      output.deleteOnExit();
+      BandPipeline pipeline = new BandPipeline();
+      pipeline.setQuality(50);
+      System.out.println(pipeline.run(input, output));
+      Picture beach = new Picture(output.getPath());
+      beach.explore();
+    } catch (java.io.IOException ex) {
+      ex.printStackTrace();
+    }
+  }
+  
+  /** Method to test the transform metrics */
+  public static void testDCTMetrics()
+  {
+    Picture beach = new Picture("beach.jpg");
+    TransformMetrics metrics = new TransformMetrics(true);
+    beach.getDctEngine().setListener(metrics, 1000);
+    beach.idctBlur(beach.dct());
+    System.out.print(metrics);
+    beach.explore();
+  }
+  
   /** Main method for testing.  Every class can have a main
     * method in Java */
   public static void main(String[] args)
@@ -73,6 +219,18 @@ public class PictureTester
     testDCT();
 	  System.out.println("ran");
 
+    //testQuantize();
+    //testYCbCr();
+    //testDctp();
+    //testJpeg();
+    //testJpegBlur();
+    //testThumbnails();
+    //testLosslessRotate();
+    //testCoefficientFilter();
+    //testMappedBlur();
+    //testTiledBlur();
+    //testStreamingJpeg();
+    //testDCTMetrics();
     //testKeepOnlyBlue();
     //testKeepOnlyRed();
     //testKeepOnlyGreen();
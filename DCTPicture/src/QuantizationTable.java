@@ -0,0 +1,179 @@
+import java.util.Arrays;
+
+/**
+ * A class that holds the 64 quantization steps of a block, one for each
+ * frequency in row-major order. A coefficient is quantized by dividing it by
+ * its step and rounding, so bigger steps keep less detail and take fewer bits.
+ * The standard tables are the example luminance and chrominance tables of the
+ * JPEG standard, scaled by a quality from 1 (smallest) to 100 (best) the same
+ * way the Independent JPEG Group's library scales them.
+ */
+public class QuantizationTable {
+	/** the example luminance table of the JPEG standard (quality 50) */
+	private static final int[] LUMINANCE = { 16, 11, 10, 16, 24, 40, 51, 61, 12, 12, 14, 19, 26, 58, 60, 55, 14, 13,
+			16, 24, 40, 57, 69, 56, 14, 17, 22, 29, 51, 87, 80, 62, 18, 22, 37, 56, 68, 109, 103, 77, 24, 35, 55, 64,
+			81, 104, 113, 92, 49, 64, 78, 87, 103, 121, 120, 101, 72, 92, 95, 98, 112, 100, 103, 99 };
+
+	/** the example chrominance table of the JPEG standard (quality 50) */
+	private static final int[] CHROMINANCE = { 17, 18, 24, 47, 99, 99, 99, 99, 18, 21, 26, 66, 99, 99, 99, 99, 24, 26,
+			56, 99, 99, 99, 99, 99, 47, 66, 99, 99, 99, 99, 99, 99, 99, 99, 99, 99, 99, 99, 99, 99, 99, 99, 99, 99,
+			99, 99, 99, 99, 99, 99, 99, 99, 99, 99, 99, 99, 99, 99, 99, 99, 99, 99, 99, 99 };
+
+	/** the largest step a baseline JPEG table can hold */
+	public static final int MAX_STEP = 255;
+
+	/** the steps in row-major order */
+	private final int[] steps;
+
+	/** the factors that quantize the scaled output of AanDctKernel.forwardScaled */
+	private final double[] scaledDivisors = new double[64];
+
+	/** the factors that dequantize into the scaled input of AanDctKernel.inverseScaled */
+	private final double[] scaledMultipliers = new double[64];
+
+	/**
+	 * Constructor that takes the 64 steps
+	 * 
+	 * @param steps the steps (1 or more) in row-major order
+	 */
+	public QuantizationTable(int[] steps) {
+		if (steps.length != 64)
+			throw new IllegalArgumentException("a table needs 64 steps but had " + steps.length);
+		this.steps = steps.clone();
+		for (int k = 0; k < 64; k++) {
+			if (steps[k] < 1)
+				throw new IllegalArgumentException("step " + k + " must be at least 1 but was " + steps[k]);
+			// AAN leaves each coefficient multiplied by SCALE[k], so fold it in
+			scaledDivisors[k] = 1 / (AanDctKernel.SCALE[k] * steps[k]);
+			scaledMultipliers[k] = steps[k] * AanDctKernel.SCALE[k] / 64;
+		}
+	}
+
+	/**
+	 * Method to make a table with the same step for every frequency
+	 * 
+	 * @param step the step (1 or more)
+	 * @return the table
+	 */
+	public static QuantizationTable uniform(int step) {
+		int[] steps = new int[64];
+		Arrays.fill(steps, step);
+		return new QuantizationTable(steps);
+	}
+
+	/**
+	 * Method to make the standard luminance table for a quality
+	 * 
+	 * @param quality the quality from 1 to 100
+	 * @return the table
+	 */
+	public static QuantizationTable luminance(int quality) {
+		return scaled(LUMINANCE, quality);
+	}
+
+	/**
+	 * Method to make the standard chrominance table for a quality
+	 * 
+	 * @param quality the quality from 1 to 100
+	 * @return the table
+	 */
+	public static QuantizationTable chrominance(int quality) {
+		return scaled(CHROMINANCE, quality);
+	}
+
+	/**
+	 * Method to scale a table by a quality. Quality 50 is the table itself, 100
+	 * is all ones and lower qualities make the steps bigger.
+	 * 
+	 * @param base    the steps at quality 50
+	 * @param quality the quality from 1 to 100
+	 * @return the scaled table
+	 */
+	public static QuantizationTable scaled(int[] base, int quality) {
+		if (quality < 1 || quality > 100)
+			throw new IllegalArgumentException("quality must be 1 to 100 but was " + quality);
+		int percent = (quality < 50) ? 5000 / quality : 200 - 2 * quality;
+		int[] steps = new int[64];
+		for (int k = 0; k < 64; k++)
+			steps[k] = Math.max(1, Math.min(MAX_STEP, (base[k] * percent + 50) / 100));
+		return new QuantizationTable(steps);
+	}
+
+	/**
+	 * Method to get the step of a frequency
+	 * 
+	 * @param k the row-major index in the block (0 to 63)
+	 * @return the step
+	 */
+	public int getStep(int k) {
+		return steps[k];
+	}
+
+	/**
+	 * Method to get a copy of the steps
+	 * 
+	 * @return the 64 steps in row-major order
+	 */
+	public int[] getSteps() {
+		return steps.clone();
+	}
+
+	/**
+	 * Method to get the table with its rows and columns swapped, for the
+	 * coefficients of a transposed or rotated block
+	 * 
+	 * @return the transposed table
+	 */
+	public QuantizationTable transpose() {
+		int[] transposed = new int[64];
+		for (int k = 0; k < 64; k++)
+			transposed[k] = steps[(k & 7) * 8 + (k >> 3)];
+		return new QuantizationTable(transposed);
+	}
+
+	/**
+	 * Method to get the factors that turn the output of
+	 * AanDctKernel.forwardScaled into quantized coefficients in one multiply
+	 * 
+	 * @return the 64 factors (not a copy, don't change them)
+	 */
+	double[] getScaledDivisors() {
+		return scaledDivisors;
+	}
+
+	/**
+	 * Method to get the factors that turn quantized coefficients into the input
+	 * of AanDctKernel.inverseScaled in one multiply
+	 * 
+	 * @return the 64 factors (not a copy, don't change them)
+	 */
+	double[] getScaledMultipliers() {
+		return scaledMultipliers;
+	}
+
+	/**
+	 * Method to tell if another table has the same steps
+	 * 
+	 * @param other the other object
+	 * @return true if it is a table with the same steps
+	 */
+	public boolean equals(Object other) {
+		return (other instanceof QuantizationTable) && Arrays.equals(steps, ((QuantizationTable) other).steps);
+	}
+
+	public int hashCode() {
+		return Arrays.hashCode(steps);
+	}
+
+	/**
+	 * Method to return the steps as 8 rows of 8
+	 * 
+	 * @return the steps
+	 */
+	public String toString() {
+		StringBuilder output = new StringBuilder();
+		for (int k = 0; k < 64; k++)
+			output.append(steps[k]).append((k & 7) == 7 ? "\n" : "\t");
+		return output.toString();
+	}
+}
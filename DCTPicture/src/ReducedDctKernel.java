@@ -0,0 +1,89 @@
+/**
+ * A kernel that does the inverse discrete cosine transform of only the lowest
+ * size x size frequencies of a block, which gives a size x size block of
+ * samples: the block as it would look shrunk 8 / size times. The frequencies
+ * that are dropped are the ones that can't be shown at the smaller size, so
+ * this is a much cheaper way to get a small picture than inverse transforming
+ * every block and scaling the pixels down. A 1x1 block is just the average of
+ * the block (the DC coefficient divided by 8).
+ *
+ * The transform is a matrix multiply with a precomputed cosine table, the
+ * rows and then the columns, like the SeparableDctKernel. Each pass is also
+ * multiplied by sqrt(size / 8) so the samples keep the brightness of the block.
+ * A kernel keeps the rows between the passes, so each thread needs its own.
+ */
+public class ReducedDctKernel {
+	/** the width and height of the output block */
+	private final int size;
+
+	/**
+	 * the cosine table, cosTable[u][x] = c(u) * cos((2x + 1) * u * pi / (2 *
+	 * size)) * sqrt(size / 8) where c(0) = 1 / sqrt(size) and c(u) = sqrt(2 /
+	 * size) otherwise
+	 */
+	private final double[][] cosTable;
+
+	/** the rows after the first pass */
+	private final double[] rows;
+
+	/**
+	 * Constructor that takes the size of the output block
+	 *
+	 * @param size the width and height of the output block (1, 2, 4 or 8)
+	 */
+	public ReducedDctKernel(int size) {
+		if (size != 1 && size != 2 && size != 4 && size != 8)
+			throw new IllegalArgumentException("the size must be 1, 2, 4 or 8 but was " + size);
+		this.size = size;
+		this.cosTable = new double[size][size];
+		this.rows = new double[size * size];
+		double scale = Math.sqrt(size / 8.0);
+		for (int u = 0; u < size; u++) {
+			double cu = (u == 0) ? Math.sqrt(1.0 / size) : Math.sqrt(2.0 / size);
+			for (int x = 0; x < size; x++)
+				cosTable[u][x] = cu * Math.cos((2 * x + 1) * u * Math.PI / (2 * size)) * scale;
+		}
+	}
+
+	/**
+	 * Method to get the width and height of the output block
+	 *
+	 * @return the size
+	 */
+	public int getSize() {
+		return size;
+	}
+
+	/**
+	 * Method to inverse transform the lowest frequencies of a block
+	 *
+	 * @param block   the 64 coefficients of the block in row-major order
+	 * @param samples the array to put the size x size samples in, row-major
+	 */
+	public void inverse(double[] block, double[] samples) {
+		if (size == 1) {
+			samples[0] = block[0] / 8;
+			return;
+		}
+
+		// the rows of the kept frequencies
+		for (int v = 0; v < size; v++) {
+			for (int x = 0; x < size; x++) {
+				double sum = 0;
+				for (int u = 0; u < size; u++)
+					sum += cosTable[u][x] * block[v * 8 + u];
+				rows[v * size + x] = sum;
+			}
+		}
+
+		// and then the columns
+		for (int y = 0; y < size; y++) {
+			for (int x = 0; x < size; x++) {
+				double sum = 0;
+				for (int v = 0; v < size; v++)
+					sum += cosTable[v][y] * rows[v * size + x];
+				samples[y * size + x] = sum;
+			}
+		}
+	}
+}
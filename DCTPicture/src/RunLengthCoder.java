@@ -0,0 +1,242 @@
+/**
+ * A class that turns quantized blocks into run-length symbols and back. Each
+ * block is scanned in zig-zag order so the zeros of the high frequencies come
+ * last. The DC coefficient is coded as the difference from the DC of the
+ * previous block of the same component (DPCM), since neighbouring blocks have
+ * similar averages, and the AC coefficients as (run of zeros, size, value)
+ * symbols the way the JPEG standard codes them. The symbols are handed to a
+ * SymbolSink as each block is scanned, so nothing is allocated per block.
+ */
+public class RunLengthCoder {
+	/** the AC symbol that ends a block */
+	public static final int END_OF_BLOCK = 0x00;
+
+	/** the AC symbol for a run of 16 zeros */
+	public static final int ZERO_RUN = 0xF0;
+
+	/** the DC of the previous block of each component */
+	private final int[] predictions;
+
+	/** the levels of the block being coded */
+	private final int[] levels = new int[64];
+
+	/**
+	 * Constructor that takes the number of components
+	 * 
+	 * @param components the number of components (3 for a color picture)
+	 */
+	public RunLengthCoder(int components) {
+		predictions = new int[components];
+	}
+
+	/**
+	 * Method to start again from DC predictions of zero, as at the start of a
+	 * picture
+	 */
+	public void reset() {
+		for (int component = 0; component < predictions.length; component++)
+			predictions[component] = 0;
+	}
+
+	/**
+	 * Method to get the size of a value: the number of bits it takes without its
+	 * sign (0 for 0)
+	 * 
+	 * @param value the value
+	 * @return the size from 0 to 15
+	 */
+	public static int size(int value) {
+		return 32 - Integer.numberOfLeadingZeros(value < 0 ? -value : value);
+	}
+
+	/**
+	 * Method to get the amplitude bits of a value: the value itself if it is
+	 * positive, or the value minus 1 (its ones' complement) if it is negative
+	 * 
+	 * @param value the value
+	 * @param size  the size of the value
+	 * @return the low size bits to write
+	 */
+	public static int amplitude(int value, int size) {
+		return (value < 0 ? value - 1 : value) & ((1 << size) - 1);
+	}
+
+	/**
+	 * Method to turn amplitude bits back into a value
+	 * 
+	 * @param bits the bits that were read
+	 * @param size the number of bits
+	 * @return the value
+	 */
+	public static int extend(int bits, int size) {
+		if (size == 0)
+			return 0;
+		return (bits < (1 << (size - 1))) ? bits - (1 << size) + 1 : bits;
+	}
+
+	/**
+	 * Method to code one block
+	 * 
+	 * @param block     the 64 quantized levels in row-major order
+	 * @param component the component the block belongs to
+	 * @param sink      where to send the symbols
+	 */
+	public void encode(int[] block, int component, SymbolSink sink) {
+		int difference = block[0] - predictions[component];
+		predictions[component] = block[0];
+		int size = size(difference);
+		sink.dcSymbol(component, size, amplitude(difference, size));
+
+		int run = 0;
+		for (int z = 1; z < 64; z++) {
+			int value = block[CoefficientImage.ZIGZAG[z]];
+			if (value == 0) {
+				run++;
+				continue;
+			}
+			while (run > 15) {
+				sink.acSymbol(component, ZERO_RUN, 0);
+				run -= 16;
+			}
+			size = size(value);
+			sink.acSymbol(component, (run << 4) | size, amplitude(value, size));
+			run = 0;
+		}
+		if (run > 0)
+			sink.acSymbol(component, END_OF_BLOCK, 0);
+	}
+
+	/**
+	 * Method to decode one block
+	 * 
+	 * @param source    where to read the symbols
+	 * @param component the component the block belongs to
+	 * @param block     the array to put the 64 levels in, in row-major order
+	 */
+	public void decode(SymbolSource source, int component, int[] block) {
+		for (int k = 0; k < 64; k++)
+			block[k] = 0;
+		int size = source.readDcSymbol(component);
+		predictions[component] += extend(source.readBits(size), size);
+		block[0] = predictions[component];
+
+		for (int z = 1; z < 64; z++) {
+			int symbol = source.readAcSymbol(component);
+			size = symbol & 15;
+			if (size == 0) {
+				if (symbol != ZERO_RUN)
+					break;
+				z += 15;
+				continue;
+			}
+			z += symbol >> 4;
+			if (z > 63)
+				throw new IllegalStateException("a run of zeros went past the end of the block");
+			block[CoefficientImage.ZIGZAG[z]] = extend(source.readBits(size), size);
+		}
+	}
+
+	/**
+	 * Method to code all the blocks of an image, block by block with the
+	 * channels of each block one after the other
+	 * 
+	 * @param image the quantized coefficients
+	 * @param sink  where to send the symbols
+	 */
+	public void encode(CoefficientImage image, SymbolSink sink) {
+		for (int block = 0; block < image.getBlockCount(); block++) {
+			for (int channel = 0; channel < image.getChannels(); channel++) {
+				image.getLevels(block, channel, levels);
+				encode(levels, channel, sink);
+			}
+		}
+	}
+
+	/**
+	 * Method to decode all the blocks of an image coded by encode(image, sink)
+	 * 
+	 * @param source where to read the symbols
+	 * @param image  the image to put the levels in
+	 */
+	public void decode(SymbolSource source, CoefficientImage image) {
+		for (int block = 0; block < image.getBlockCount(); block++) {
+			for (int channel = 0; channel < image.getChannels(); channel++) {
+				decode(source, channel, levels);
+				image.setLevels(block, channel, levels);
+			}
+		}
+	}
+
+	/**
+	 * Method to code all the blocks of a YCbCr image an MCU at a time, the luma
+	 * blocks of each MCU (component 0) and then its Cb (1) and Cr (2) blocks, the
+	 * same order as an interleaved JPEG scan
+	 * 
+	 * @param ycbcr the quantized coefficients
+	 * @param sink  where to send the symbols
+	 */
+	public void encode(YCbCrImage ycbcr, SymbolSink sink) {
+		CoefficientImage luma = ycbcr.getLuma();
+		CoefficientImage chroma = ycbcr.getChroma();
+		int horizontal = ycbcr.getSubsampling().getHorizontal();
+		int vertical = ycbcr.getSubsampling().getVertical();
+		for (int mcuRow = 0; mcuRow < ycbcr.getMcusHigh(); mcuRow++) {
+			for (int mcuColumn = 0; mcuColumn < ycbcr.getMcusWide(); mcuColumn++) {
+				for (int by = 0; by < vertical; by++) {
+					for (int bx = 0; bx < horizontal; bx++) {
+						luma.getLevels(luma.getBlockIndex(mcuRow * vertical + by, mcuColumn * horizontal + bx), 0,
+								levels);
+						encode(levels, 0, sink);
+					}
+				}
+				int block = chroma.getBlockIndex(mcuRow, mcuColumn);
+				chroma.getLevels(block, YCbCrImage.CB, levels);
+				encode(levels, 1, sink);
+				chroma.getLevels(block, YCbCrImage.CR, levels);
+				encode(levels, 2, sink);
+			}
+		}
+	}
+
+	/**
+	 * Method to decode all the blocks of a YCbCr image coded by
+	 * encode(ycbcr, sink)
+	 * 
+	 * @param source where to read the symbols
+	 * @param ycbcr  the image to put the levels in
+	 */
+	public void decode(SymbolSource source, YCbCrImage ycbcr) {
+		for (int mcuRow = 0; mcuRow < ycbcr.getMcusHigh(); mcuRow++) {
+			for (int mcuColumn = 0; mcuColumn < ycbcr.getMcusWide(); mcuColumn++)
+				decodeMcu(source, ycbcr, mcuRow, mcuColumn);
+		}
+	}
+
+	/**
+	 * Method to decode the blocks of one MCU of a YCbCr image, the luma blocks
+	 * and then the Cb and Cr blocks. A JPEG reader calls this between restart
+	 * markers, resetting the coder at each one.
+	 * 
+	 * @param source    where to read the symbols
+	 * @param ycbcr     the image to put the levels in
+	 * @param mcuRow    the row of the MCU
+	 * @param mcuColumn the column of the MCU
+	 */
+	public void decodeMcu(SymbolSource source, YCbCrImage ycbcr, int mcuRow, int mcuColumn) {
+		CoefficientImage luma = ycbcr.getLuma();
+		CoefficientImage chroma = ycbcr.getChroma();
+		int horizontal = ycbcr.getSubsampling().getHorizontal();
+		int vertical = ycbcr.getSubsampling().getVertical();
+		for (int by = 0; by < vertical; by++) {
+			for (int bx = 0; bx < horizontal; bx++) {
+				decode(source, 0, levels);
+				luma.setLevels(luma.getBlockIndex(mcuRow * vertical + by, mcuColumn * horizontal + bx), 0, levels);
+			}
+		}
+		int block = chroma.getBlockIndex(mcuRow, mcuColumn);
+		decode(source, 1, levels);
+		chroma.setLevels(block, YCbCrImage.CB, levels);
+		decode(source, 2, levels);
+		chroma.setLevels(block, YCbCrImage.CR, levels);
+	}
+}
@@ -0,0 +1,106 @@
+/**
+ * A kernel that does the discrete cosine transform of a block as a matrix
+ * multiply with a precomputed cosine table. The block is transformed
+ * separably, the 8 rows and then the 8 columns, which is 8 multiplies for
+ * every output of every pass.
+ */
+public class SeparableDctKernel implements DctKernel {
+	/**
+	 * the cosine table, COS_TABLE[u][x] = c(u) * cos((2x + 1) * u * pi / 16) where
+	 * c(0) = 1 / sqrt(8) and c(u) = sqrt(2) / sqrt(8) otherwise
+	 */
+	private static final double[][] COS_TABLE = new double[8][8];
+
+	static {
+		for (int u = 0; u < 8; u++) {
+			double cu = (u == 0) ? 1 / Math.sqrt(8) : Math.sqrt(2) / Math.sqrt(8);
+			for (int x = 0; x < 8; x++)
+				COS_TABLE[u][x] = cu * Math.cos((2 * x + 1) * u * Math.PI / 16);
+		}
+	}
+
+	/**
+	 * Method to get a copy of the cosine table in row-major order, for kernels
+	 * that multiply by the same matrix another way
+	 * 
+	 * @return the 64 values, COS_TABLE[u][x] at u * 8 + x
+	 */
+	static double[] cosineMatrix() {
+		double[] matrix = new double[64];
+		for (int u = 0; u < 8; u++)
+			System.arraycopy(COS_TABLE[u], 0, matrix, u * 8, 8);
+		return matrix;
+	}
+
+	/**
+	 * Method to do the forward transform of one block in place
+	 * 
+	 * @param block the 64 samples of the block in row-major order
+	 */
+	public void forward(double[] block) {
+		// the rows and then the columns
+		for (int row = 0; row < 64; row += 8)
+			forward1D(block, row, 1);
+		for (int col = 0; col < 8; col++)
+			forward1D(block, col, 8);
+	}
+
+	/**
+	 * Method to do the inverse transform of one block in place
+	 * 
+	 * @param block the 64 coefficients of the block in row-major order
+	 */
+	public void inverse(double[] block) {
+		// the rows and then the columns
+		for (int row = 0; row < 64; row += 8)
+			inverse1D(block, row, 1);
+		for (int col = 0; col < 8; col++)
+			inverse1D(block, col, 8);
+	}
+
+	/**
+	 * Method to do the one dimensional forward transform of 8 values
+	 * 
+	 * @param data   the array that holds the values
+	 * @param start  the index of the first value
+	 * @param stride the distance between the values
+	 */
+	private static void forward1D(double[] data, int start, int stride) {
+		double s0 = data[start];
+		double s1 = data[start + stride];
+		double s2 = data[start + 2 * stride];
+		double s3 = data[start + 3 * stride];
+		double s4 = data[start + 4 * stride];
+		double s5 = data[start + 5 * stride];
+		double s6 = data[start + 6 * stride];
+		double s7 = data[start + 7 * stride];
+		for (int u = 0; u < 8; u++) {
+			double[] cos = COS_TABLE[u];
+			data[start + u * stride] = s0 * cos[0] + s1 * cos[1] + s2 * cos[2] + s3 * cos[3] + s4 * cos[4]
+					+ s5 * cos[5] + s6 * cos[6] + s7 * cos[7];
+		}
+	}
+
+	/**
+	 * Method to do the one dimensional inverse transform of 8 values
+	 * 
+	 * @param data   the array that holds the values
+	 * @param start  the index of the first value
+	 * @param stride the distance between the values
+	 */
+	private static void inverse1D(double[] data, int start, int stride) {
+		double s0 = data[start];
+		double s1 = data[start + stride];
+		double s2 = data[start + 2 * stride];
+		double s3 = data[start + 3 * stride];
+		double s4 = data[start + 4 * stride];
+		double s5 = data[start + 5 * stride];
+		double s6 = data[start + 6 * stride];
+		double s7 = data[start + 7 * stride];
+		for (int x = 0; x < 8; x++) {
+			data[start + x * stride] = s0 * COS_TABLE[0][x] + s1 * COS_TABLE[1][x] + s2 * COS_TABLE[2][x]
+					+ s3 * COS_TABLE[3][x] + s4 * COS_TABLE[4][x] + s5 * COS_TABLE[5][x] + s6 * COS_TABLE[6][x]
+					+ s7 * COS_TABLE[7][x];
+		}
+	}
+}
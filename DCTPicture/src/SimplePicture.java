@@ -151,25 +151,23 @@ public class SimplePicture implements DigitalPicture
   */
  public void copyPicture(SimplePicture sourcePicture)
  {
-   Pixel sourcePixel = null;
-   Pixel targetPixel = null;
+   PictureRaster source = sourcePicture.getRaster();
+   PictureRaster target = this.getRaster();
+   int[] sourceData = source.getData();
+   int[] targetData = target.getData();
+   int width = Math.min(source.getWidth(), target.getWidth());
+   int height = Math.min(source.getHeight(), target.getHeight());
    
-   // loop through the columns
-   for (int sourceX = 0, targetX = 0; 
-        sourceX < sourcePicture.getWidth() &&
-        targetX < this.getWidth();
-        sourceX++, targetX++)
+   // loop through the rows
+   for (int y = 0; y < height; y++)
    {
-     // loop through the rows
-     for (int sourceY = 0, targetY = 0; 
-          sourceY < sourcePicture.getHeight() && 
-          targetY < this.getHeight();
-          sourceY++, targetY++)
-     {
-       sourcePixel = sourcePicture.getPixel(sourceX,sourceY);
-       targetPixel = this.getPixel(targetX,targetY);
-       targetPixel.setColor(sourcePixel.getColor());
-     }
+     int sourceIndex = source.index(0, y);
+     int targetIndex = target.index(0, y);
+     
+     // copy the color and keep the target alpha
+     for (int x = 0; x < width; x++)
+       targetData[targetIndex + x] = (targetData[targetIndex + x] & 0xff000000) |
+                                     (sourceData[sourceIndex + x] & 0xffffff);
    }
    
  }
@@ -180,14 +178,16 @@ public class SimplePicture implements DigitalPicture
   */
  public void setAllPixelsToAColor(Color color)
  {
-   // loop through all x
-   for (int x = 0; x < this.getWidth(); x++)
+   PictureRaster raster = this.getRaster();
+   int[] data = raster.getData();
+   int rgb = color.getRGB() & 0xffffff;
+   
+   // loop through all the rows and keep the alpha of each pixel
+   for (int y = 0; y < raster.getHeight(); y++)
    {
-     // loop through all y
-     for (int y = 0; y < this.getHeight(); y++)
-     {
-       getPixel(x,y).setColor(color);
-     }
+     int index = raster.index(0, y);
+     for (int x = 0; x < raster.getWidth(); x++)
+       data[index + x] = (data[index + x] & 0xff000000) | rgb;
    }
  }
  
@@ -200,6 +200,29 @@ public class SimplePicture implements DigitalPicture
     return bufferedImage;
  }
  
+ /**
+  * Method to get direct access to the pixels as an array of ints.
+  * If the buffered image doesn't store its pixels as ints it is
+  * converted first, to a TYPE_INT_ARGB image if it has alpha (so
+  * transparent pixels stay transparent) or else to TYPE_INT_RGB.
+  * @return the raster of the pixels in this picture
+  */
+ public PictureRaster getRaster()
+ {
+   if (!PictureRaster.canWrap(bufferedImage))
+   {
+     int type = bufferedImage.getColorModel().hasAlpha() ?
+       BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+     BufferedImage converted = new BufferedImage(getWidth(), getHeight(),
+                                                 type);
+     Graphics2D graphics2d = converted.createGraphics();
+     graphics2d.drawImage(bufferedImage, 0, 0, null);
+     graphics2d.dispose();
+     bufferedImage = converted;
+   }
+   return new PictureRaster(bufferedImage);
+ }
+ 
  /**
   * Method to get a graphics object for this picture to use to draw on
   * @return a graphics object to use for drawing
@@ -457,20 +480,13 @@ public class SimplePicture implements DigitalPicture
    if (title == null)
      title = fileName;
    
-   File file = new File(this.fileName);
-
-   if (!file.canRead()) 
-   {
-     // try adding the media path 
-     file = new File(FileChooser.getMediaPath(this.fileName));
-     if (!file.canRead())
-     {
-       throw new IOException(this.fileName +
-                             " could not be opened. Check that you specified the path");
-     }
-   }
+   File file = getFileToRead(this.fileName);
    
-   bufferedImage = ImageIO.read(file);
+   // our own compressed format isn't known to ImageIO
+   if ("dctp".equalsIgnoreCase(this.extension))
+     bufferedImage = DctpReader.read(file);
+   else
+     bufferedImage = ImageIO.read(file);
  }
 
 
@@ -619,12 +635,65 @@ public class SimplePicture implements DigitalPicture
   * Method to write the contents of the picture to a file with 
   * the passed name
   * @param fileName the name of the file to write the picture to
+  * @throws IOException if the file can't be written or there is
+  * no writer for its extension
   */
  public void writeOrFail(String fileName) throws IOException
  {
    String extension = this.extension; // the default is current
    
    // create the file object
+   File file = getFileToWrite(fileName);
+   
+   // get the extension from the name, not the directories
+   String name = file.getName();
+   int posDot = name.lastIndexOf('.');
+   if (posDot >= 0)
+       extension = name.substring(posDot + 1);
+   
+   // write the contents of the buffered image to the file
+   if ("dctp".equalsIgnoreCase(extension))
+     new DctpWriter().write(getRaster(), file);
+   else if ("jpg".equalsIgnoreCase(extension) || "jpeg".equalsIgnoreCase(extension))
+     new JpegWriter().write(getRaster(), file);
+   else if (!ImageIO.write(bufferedImage, extension, file))
+     throw new IOException("there is no writer for " + extension + " to write " + file);
+     
+ }
+
+ /**
+  * Method to get the file to read for the passed name. A name
+  * that can't be read as it is is looked for in the media directory.
+  * @param fileName the name of the file to read
+  * @return the file
+  * @throws IOException if the file can't be read
+  */
+ protected static File getFileToRead(String fileName) throws IOException
+ {
+   File file = new File(fileName);
+
+   if (!file.canRead()) 
+   {
+     // try adding the media path 
+     file = new File(FileChooser.getMediaPath(fileName));
+     if (!file.canRead())
+     {
+       throw new IOException(fileName +
+                             " could not be opened. Check that you specified the path");
+     }
+   }
+   return file;
+ }
+
+ /**
+  * Method to get the file to write for the passed name. A name
+  * without a directory is in the media directory.
+  * @param fileName the name of the file to write
+  * @return the file
+  * @throws IOException if the directory can't be written to
+  */
+ protected File getFileToWrite(String fileName) throws IOException
+ {
    File file = new File(fileName);
    File fileLoc = file.getParentFile(); // directory name
    
@@ -641,15 +710,7 @@ public class SimplePicture implements DigitalPicture
         throw new IOException(fileName +
         " could not be opened. Check to see if you can write to the directory.");
    }
-   
-   // get the extension
-   int posDot = fileName.indexOf('.');
-   if (posDot >= 0)
-       extension = fileName.substring(posDot + 1);
-   
-   // write the contents of the buffered image to the file
-   ImageIO.write(bufferedImage, extension, file);
-     
+   return file;
  }
 
  /**
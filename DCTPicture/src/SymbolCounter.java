@@ -0,0 +1,61 @@
+/**
+ * A class that counts how often each DC and AC symbol is used, to build the
+ * optimal Huffman tables of a picture before coding it. The components can
+ * share tables: each component is counted in the DC and AC table it is mapped
+ * to.
+ */
+public class SymbolCounter implements SymbolSink {
+	/** the DC table of each component */
+	private final int[] dcTableOf;
+
+	/** the AC table of each component */
+	private final int[] acTableOf;
+
+	/** the number of times each symbol is used in each DC table */
+	private final long[][] dcFrequencies;
+
+	/** the number of times each symbol is used in each AC table */
+	private final long[][] acFrequencies;
+
+	/**
+	 * Constructor that takes the table of each component
+	 * 
+	 * @param dcTableOf the DC table of each component
+	 * @param acTableOf the AC table of each component
+	 * @param tables    the number of DC tables and of AC tables
+	 */
+	public SymbolCounter(int[] dcTableOf, int[] acTableOf, int tables) {
+		this.dcTableOf = dcTableOf.clone();
+		this.acTableOf = acTableOf.clone();
+		dcFrequencies = new long[tables][256];
+		acFrequencies = new long[tables][256];
+	}
+
+	public void dcSymbol(int component, int size, int amplitude) {
+		dcFrequencies[dcTableOf[component]][size]++;
+	}
+
+	public void acSymbol(int component, int runSize, int amplitude) {
+		acFrequencies[acTableOf[component]][runSize]++;
+	}
+
+	/**
+	 * Method to make the optimal Huffman table for the DC symbols counted
+	 * 
+	 * @param table the DC table
+	 * @return the Huffman table
+	 */
+	public HuffmanTable getDcTable(int table) {
+		return HuffmanTable.optimal(dcFrequencies[table]);
+	}
+
+	/**
+	 * Method to make the optimal Huffman table for the AC symbols counted
+	 * 
+	 * @param table the AC table
+	 * @return the Huffman table
+	 */
+	public HuffmanTable getAcTable(int table) {
+		return HuffmanTable.optimal(acFrequencies[table]);
+	}
+}
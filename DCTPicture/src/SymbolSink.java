@@ -0,0 +1,14 @@
+/**
+ * Interface to describe where the run-length symbols of quantized blocks go,
+ * such as a Huffman coder or a counter of how often each symbol is used. The
+ * symbols are the ones of the JPEG standard: a DC symbol is the size (number
+ * of bits) of the difference from the DC of the previous block of the same
+ * component, and an AC symbol is (run of zeros << 4) | size, with 0x00 for the
+ * end of the block and 0xF0 for a run of 16 zeros. Each symbol is followed by
+ * size bits of amplitude.
+ */
+public interface SymbolSink 
+{
+  public void dcSymbol(int component, int size, int amplitude); // the size of a DC difference and its amplitude bits
+  public void acSymbol(int component, int runSize, int amplitude); // a run and size of an AC coefficient and its amplitude bits
+}
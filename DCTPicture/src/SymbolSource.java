@@ -0,0 +1,11 @@
+/**
+ * Interface to describe where the run-length symbols of quantized blocks are
+ * read from, such as a Huffman decoder. It gives back what a SymbolSink was
+ * given: a symbol, then the amplitude bits that follow it.
+ */
+public interface SymbolSource 
+{
+  public int readDcSymbol(int component); // read the size of the next DC difference
+  public int readAcSymbol(int component); // read the next (run << 4) | size AC symbol
+  public int readBits(int size); // read size amplitude bits
+}
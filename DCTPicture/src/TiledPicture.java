@@ -0,0 +1,750 @@
+import java.awt.Color;
+import java.awt.Image;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.stream.ImageInputStream;
+
+/**
+ * A picture that is kept as square tiles instead of one buffered image, for
+ * pictures too big to have in memory at once. Only the tiles used lately are
+ * in memory (the tile cache): a tile that isn't is read from the picture's
+ * file when it is needed, using the ImageReader's source regions to read just
+ * that tile (and the ones to the right of it). A changed tile that is pushed out of the cache is kept in a
+ * memory-mapped scratch file (a MappedRaster) until it is needed again, so
+ * changes are never lost and memory is bounded by the cache, not the size of
+ * the picture.
+ *
+ * The tiles are a multiple of 8 pixels on each side, so every block is inside
+ * one tile and the discrete cosine transform methods work a tile at a time
+ * (with the MIRROR edge mode, a tile at the bottom or right edge that is less
+ * than 8 pixels high or wide only mirrors its own pixels).
+ * The pixel methods work too (each one finds its tile), but a method that
+ * makes the whole picture, like getBufferedImage(), show() or write(), needs
+ * it to fit in memory. Readers of compressed formats like JPEG decode from
+ * the start of the file to read a region, so a tile near the bottom of a big
+ * JPEG costs more to read than one near the top, and a loop that goes row by
+ * row across the whole picture needs a cache of at least a row of tiles.
+ */
+public class TiledPicture implements DigitalPicture, Closeable {
+	/** the default width and height of a tile in pixels */
+	public static final int DEFAULT_TILE_SIZE = 256;
+
+	/** the default number of tiles kept in memory */
+	public static final int DEFAULT_CACHE_TILES = 64;
+
+	/** the width and height of a tile in pixels, a multiple of 8 */
+	private final int tileSize;
+
+	/** the most tiles kept in memory */
+	private final int cacheTiles;
+
+	/** the tiles in memory by index, the least recently used first */
+	private final LinkedHashMap<Integer, Tile> tiles;
+
+	/** the file name the picture came from, or null */
+	private String fileName;
+
+	/** the title of the picture */
+	private String title;
+
+	/** the width in pixels */
+	private int width;
+
+	/** the height in pixels */
+	private int height;
+
+	/** the number of tiles across */
+	private int tilesWide;
+
+	/** whether the pixels have alpha */
+	private boolean alpha;
+
+	/** the stream of the file the tiles are read from, or null */
+	private ImageInputStream input;
+
+	/** the reader of the file the tiles are read from, or null */
+	private ImageReader reader;
+
+	/** the scratch file changed tiles are kept in, made when it is first needed */
+	private MappedRaster spill;
+
+	/** the tiles that are in the scratch file */
+	private final BitSet spilled = new BitSet();
+
+	/** the last tile found, so runs of pixels in a tile skip the cache */
+	private int lastIndex = -1;
+
+	/** the tile at lastIndex */
+	private Tile lastTile;
+
+	/** the engine used by dct(), idct() and idctBlur() */
+	private DctEngine dctEngine = new DctEngine();
+
+	/** the frame the picture is shown in, or null */
+	private PictureFrame pictureFrame;
+
+	/**
+	 * Constructor that takes the size. The picture starts out white.
+	 *
+	 * @param width  the width in pixels
+	 * @param height the height in pixels
+	 */
+	public TiledPicture(int width, int height) {
+		this(width, height, DEFAULT_TILE_SIZE, DEFAULT_CACHE_TILES);
+	}
+
+	/**
+	 * Constructor that takes the size and the tiles. The picture starts out
+	 * white.
+	 *
+	 * @param width      the width in pixels
+	 * @param height     the height in pixels
+	 * @param tileSize   the width and height of a tile, a multiple of 8
+	 * @param cacheTiles the most tiles to keep in memory
+	 */
+	public TiledPicture(int width, int height, int tileSize, int cacheTiles) {
+		this(tileSize, cacheTiles, "None");
+		if (width < 1 || height < 1)
+			throw new IllegalArgumentException("a picture can't be " + width + "x" + height);
+		setSize(width, height);
+	}
+
+	/**
+	 * Constructor that takes a file name. The file is opened but only read a
+	 * tile at a time as the tiles are used.
+	 *
+	 * @param fileName the name of the file
+	 */
+	public TiledPicture(String fileName) {
+		this(fileName, DEFAULT_TILE_SIZE, DEFAULT_CACHE_TILES);
+	}
+
+	/**
+	 * Constructor that takes a file name and the tiles
+	 *
+	 * @param fileName   the name of the file
+	 * @param tileSize   the width and height of a tile, a multiple of 8
+	 * @param cacheTiles the most tiles to keep in memory
+	 */
+	public TiledPicture(String fileName, int tileSize, int cacheTiles) {
+		this(tileSize, cacheTiles, null);
+		load(fileName);
+	}
+
+	/**
+	 * Constructor that sets up the tile cache
+	 *
+	 * @param tileSize   the width and height of a tile, a multiple of 8
+	 * @param cacheTiles the most tiles to keep in memory
+	 * @param title      the title, or null to use the file name
+	 */
+	private TiledPicture(int tileSize, int cacheTiles, String title) {
+		if (tileSize < 8 || tileSize % 8 != 0)
+			throw new IllegalArgumentException("the tile size must be a multiple of 8 but was " + tileSize);
+		if (cacheTiles < 1)
+			throw new IllegalArgumentException("the cache needs at least 1 tile but had " + cacheTiles);
+		this.tileSize = tileSize;
+		this.cacheTiles = cacheTiles;
+		this.title = title;
+		this.tiles = new LinkedHashMap<Integer, Tile>(16, 0.75f, true) {
+			protected boolean removeEldestEntry(Map.Entry<Integer, Tile> eldest) {
+				if (size() <= TiledPicture.this.cacheTiles)
+					return false;
+				evict(eldest.getKey(), eldest.getValue());
+				return true;
+			}
+		};
+	}
+
+	/**
+	 * Method to set the size and forget every tile
+	 *
+	 * @param width  the width in pixels
+	 * @param height the height in pixels
+	 */
+	private void setSize(int width, int height) {
+		this.width = width;
+		this.height = height;
+		this.tilesWide = (width + tileSize - 1) / tileSize;
+		tiles.clear();
+		spilled.clear();
+		spill = null;
+		lastIndex = -1;
+		lastTile = null;
+	}
+
+	////////////////////// methods ///////////////////////////////////////
+
+	/**
+	 * Method to load the picture from the passed file name. Only the size is
+	 * read now, the tiles are read as they are used.
+	 *
+	 * @param fileName the file name to use to load the picture from
+	 * @throws IOException if the picture isn't found or can't be read
+	 */
+	public void loadOrFail(String fileName) throws IOException {
+		File file = SimplePicture.getFileToRead(fileName);
+		ImageInputStream newInput = ImageIO.createImageInputStream(file);
+		if (newInput == null)
+			throw new IOException(fileName + " could not be opened");
+		Iterator<ImageReader> readers = ImageIO.getImageReaders(newInput);
+		if (!readers.hasNext()) {
+			newInput.close();
+			throw new IOException("there is no reader for " + fileName);
+		}
+		ImageReader newReader = readers.next();
+		// tiles are read in any order, so the stream must be able to seek back
+		newReader.setInput(newInput, false, true);
+		close();
+		this.input = newInput;
+		this.reader = newReader;
+		this.fileName = fileName;
+		if (title == null)
+			title = fileName;
+		ImageTypeSpecifier type = newReader.getRawImageType(0);
+		if (type == null)
+			type = newReader.getImageTypes(0).next();
+		this.alpha = type.getColorModel().hasAlpha();
+		setSize(newReader.getWidth(0), newReader.getHeight(0));
+	}
+
+	/**
+	 * Method to load the picture from the passed file name without throwing
+	 * errors
+	 *
+	 * @param fileName the file name to use to load the picture from
+	 * @return true if success else false
+	 */
+	public boolean load(String fileName) {
+		try {
+			loadOrFail(fileName);
+			return true;
+		} catch (IOException ex) {
+			System.out.println("There was an error trying to open " + fileName);
+			if (width == 0)
+				setSize(600, 200);
+			return false;
+		}
+	}
+
+	/**
+	 * Method to draw the passed image on the picture starting at 0,0
+	 *
+	 * @param image the image to use
+	 */
+	public void load(Image image) {
+		forEachTile(true, (x, y, tile) -> {
+			tile.image.createGraphics().drawImage(image, -x, -y, null);
+		});
+	}
+
+	/**
+	 * Method to close the file the tiles are read from. Tiles that aren't in
+	 * memory or the scratch file can't be read after this.
+	 *
+	 * @throws IOException if the file can't be closed
+	 */
+	public void close() throws IOException {
+		if (reader != null)
+			reader.dispose();
+		reader = null;
+		if (input != null)
+			input.close();
+		input = null;
+	}
+
+	/**
+	 * Method to get the tile that holds a pixel
+	 *
+	 * @param x the x location of the pixel
+	 * @param y the y location of the pixel
+	 * @return the tile
+	 */
+	private Tile tileAt(int x, int y) {
+		if (x < 0 || y < 0 || x >= width || y >= height)
+			throw new ArrayIndexOutOfBoundsException("Coordinate out of bounds!");
+		return tile((y / tileSize) * tilesWide + x / tileSize);
+	}
+
+	/**
+	 * Method to get a tile, reading it if it isn't in memory
+	 *
+	 * @param index the index of the tile in row-major order
+	 * @return the tile
+	 */
+	private Tile tile(int index) {
+		if (index == lastIndex)
+			return lastTile;
+		Tile tile = tiles.get(index);
+		if (tile == null) {
+			if (reader != null && !spilled.get(index)) {
+				readTiles(index);
+				tile = tiles.get(index);
+			} else {
+				tile = newTile(index);
+				if (spilled.get(index))
+					spill.getRegion((index % tilesWide) * tileSize, (index / tilesWide) * tileSize, tile.raster);
+				else
+					Arrays.fill(tile.raster.getData(), Color.WHITE.getRGB());
+				tiles.put(index, tile);
+			}
+		}
+		lastIndex = index;
+		lastTile = tile;
+		return tile;
+	}
+
+	/**
+	 * Method to make an empty tile the size of the tile at an index
+	 *
+	 * @param index the index of the tile in row-major order
+	 * @return the tile
+	 */
+	private Tile newTile(int index) {
+		int tileWidth = Math.min(tileSize, width - (index % tilesWide) * tileSize);
+		int tileHeight = Math.min(tileSize, height - (index / tilesWide) * tileSize);
+		return new Tile(new BufferedImage(tileWidth, tileHeight,
+				alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB));
+	}
+
+	/**
+	 * Method to read a tile from the picture's file into the cache. Readers of
+	 * compressed formats decode from the start of the file to get to a region,
+	 * so the tiles to the right of it that aren't in memory are read in the
+	 * same region, up to half the cache.
+	 *
+	 * @param index the index of the tile in row-major order
+	 */
+	private void readTiles(int index) {
+		int column = index % tilesWide;
+		int count = 1;
+		while (count < cacheTiles / 2 && column + count < tilesWide && !tiles.containsKey(index + count)
+				&& !spilled.get(index + count))
+			count++;
+		int x = column * tileSize;
+		int y = (index / tilesWide) * tileSize;
+		int regionWidth = Math.min(count * tileSize, width - x);
+		int regionHeight = Math.min(tileSize, height - y);
+		BufferedImage region;
+		try {
+			ImageReadParam param = reader.getDefaultReadParam();
+			param.setSourceRegion(new Rectangle(x, y, regionWidth, regionHeight));
+			region = reader.read(0, param);
+		} catch (IOException ex) {
+			throw new UncheckedIOException("tile " + index + " of " + fileName + " could not be read", ex);
+		}
+		// the tile asked for goes in last so it is the most recently used
+		for (int i = count - 1; i >= 0; i--) {
+			Tile tile = newTile(index + i);
+			int tileWidth = tile.image.getWidth();
+			tile.image.setRGB(0, 0, tileWidth, regionHeight,
+					region.getRGB(i * tileSize, 0, tileWidth, regionHeight, null, 0, tileWidth), 0, tileWidth);
+			tiles.put(index + i, tile);
+		}
+	}
+
+	/**
+	 * Method to drop a tile from memory, keeping it in the scratch file if it
+	 * was changed
+	 *
+	 * @param index the index of the tile in row-major order
+	 * @param tile  the tile
+	 */
+	private void evict(int index, Tile tile) {
+		if (index == lastIndex) {
+			lastIndex = -1;
+			lastTile = null;
+		}
+		if (!tile.dirty)
+			return;
+		try {
+			if (spill == null) {
+				File file = File.createTempFile("tiles", ".pixels");
+				file.deleteOnExit();
+				spill = new MappedRaster(file, width, height);
+			}
+		} catch (IOException ex) {
+			throw new UncheckedIOException("the scratch file for the changed tiles could not be made", ex);
+		}
+		spill.setRegion((index % tilesWide) * tileSize, (index / tilesWide) * tileSize, tile.raster);
+		spilled.set(index);
+	}
+
+	/**
+	 * Method to do something to every tile in row-major order
+	 *
+	 * @param changes true if the task changes the tiles
+	 * @param task    the task
+	 */
+	private void forEachTile(boolean changes, TileTask task) {
+		int tilesHigh = (height + tileSize - 1) / tileSize;
+		for (int index = 0; index < tilesWide * tilesHigh; index++) {
+			Tile tile = tile(index);
+			task.run((index % tilesWide) * tileSize, (index / tilesWide) * tileSize, tile);
+			if (changes)
+				tile.dirty = true;
+		}
+	}
+
+	/**
+	 * Method to get the file name that the picture came from
+	 *
+	 * @return the file name, or null
+	 */
+	public String getFileName() {
+		return fileName;
+	}
+
+	/**
+	 * Method to get the title of the picture
+	 *
+	 * @return the title
+	 */
+	public String getTitle() {
+		return title;
+	}
+
+	/**
+	 * Method to set the title of the picture
+	 *
+	 * @param title the title
+	 */
+	public void setTitle(String title) {
+		this.title = title;
+		if (pictureFrame != null)
+			pictureFrame.setTitle(title);
+	}
+
+	/**
+	 * Method to get the width of the picture
+	 *
+	 * @return the width in pixels
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * Method to get the height of the picture
+	 *
+	 * @return the height in pixels
+	 */
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * Method to get the width and height of a tile
+	 *
+	 * @return the tile size in pixels
+	 */
+	public int getTileSize() {
+		return tileSize;
+	}
+
+	/**
+	 * Method to get the whole picture as an image. This makes the whole picture
+	 * in memory.
+	 *
+	 * @return the buffered image
+	 */
+	public Image getImage() {
+		return getBufferedImage();
+	}
+
+	/**
+	 * Method to copy the whole picture into a new buffered image. This makes
+	 * the whole picture in memory, so it is only for pictures that fit.
+	 *
+	 * @return the new buffered image
+	 */
+	public BufferedImage getBufferedImage() {
+		BufferedImage image = new BufferedImage(width, height,
+				alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+		forEachTile(false, (x, y, tile) -> {
+			int tileWidth = tile.image.getWidth();
+			int tileHeight = tile.image.getHeight();
+			image.setRGB(x, y, tileWidth, tileHeight, tile.image.getRGB(0, 0, tileWidth, tileHeight, null, 0, tileWidth),
+					0, tileWidth);
+		});
+		return image;
+	}
+
+	/**
+	 * Method to copy the whole picture into a new picture. This makes the whole
+	 * picture in memory, so it is only for pictures that fit.
+	 *
+	 * @return the new picture
+	 */
+	public Picture toPicture() {
+		Picture picture = new Picture(getBufferedImage());
+		picture.setTitle(title);
+		return picture;
+	}
+
+	/**
+	 * Method to return the pixel value as an int for the given x and y location
+	 *
+	 * @param x the x coordinate of the pixel
+	 * @param y the y coordinate of the pixel
+	 * @return the pixel value as an integer (alpha, red, green, blue)
+	 */
+	public int getBasicPixel(int x, int y) {
+		Tile tile = tileAt(x, y);
+		return tile.image.getRGB(x % tileSize, y % tileSize);
+	}
+
+	/**
+	 * Method to set the value of a pixel in the picture from an int
+	 *
+	 * @param x   the x coordinate of the pixel
+	 * @param y   the y coordinate of the pixel
+	 * @param rgb the new rgb value of the pixel (alpha, red, green, blue)
+	 */
+	public void setBasicPixel(int x, int y, int rgb) {
+		Tile tile = tileAt(x, y);
+		tile.image.setRGB(x % tileSize, y % tileSize, rgb);
+		tile.dirty = true;
+	}
+
+	/**
+	 * Method to get a pixel object for the given x and y location
+	 *
+	 * @param x the x location of the pixel in the picture
+	 * @param y the y location of the pixel in the picture
+	 * @return a Pixel object for this location
+	 */
+	public Pixel getPixel(int x, int y) {
+		return new Pixel(this, x, y);
+	}
+
+	/**
+	 * Method to get a one-dimensional array of Pixels for this picture. A pixel
+	 * reads its tile when it is used, but the array has an object for every
+	 * pixel, so it is only for pictures that fit in memory.
+	 *
+	 * @return a one-dimensional array of Pixel objects starting with y=0 to
+	 *         y=height-1 and x=0 to x=width-1.
+	 */
+	public Pixel[] getPixels() {
+		Pixel[] pixelArray = new Pixel[width * height];
+		for (int row = 0; row < height; row++)
+			for (int col = 0; col < width; col++)
+				pixelArray[row * width + col] = new Pixel(this, col, row);
+		return pixelArray;
+	}
+
+	/**
+	 * Method to get a two-dimensional array of Pixels for this picture. Like
+	 * getPixels() it is only for pictures that fit in memory.
+	 *
+	 * @return a two-dimensional array of Pixel objects in row-major order.
+	 */
+	public Pixel[][] getPixels2D() {
+		Pixel[][] pixelArray = new Pixel[height][width];
+		for (int row = 0; row < height; row++)
+			for (int col = 0; col < width; col++)
+				pixelArray[row][col] = new Pixel(this, col, row);
+		return pixelArray;
+	}
+
+	/**
+	 * Method to show the picture in a picture frame
+	 */
+	public void show() {
+		if (pictureFrame != null)
+			pictureFrame.updateImageAndShowIt();
+		else
+			pictureFrame = new PictureFrame(this);
+	}
+
+	/**
+	 * Method to open a picture explorer on a copy (in memory) of this picture
+	 */
+	public void explore() {
+		new PictureExplorer(toPicture());
+	}
+
+	/**
+	 * Method to write the picture to a file with the passed name. This makes
+	 * the whole picture in memory.
+	 *
+	 * @param fileName the name of the file to write the picture to
+	 * @return true if success else false
+	 */
+	public boolean write(String fileName) {
+		return toPicture().write(fileName);
+	}
+
+	/**
+	 * Method to do the discrete cosine transform of the 8x8 blocks into a new
+	 * coefficient image, a tile at a time
+	 *
+	 * @param storage the way to store the coefficients
+	 * @return the coefficients
+	 */
+	public CoefficientImage dct(CoefficientImage.Storage storage) {
+		CoefficientImage coefficients = CoefficientImage.create(storage, width, height);
+		dct(coefficients);
+		return coefficients;
+	}
+
+	/**
+	 * Method to do the discrete cosine transform of the 8x8 blocks into the
+	 * passed coefficient image, a tile at a time. With a MappedCoefficientImage
+	 * neither the pixels nor the coefficients need to fit in memory.
+	 *
+	 * @param coefficients the image to put the coefficients in (the size of the
+	 *                     picture)
+	 */
+	public void dct(CoefficientImage coefficients) {
+		forEachTile(false, (x, y, tile) -> {
+			dctEngine.forward(tile.raster, tileBlocks(coefficients, x, y, tile));
+		});
+	}
+
+	/**
+	 * Method to do the inverse discrete cosine transform of the passed
+	 * coefficients into this picture, a tile at a time
+	 *
+	 * @param coefficients the coefficients from dct(storage)
+	 */
+	public void idct(CoefficientImage coefficients) {
+		forEachTile(true, (x, y, tile) -> {
+			dctEngine.inverse(tileBlocks(coefficients, x, y, tile), tile.raster, 8);
+		});
+	}
+
+	/**
+	 * Method to do the inverse discrete cosine transform of the passed
+	 * coefficients into this picture keeping only the 4x4 lowest frequencies of
+	 * each block to blur it
+	 *
+	 * @param coefficients the coefficients from dct(storage)
+	 */
+	public void idctBlur(CoefficientImage coefficients) {
+		forEachTile(true, (x, y, tile) -> {
+			dctEngine.inverse(tileBlocks(coefficients, x, y, tile), tile.raster, 4);
+		});
+	}
+
+	/**
+	 * Method to change the picture with a chain of coefficient changes. Each
+	 * tile is transformed, changed and inverse transformed on its own, so only
+	 * the coefficients of one tile are ever in memory.
+	 *
+	 * @param filter the changes, such as new
+	 *               CoefficientFilter().brightness(20).contrast(1.2)
+	 */
+	public void filter(CoefficientFilter filter) {
+		CoefficientImage coefficients = CoefficientImage.create(CoefficientImage.Storage.DOUBLE, tileSize, tileSize);
+		forEachTile(true, (x, y, tile) -> {
+			CoefficientImage blocks = tileBlocks(coefficients, 0, 0, tile);
+			dctEngine.forward(tile.raster, blocks);
+			filter.apply(blocks);
+			dctEngine.inverse(blocks, tile.raster, 8);
+		});
+	}
+
+	/**
+	 * Method to change this picture to look the way it would after being
+	 * compressed with the standard JPEG luminance table at the passed quality,
+	 * a tile at a time
+	 *
+	 * @param quality the quality from 1 to 100
+	 */
+	public void quantize(int quality) {
+		QuantizationTable table = QuantizationTable.luminance(quality);
+		QuantizationTable[] tables = { table, table, table };
+		forEachTile(true, (x, y, tile) -> dctEngine.quantize(tile.raster, tables));
+	}
+
+	/**
+	 * Method to get the blocks of a coefficient image under a tile
+	 *
+	 * @param coefficients the coefficients
+	 * @param x            the left edge of the tile in the coefficients
+	 * @param y            the top edge of the tile in the coefficients
+	 * @param tile         the tile
+	 * @return a view of the blocks
+	 */
+	private static CoefficientImage tileBlocks(CoefficientImage coefficients, int x, int y, Tile tile) {
+		return coefficients.blockRegion(y / 8, x / 8, (tile.image.getHeight() + 7) / 8,
+				(tile.image.getWidth() + 7) / 8);
+	}
+
+	/**
+	 * Method to get the engine used by dct(), idct() and idctBlur()
+	 *
+	 * @return the dct engine
+	 */
+	public DctEngine getDctEngine() {
+		return dctEngine;
+	}
+
+	/**
+	 * Method to set the engine used by dct(), idct() and idctBlur()
+	 *
+	 * @param dctEngine the dct engine to use
+	 */
+	public void setDctEngine(DctEngine dctEngine) {
+		this.dctEngine = dctEngine;
+	}
+
+	/**
+	 * Method to return a string with information about this picture
+	 *
+	 * @return a string with the file name, size and tiles
+	 */
+	public String toString() {
+		return "Tiled Picture, filename " + fileName + " height " + height + " width " + width + " tile size "
+				+ tileSize + " tiles in memory " + tiles.size();
+	}
+
+	/**
+	 * Something to do to a tile
+	 */
+	private interface TileTask {
+		/**
+		 * Method to do it to a tile
+		 *
+		 * @param x    the left edge of the tile in the picture
+		 * @param y    the top edge of the tile in the picture
+		 * @param tile the tile
+		 */
+		void run(int x, int y, Tile tile);
+	}
+
+	/**
+	 * A tile in memory
+	 */
+	private static class Tile {
+		/** the pixels */
+		final BufferedImage image;
+
+		/** the pixels as an array */
+		final PictureRaster raster;
+
+		/** whether the pixels were changed since the tile was read */
+		boolean dirty;
+
+		Tile(BufferedImage image) {
+			this.image = image;
+			this.raster = new PictureRaster(image);
+		}
+	}
+}
@@ -0,0 +1,12 @@
+/**
+ * Interface to describe a listener that is told how a transform of the blocks
+ * of a picture is going. The stage is one of the names in DctEngine, such as
+ * "forward" or "inverse". Progress is reported from the threads that run the
+ * blocks, so a listener must be safe to call from several threads at once.
+ */
+public interface TransformListener 
+{
+  public void stageStarted(String stage, int blockCount); // the stage is about to do blockCount blocks
+  public void blocksDone(String stage, int blocksDone, int blockCount); // blocksDone of the blocks are finished
+  public void stageFinished(String stage, int blockCount, long elapsedNanos); // the stage finished all its blocks
+}
@@ -0,0 +1,118 @@
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A class that listens to transforms and adds up the blocks done and the time
+ * taken by each stage, so the blocks per second of each stage can be read
+ * afterwards. It can also print the progress of each stage as it goes.
+ */
+public class TransformMetrics implements TransformListener {
+	/** the totals of each stage in the order the stages were first seen */
+	private final Map<String, long[]> totals = new LinkedHashMap<String, long[]>();
+
+	/** whether to print the progress of each stage */
+	private boolean printProgress;
+
+	/**
+	 * Constructor that only adds up the totals
+	 */
+	public TransformMetrics() {
+		this(false);
+	}
+
+	/**
+	 * Constructor that takes whether to print the progress of each stage
+	 * 
+	 * @param printProgress true to print each progress report
+	 */
+	public TransformMetrics(boolean printProgress) {
+		this.printProgress = printProgress;
+	}
+
+	public void stageStarted(String stage, int blockCount) {
+		if (printProgress)
+			System.out.println(stage + ": " + blockCount + " blocks");
+	}
+
+	public void blocksDone(String stage, int blocksDone, int blockCount) {
+		if (printProgress)
+			System.out.println(stage + ": " + blocksDone + " of " + blockCount + " blocks done");
+	}
+
+	public synchronized void stageFinished(String stage, int blockCount, long elapsedNanos) {
+		long[] total = totals.get(stage);
+		if (total == null) {
+			total = new long[3];
+			totals.put(stage, total);
+		}
+		total[0]++;
+		total[1] += blockCount;
+		total[2] += elapsedNanos;
+	}
+
+	/**
+	 * Method to get the number of times a stage was run
+	 * 
+	 * @param stage the name of the stage
+	 * @return the number of runs
+	 */
+	public synchronized long getRuns(String stage) {
+		long[] total = totals.get(stage);
+		return (total == null) ? 0 : total[0];
+	}
+
+	/**
+	 * Method to get the number of blocks a stage did over all its runs
+	 * 
+	 * @param stage the name of the stage
+	 * @return the number of blocks
+	 */
+	public synchronized long getBlocks(String stage) {
+		long[] total = totals.get(stage);
+		return (total == null) ? 0 : total[1];
+	}
+
+	/**
+	 * Method to get the time a stage took over all its runs
+	 * 
+	 * @param stage the name of the stage
+	 * @return the time in nanoseconds
+	 */
+	public synchronized long getElapsedNanos(String stage) {
+		long[] total = totals.get(stage);
+		return (total == null) ? 0 : total[2];
+	}
+
+	/**
+	 * Method to get the number of blocks a stage did each second
+	 * 
+	 * @param stage the name of the stage
+	 * @return the blocks per second, or 0 if the stage hasn't run
+	 */
+	public synchronized double getBlocksPerSecond(String stage) {
+		long nanos = getElapsedNanos(stage);
+		return (nanos == 0) ? 0 : getBlocks(stage) * 1e9 / nanos;
+	}
+
+	/**
+	 * Method to forget all the totals
+	 */
+	public synchronized void reset() {
+		totals.clear();
+	}
+
+	/**
+	 * Method to return a line for each stage with its totals
+	 * 
+	 * @return the totals of each stage
+	 */
+	public synchronized String toString() {
+		StringBuilder output = new StringBuilder();
+		for (Map.Entry<String, long[]> entry : totals.entrySet()) {
+			long[] total = entry.getValue();
+			output.append(String.format("%s: %d runs, %d blocks, %.3f ms, %.0f blocks/s%n", entry.getKey(), total[0],
+					total[1], total[2] / 1e6, getBlocksPerSecond(entry.getKey())));
+		}
+		return output.toString();
+	}
+}
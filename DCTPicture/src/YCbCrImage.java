@@ -0,0 +1,273 @@
+import java.awt.image.BufferedImage;
+
+/**
+ * A class that holds the discrete cosine transform coefficients of a picture
+ * converted to YCbCr: the luma (Y) in a one channel CoefficientImage at full
+ * resolution and the chroma (Cb in channel 0, Cr in channel 1) in a two
+ * channel CoefficientImage that may be subsampled. Both images are padded to
+ * whole MCUs, so the luma blocks of an MCU always exist. With 4:2:0
+ * subsampling the chroma has a quarter of the blocks of the luma, so the
+ * coefficients take half the memory of a red, green and blue CoefficientImage.
+ */
+public class YCbCrImage {
+	/** the channel of Cb in the chroma image */
+	public static final int CB = 0;
+
+	/** the channel of Cr in the chroma image */
+	public static final int CR = 1;
+
+	/** the width of the picture in pixels */
+	private final int width;
+
+	/** the height of the picture in pixels */
+	private final int height;
+
+	/** how the chroma is subsampled */
+	private final ChromaSubsampling subsampling;
+
+	/** the number of MCUs across */
+	private final int mcusWide;
+
+	/** the number of MCUs down */
+	private final int mcusHigh;
+
+	/** the coefficients of the luma */
+	private final CoefficientImage luma;
+
+	/** the coefficients of the Cb and Cr chroma */
+	private final CoefficientImage chroma;
+
+	/**
+	 * Constructor that takes the size, subsampling and the two images
+	 * 
+	 * @param width       the width of the picture in pixels
+	 * @param height      the height of the picture in pixels
+	 * @param subsampling how the chroma is subsampled
+	 * @param luma        the one channel luma image
+	 * @param chroma      the two channel chroma image
+	 */
+	public YCbCrImage(int width, int height, ChromaSubsampling subsampling, CoefficientImage luma,
+			CoefficientImage chroma) {
+		this.width = width;
+		this.height = height;
+		this.subsampling = subsampling;
+		this.mcusWide = (width + 8 * subsampling.getHorizontal() - 1) / (8 * subsampling.getHorizontal());
+		this.mcusHigh = (height + 8 * subsampling.getVertical() - 1) / (8 * subsampling.getVertical());
+		if (luma.getChannels() != 1 || chroma.getChannels() != 2)
+			throw new IllegalArgumentException("the luma needs 1 channel and the chroma 2");
+		if (luma.getBlocksWide() < mcusWide * subsampling.getHorizontal()
+				|| luma.getBlocksHigh() < mcusHigh * subsampling.getVertical() || chroma.getBlocksWide() < mcusWide
+				|| chroma.getBlocksHigh() < mcusHigh)
+			throw new IllegalArgumentException("the images don't cover the MCUs of a " + width + "x" + height
+					+ " picture");
+		this.luma = luma;
+		this.chroma = chroma;
+	}
+
+	/**
+	 * Method to create an image of all zero coefficients
+	 * 
+	 * @param storage     the way to store the coefficients
+	 * @param width       the width of the picture in pixels
+	 * @param height      the height of the picture in pixels
+	 * @param subsampling how the chroma is subsampled
+	 * @return the new image
+	 */
+	public static YCbCrImage create(CoefficientImage.Storage storage, int width, int height,
+			ChromaSubsampling subsampling) {
+		int mcusWide = (width + 8 * subsampling.getHorizontal() - 1) / (8 * subsampling.getHorizontal());
+		int mcusHigh = (height + 8 * subsampling.getVertical() - 1) / (8 * subsampling.getVertical());
+		return new YCbCrImage(width, height, subsampling,
+				CoefficientImage.create(storage, mcusWide * 8 * subsampling.getHorizontal(),
+						mcusHigh * 8 * subsampling.getVertical(), 1),
+				CoefficientImage.create(storage, mcusWide * 8, mcusHigh * 8, 2));
+	}
+
+	/**
+	 * Method to create an image of short coefficients quantized by a luma table
+	 * and a chroma table
+	 * 
+	 * @param width       the width of the picture in pixels
+	 * @param height      the height of the picture in pixels
+	 * @param subsampling how the chroma is subsampled
+	 * @param lumaTable   the quantization table of the luma
+	 * @param chromaTable the quantization table of the Cb and Cr
+	 * @return the new image
+	 */
+	public static YCbCrImage createQuantized(int width, int height, ChromaSubsampling subsampling,
+			QuantizationTable lumaTable, QuantizationTable chromaTable) {
+		return createQuantized(width, height, subsampling,
+				new QuantizationTable[] { lumaTable, chromaTable, chromaTable });
+	}
+
+	/**
+	 * Method to create an image of short coefficients quantized by a table for
+	 * each of the Y, Cb and Cr components
+	 * 
+	 * @param width       the width of the picture in pixels
+	 * @param height      the height of the picture in pixels
+	 * @param subsampling how the chroma is subsampled
+	 * @param tables      the quantization tables of Y, Cb and Cr
+	 * @return the new image
+	 */
+	public static YCbCrImage createQuantized(int width, int height, ChromaSubsampling subsampling,
+			QuantizationTable[] tables) {
+		int mcusWide = (width + 8 * subsampling.getHorizontal() - 1) / (8 * subsampling.getHorizontal());
+		int mcusHigh = (height + 8 * subsampling.getVertical() - 1) / (8 * subsampling.getVertical());
+		return new YCbCrImage(width, height, subsampling,
+				CoefficientImage.createQuantized(mcusWide * 8 * subsampling.getHorizontal(),
+						mcusHigh * 8 * subsampling.getVertical(), new QuantizationTable[] { tables[0] }),
+				CoefficientImage.createQuantized(mcusWide * 8, mcusHigh * 8,
+						new QuantizationTable[] { tables[1], tables[2] }));
+	}
+
+	/**
+	 * Method to create an image of short coefficients quantized by the standard
+	 * luma and chroma tables at a quality
+	 * 
+	 * @param width       the width of the picture in pixels
+	 * @param height      the height of the picture in pixels
+	 * @param subsampling how the chroma is subsampled
+	 * @param quality     the quality from 1 to 100
+	 * @return the new image
+	 */
+	public static YCbCrImage createQuantized(int width, int height, ChromaSubsampling subsampling, int quality) {
+		return createQuantized(width, height, subsampling, QuantizationTable.luminance(quality),
+				QuantizationTable.chrominance(quality));
+	}
+
+	/**
+	 * Method to get the width of the picture
+	 * 
+	 * @return the width in pixels
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * Method to get the height of the picture
+	 * 
+	 * @return the height in pixels
+	 */
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * Method to get how the chroma is subsampled
+	 * 
+	 * @return the subsampling
+	 */
+	public ChromaSubsampling getSubsampling() {
+		return subsampling;
+	}
+
+	/**
+	 * Method to get the number of MCUs across
+	 * 
+	 * @return the MCUs in a row of MCUs
+	 */
+	public int getMcusWide() {
+		return mcusWide;
+	}
+
+	/**
+	 * Method to get the number of MCUs down
+	 * 
+	 * @return the MCUs in a column of MCUs
+	 */
+	public int getMcusHigh() {
+		return mcusHigh;
+	}
+
+	/**
+	 * Method to get the coefficients of the luma
+	 * 
+	 * @return the one channel luma image
+	 */
+	public CoefficientImage getLuma() {
+		return luma;
+	}
+
+	/**
+	 * Method to get the coefficients of the chroma
+	 * 
+	 * @return the two channel chroma image (Cb then Cr)
+	 */
+	public CoefficientImage getChroma() {
+		return chroma;
+	}
+
+	/**
+	 * Method to get the quantization table of a component
+	 * 
+	 * @param component the component (0 Y, 1 Cb, 2 Cr)
+	 * @return the table, or null if the coefficients aren't quantized
+	 */
+	public QuantizationTable getQuantization(int component) {
+		return (component == 0) ? luma.getQuantization(0) : chroma.getQuantization(component - 1);
+	}
+
+	/**
+	 * Method to tell if the coefficients are integers
+	 * 
+	 * @return true if both images hold integer coefficients
+	 */
+	public boolean isInteger() {
+		return luma.isInteger() && chroma.isInteger();
+	}
+
+	/**
+	 * Method to copy an MCU-aligned part of the image into a new image without
+	 * changing any coefficient
+	 * 
+	 * @param x      the left edge of the part, a multiple of the MCU width
+	 * @param y      the top edge of the part, a multiple of the MCU height
+	 * @param width  the width of the part
+	 * @param height the height of the part
+	 * @return the new image
+	 */
+	public YCbCrImage crop(int x, int y, int width, int height) {
+		int mcuWidth = 8 * subsampling.getHorizontal();
+		int mcuHeight = 8 * subsampling.getVertical();
+		if (x % mcuWidth != 0 || y % mcuHeight != 0)
+			throw new IllegalArgumentException("a crop must start on the edge of a " + mcuWidth + "x" + mcuHeight
+					+ " MCU but was at " + x + "," + y);
+		if (x < 0 || y < 0 || width < 1 || height < 1 || x + width > this.width || y + height > this.height)
+			throw new IllegalArgumentException("the crop " + width + "x" + height + " at " + x + "," + y
+					+ " isn't inside the image");
+		int croppedMcusWide = (width + mcuWidth - 1) / mcuWidth;
+		int croppedMcusHigh = (height + mcuHeight - 1) / mcuHeight;
+		return new YCbCrImage(width, height, subsampling,
+				luma.crop(x, y, croppedMcusWide * mcuWidth, croppedMcusHigh * mcuHeight),
+				chroma.crop(x / subsampling.getHorizontal(), y / subsampling.getVertical(), croppedMcusWide * 8,
+						croppedMcusHigh * 8));
+	}
+
+	/**
+	 * Method to make a picture from the coefficients at 1/1, 1/2, 1/4 or 1/8 of
+	 * their size, inverse transforming only the frequencies the smaller picture
+	 * can show
+	 * 
+	 * @param denominator 1, 2, 4 or 8
+	 * @return the new picture
+	 */
+	public Picture toPicture(int denominator) {
+		// a new image is black, so there is nothing to clear before every pixel is set
+		Picture picture = new Picture(new BufferedImage((width + denominator - 1) / denominator,
+				(height + denominator - 1) / denominator, BufferedImage.TYPE_INT_RGB));
+		new DctEngine().inverseScaled(this, picture.getRaster(), denominator);
+		return picture;
+	}
+
+	/**
+	 * Method to return a string with information about this image
+	 * 
+	 * @return a string with the size, subsampling and storage
+	 */
+	public String toString() {
+		return "YCbCr Image, subsampling " + subsampling + " storage " + luma.getStorage() + " height " + height
+				+ " width " + width;
+	}
+}
@@ -0,0 +1,145 @@
+import java.awt.Color;
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import dctpicture.jmh.PictureOperations;
+
+/**
+ * The calls timed by the JMH benchmarks, made on a picture loaded from the
+ * media directory or made up. The calls that change the picture work on a
+ * copy, and idct and idctBlur start from coefficients worked out ahead of
+ * time.
+ */
+public class PictureWorkload implements PictureOperations {
+	/** the prefix of the made-up pictures */
+	private static final String SYNTHETIC = "synthetic-";
+
+	/** the picture as it was loaded or made */
+	private Picture original;
+
+	/** the picture the calls are made on */
+	private Picture work;
+
+	/** the picture saved as a JPEG file, to load */
+	private File file;
+
+	/** the file written to */
+	private File output;
+
+	/** the coefficients of the picture, for idct and idctBlur */
+	private double[][][] coefficients;
+
+	public void setUp(String mediaDirectory, String input) throws IOException {
+		if (input.startsWith(SYNTHETIC)) {
+			original = makePicture(Integer.parseInt(input.substring(SYNTHETIC.length())));
+		} else {
+			original = new Picture();
+			original.loadOrFail(new File(mediaDirectory, input).getPath());
+			if (original.getBufferedImage() == null)
+				throw new IOException(input + " isn't a picture ImageIO can read");
+		}
+		work = new Picture(original);
+		file = File.createTempFile("bench", ".jpg");
+		output = File.createTempFile("bench", ".jpg");
+		file.deleteOnExit();
+		output.deleteOnExit();
+		original.writeOrFail(file.getPath());
+		coefficients = original.dct();
+	}
+
+	/**
+	 * Method to make a square picture of smooth gradients with noise on top,
+	 * the same every time, so the transforms have something like a photo to
+	 * work on
+	 *
+	 * @param size the width and height
+	 * @return the picture
+	 */
+	private static Picture makePicture(int size) {
+		Picture picture = new Picture(size, size);
+		PictureRaster raster = picture.getRaster();
+		int[] data = raster.getData();
+		Random random = new Random(size);
+		for (int y = 0; y < size; y++) {
+			int index = raster.index(0, y);
+			for (int x = 0; x < size; x++) {
+				int red = clamp(255 * x / size + random.nextInt(33) - 16);
+				int green = clamp(255 * y / size + random.nextInt(33) - 16);
+				int blue = clamp(128 + (int) (100 * Math.sin((x + y) / 17.0)) + random.nextInt(33) - 16);
+				data[index + x] = 0xff000000 | (red << 16) | (green << 8) | blue;
+			}
+		}
+		return picture;
+	}
+
+	/**
+	 * Method to clamp a color value to 0 to 255
+	 *
+	 * @param value the value
+	 * @return the nearest value from 0 to 255
+	 */
+	private static int clamp(int value) {
+		return Math.max(0, Math.min(255, value));
+	}
+
+	public void reset() {
+		PictureRaster from = original.getRaster();
+		PictureRaster to = work.getRaster();
+		for (int y = 0; y < from.getHeight(); y++)
+			System.arraycopy(from.getData(), from.index(0, y), to.getData(), to.index(0, y), from.getWidth());
+	}
+
+	public Object dct() {
+		return work.dct();
+	}
+
+	public Object idct() {
+		work.idct(coefficients);
+		return work;
+	}
+
+	public Object idctBlur() {
+		work.idctBlur(coefficients);
+		return work;
+	}
+
+	public Object getPixels2D() {
+		return work.getPixels2D();
+	}
+
+	public Object copyPicture() {
+		work.copyPicture(original);
+		return work;
+	}
+
+	public Object setAllPixelsToAColor() {
+		work.setAllPixelsToAColor(Color.ORANGE);
+		return work;
+	}
+
+	public Object scale() {
+		return work.scale(0.5, 0.5);
+	}
+
+	public Object edgeDetection() {
+		work.edgeDetection(10);
+		return work;
+	}
+
+	public Object mirrorVertical() {
+		work.mirrorVertical();
+		return work;
+	}
+
+	public Object load() throws IOException {
+		Picture picture = new Picture();
+		picture.loadOrFail(file.getPath());
+		return picture.getBufferedImage();
+	}
+
+	public Object write() throws IOException {
+		work.writeOrFail(output.getPath());
+		return output;
+	}
+}
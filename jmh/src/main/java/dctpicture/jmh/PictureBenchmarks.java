@@ -0,0 +1,120 @@
+package dctpicture.jmh;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmarks of the slow parts of the pictures, on some of the bundled
+ * pictures and on made-up pictures of a few sizes. Build and run them from
+ * the top directory with
+ *
+ * mvn package
+ * java -jar jmh/target/benchmarks.jar -rf json -rff jmh-result.json
+ *
+ * The calls go through PictureOperations, carried out by PictureWorkload in
+ * the default package next to the pictures.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class PictureBenchmarks {
+	/** the bundled pictures and the sizes of the made-up ones */
+	@Param({ "beach.jpg", "temple.jpg", "caterpillar.jpg", "synthetic-256", "synthetic-1024", "synthetic-2048" })
+	public String input;
+
+	/** the directory of the bundled pictures, from the top directory */
+	@Param("DCTPicture/images")
+	public String mediaDirectory;
+
+	/** the calls on the picture */
+	PictureOperations operations;
+
+	@Setup(Level.Trial)
+	public void setUp() throws ReflectiveOperationException, IOException {
+		operations = (PictureOperations) Class.forName("PictureWorkload").getDeclaredConstructor().newInstance();
+		operations.setUp(mediaDirectory, input);
+	}
+
+	/**
+	 * A state that puts the pixels back before each call, for the calls whose
+	 * time depends on the pixels they change
+	 */
+	@State(Scope.Thread)
+	public static class Fresh {
+		@Setup(Level.Invocation)
+		public void reset(PictureBenchmarks benchmarks) {
+			benchmarks.operations.reset();
+		}
+	}
+
+	@Benchmark
+	public Object dct() {
+		return operations.dct();
+	}
+
+	@Benchmark
+	public Object idct() {
+		return operations.idct();
+	}
+
+	@Benchmark
+	public Object idctBlur() {
+		return operations.idctBlur();
+	}
+
+	@Benchmark
+	public Object getPixels2D() {
+		return operations.getPixels2D();
+	}
+
+	@Benchmark
+	public Object copyPicture() {
+		return operations.copyPicture();
+	}
+
+	@Benchmark
+	public Object setAllPixelsToAColor() {
+		return operations.setAllPixelsToAColor();
+	}
+
+	@Benchmark
+	public Object scale() {
+		return operations.scale();
+	}
+
+	@Benchmark
+	public Object edgeDetection(Fresh fresh) {
+		return operations.edgeDetection();
+	}
+
+	@Benchmark
+	public Object mirrorVertical() {
+		return operations.mirrorVertical();
+	}
+
+	@Benchmark
+	public Object load() throws IOException {
+		return operations.load();
+	}
+
+	@Benchmark
+	public Object write() throws IOException {
+		return operations.write();
+	}
+}
@@ -0,0 +1,49 @@
+package dctpicture.jmh;
+
+import java.io.IOException;
+
+/**
+ * The calls timed by PictureBenchmarks. JMH only takes benchmarks in a named
+ * package and the pictures are in the default package, which named packages
+ * can't see, so the calls are made through this interface and carried out by
+ * PictureWorkload in the default package. Each call returns what it made or
+ * changed so JMH can consume it.
+ */
+public interface PictureOperations {
+	/**
+	 * Method to get ready to time a picture
+	 *
+	 * @param mediaDirectory the directory of the bundled pictures
+	 * @param input          a bundled picture, or synthetic-n for a made-up n
+	 *                       by n picture
+	 * @throws IOException if the picture can't be read or saved
+	 */
+	void setUp(String mediaDirectory, String input) throws IOException;
+
+	/**
+	 * Method to put the pixels back as they were loaded or made
+	 */
+	void reset();
+
+	Object dct();
+
+	Object idct();
+
+	Object idctBlur();
+
+	Object getPixels2D();
+
+	Object copyPicture();
+
+	Object setAllPixelsToAColor();
+
+	Object scale();
+
+	Object edgeDetection();
+
+	Object mirrorVertical();
+
+	Object load() throws IOException;
+
+	Object write() throws IOException;
+}
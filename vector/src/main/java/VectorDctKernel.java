@@ -0,0 +1,161 @@
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * A kernel that does the discrete cosine transform of a block as a matrix
+ * multiply with the cosine table of SeparableDctKernel, using the Java Vector
+ * API. Each row of 8 doubles is two 256-bit vectors, so a pass over the rows
+ * multiplies whole rows of the table by one sample at a time, and a pass over
+ * the columns keeps the 8 output rows in 16 vectors while the rows of the block
+ * are added in. A sparse inverse only multiplies the rows and columns inside
+ * the extent.
+ *
+ * This class needs Java 17 or later with --add-modules jdk.incubator.vector.
+ * DctEngine loads it by name and uses AanDctKernel when it can't.
+ */
+public class VectorDctKernel implements DctKernel {
+	/** the shape of the vectors, 4 doubles */
+	private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_256;
+
+	/** the cosine table in row-major order, COSINES[u * 8 + x] */
+	private static final double[] COSINES = SeparableDctKernel.cosineMatrix();
+
+	/** the cosine table turned over, TRANSPOSED[x * 8 + u] = COSINES[u * 8 + x] */
+	private static final double[] TRANSPOSED = new double[64];
+
+	static {
+		for (int u = 0; u < 8; u++) {
+			for (int x = 0; x < 8; x++)
+				TRANSPOSED[x * 8 + u] = COSINES[u * 8 + x];
+		}
+	}
+
+	/**
+	 * Constructor that checks the machine has 256-bit vectors, since narrower
+	 * ones would be emulated and slower than the scalar kernels
+	 */
+	public VectorDctKernel() {
+		if (DoubleVector.SPECIES_PREFERRED.vectorBitSize() < SPECIES.vectorBitSize())
+			throw new UnsupportedOperationException("this machine has only "
+					+ DoubleVector.SPECIES_PREFERRED.vectorBitSize() + "-bit vectors");
+	}
+
+	/**
+	 * Method to do the forward transform of one block in place
+	 *
+	 * @param block the 64 samples of the block in row-major order
+	 */
+	public void forward(double[] block) {
+		rowPass(block, TRANSPOSED, 8);
+		columnPass(block, COSINES, 8);
+	}
+
+	/**
+	 * Method to do the inverse transform of one block in place
+	 *
+	 * @param block the 64 coefficients of the block in row-major order
+	 */
+	public void inverse(double[] block) {
+		inverse(block, 8);
+	}
+
+	/**
+	 * Method to do the inverse transform of a block that is zero outside the
+	 * extent x extent corner
+	 *
+	 * @param block  the 64 coefficients of the block in row-major order
+	 * @param extent the number of rows and columns that can be non-zero
+	 */
+	public void inverse(double[] block, int extent) {
+		rowPass(block, COSINES, extent);
+		columnPass(block, TRANSPOSED, extent);
+	}
+
+	/**
+	 * Method to multiply the 64 values of a block by the matching mask values in
+	 * place
+	 *
+	 * @param block the values to multiply
+	 * @param mask  the 64 factors
+	 */
+	public void multiply(double[] block, double[] mask) {
+		for (int k = 0; k < 64; k += SPECIES.length())
+			DoubleVector.fromArray(SPECIES, block, k).mul(DoubleVector.fromArray(SPECIES, mask, k)).intoArray(block,
+					k);
+	}
+
+	/**
+	 * Method to multiply each row of the block by a matrix on the right, in
+	 * place: row r becomes the sum of block[r][k] times row k of the matrix
+	 *
+	 * @param block  the 64 values in row-major order
+	 * @param matrix the 64 values of the matrix in row-major order
+	 * @param count  the number of rows and columns of the block that can be
+	 *               non-zero (the rest of the rows are left as zero)
+	 */
+	private static void rowPass(double[] block, double[] matrix, int count) {
+		for (int row = 0; row < count * 8; row += 8) {
+			DoubleVector low = DoubleVector.zero(SPECIES);
+			DoubleVector high = DoubleVector.zero(SPECIES);
+			for (int k = 0; k < count; k++) {
+				double sample = block[row + k];
+				low = low.add(DoubleVector.fromArray(SPECIES, matrix, k * 8).mul(sample));
+				high = high.add(DoubleVector.fromArray(SPECIES, matrix, k * 8 + 4).mul(sample));
+			}
+			low.intoArray(block, row);
+			high.intoArray(block, row + 4);
+		}
+	}
+
+	/**
+	 * Method to multiply the block by a matrix on the left, in place: row u
+	 * becomes the sum of matrix[u][k] times row k of the block. All 8 output
+	 * rows are held in vectors until the last row of the block is added in.
+	 *
+	 * @param block  the 64 values in row-major order
+	 * @param matrix the 64 values of the matrix in row-major order
+	 * @param count  the number of rows of the block that can be non-zero
+	 */
+	private static void columnPass(double[] block, double[] matrix, int count) {
+		DoubleVector low0 = DoubleVector.zero(SPECIES), high0 = low0, low1 = low0, high1 = low0;
+		DoubleVector low2 = low0, high2 = low0, low3 = low0, high3 = low0;
+		DoubleVector low4 = low0, high4 = low0, low5 = low0, high5 = low0;
+		DoubleVector low6 = low0, high6 = low0, low7 = low0, high7 = low0;
+		for (int k = 0; k < count; k++) {
+			DoubleVector low = DoubleVector.fromArray(SPECIES, block, k * 8);
+			DoubleVector high = DoubleVector.fromArray(SPECIES, block, k * 8 + 4);
+			low0 = low0.add(low.mul(matrix[k]));
+			high0 = high0.add(high.mul(matrix[k]));
+			low1 = low1.add(low.mul(matrix[8 + k]));
+			high1 = high1.add(high.mul(matrix[8 + k]));
+			low2 = low2.add(low.mul(matrix[16 + k]));
+			high2 = high2.add(high.mul(matrix[16 + k]));
+			low3 = low3.add(low.mul(matrix[24 + k]));
+			high3 = high3.add(high.mul(matrix[24 + k]));
+			low4 = low4.add(low.mul(matrix[32 + k]));
+			high4 = high4.add(high.mul(matrix[32 + k]));
+			low5 = low5.add(low.mul(matrix[40 + k]));
+			high5 = high5.add(high.mul(matrix[40 + k]));
+			low6 = low6.add(low.mul(matrix[48 + k]));
+			high6 = high6.add(high.mul(matrix[48 + k]));
+			low7 = low7.add(low.mul(matrix[56 + k]));
+			high7 = high7.add(high.mul(matrix[56 + k]));
+		}
+		low0.intoArray(block, 0);
+		high0.intoArray(block, 4);
+		low1.intoArray(block, 8);
+		high1.intoArray(block, 12);
+		low2.intoArray(block, 16);
+		high2.intoArray(block, 20);
+		low3.intoArray(block, 24);
+		high3.intoArray(block, 28);
+		low4.intoArray(block, 32);
+		high4.intoArray(block, 36);
+		low5.intoArray(block, 40);
+		high5.intoArray(block, 44);
+		low6.intoArray(block, 48);
+		high6.intoArray(block, 52);
+		low7.intoArray(block, 56);
+		high7.intoArray(block, 60);
+	}
+}